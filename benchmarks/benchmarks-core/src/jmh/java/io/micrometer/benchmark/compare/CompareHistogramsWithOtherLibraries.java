@@ -25,6 +25,8 @@ import com.google.common.primitives.Doubles;
 ////CHECKSTYLE:ON
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.PercentileHistogramBuckets;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -118,6 +120,36 @@ public class CompareHistogramsWithOtherLibraries {
         }
     }
 
+    @State(Scope.Benchmark)
+    public static class MicrometerStripedState {
+
+        io.micrometer.core.instrument.MeterRegistry registry;
+        io.micrometer.core.instrument.DistributionSummary summary;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(),
+                    Clock.SYSTEM);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .stripedHistogramBuckets(true)
+                            .build()
+                            .merge(config);
+                }
+            });
+            summary = DistributionSummary.builder("summary")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(Blackhole hole) {
+            hole.consume(summary.takeSnapshot().count());
+        }
+    }
+
     @State(Scope.Benchmark)
     public static class MicrometerPlainSummaryState {
 
@@ -162,11 +194,16 @@ public class CompareHistogramsWithOtherLibraries {
         state.summary.record(1);
     }
 
-    //    @Benchmark
+    @Benchmark
     public void micrometerHistogram(MicrometerState state, Data data) {
         state.summary.record(data.dataIterator.next());
     }
 
+    @Benchmark
+    public void micrometerStripedHistogram(MicrometerStripedState state, Data data) {
+        state.summary.record(data.dataIterator.next());
+    }
+
     //    @Benchmark
     public void dropwizardHistogram(DropwizardState state, Data data) {
         state.histogram.update(data.dataIterator.next());
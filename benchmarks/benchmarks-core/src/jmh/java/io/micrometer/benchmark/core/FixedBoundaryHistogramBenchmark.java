@@ -0,0 +1,86 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.TimeWindowFixedBoundaryHistogram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads recording into the same percentile histogram, with and without striped bucket counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FixedBoundaryHistogramBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            Options opt = new OptionsBuilder()
+                    .include(FixedBoundaryHistogramBenchmark.class.getSimpleName())
+                    .warmupIterations(2)
+                    .measurementIterations(5)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Param({"false", "true"})
+    private boolean striped;
+
+    private TimeWindowFixedBoundaryHistogram histogram;
+
+    @Setup
+    public void setup() {
+        histogram = new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM,
+                DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .stripedHistogramBuckets(striped)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        histogram.close();
+    }
+
+    /**
+     * Latencies of a fast endpoint, which mostly fall into a handful of neighbouring buckets.
+     */
+    @Benchmark
+    public void record() {
+        histogram.recordLong(1_000_000 + ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    /**
+     * Every thread records the same sample, the worst case for contention on a single bucket.
+     */
+    @Benchmark
+    public void recordSameBucket() {
+        histogram.recordLong(1_000_000);
+    }
+}
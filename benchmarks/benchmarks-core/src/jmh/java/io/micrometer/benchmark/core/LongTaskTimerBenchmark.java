@@ -0,0 +1,84 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.internal.DefaultLongTaskTimer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads starting and stopping tasks on the same long task timer while a number of long running tasks stay
+ * active, as with in-flight requests or consumer tasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LongTaskTimerBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            Options opt = new OptionsBuilder()
+                    .include(LongTaskTimerBenchmark.class.getSimpleName())
+                    .warmupIterations(2)
+                    .measurementIterations(5)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Param({"0", "100", "10000"})
+    private int activeTasks;
+
+    private DefaultLongTaskTimer timer;
+
+    @Setup
+    public void setup() {
+        timer = new DefaultLongTaskTimer(new Meter.Id("long.task", Tags.empty(), null, null, Meter.Type.LONG_TASK_TIMER),
+                Clock.SYSTEM);
+        for (int i = 0; i < activeTasks; i++) {
+            timer.start();
+        }
+    }
+
+    @Benchmark
+    public long startAndStop() {
+        LongTaskTimer.Sample sample = timer.start();
+        return sample.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double duration() {
+        return timer.duration(TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double max() {
+        return timer.max(TimeUnit.SECONDS);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.micrometer.benchmark.core;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.openjdk.jmh.annotations.*;
@@ -23,6 +24,7 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 @State(Scope.Benchmark)
@@ -30,7 +32,7 @@ import java.util.concurrent.TimeUnit;
 public class MeterRegistrationBenchmark {
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
-                .include(MeterRegistrationBenchmark.class.getSimpleName())
+                .include(MeterRegistrationBenchmark.class.getSimpleName() + ".insert10_000")
                 .warmupIterations(2)
                 .measurementIterations(5)
                 .mode(Mode.SampleTime)
@@ -39,6 +41,47 @@ public class MeterRegistrationBenchmark {
                 .build();
 
         new Runner(opt).run();
+
+        // registration throughput under contention, from a single thread up to a registration storm
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Options concurrentOpt = new OptionsBuilder()
+                    .include(MeterRegistrationBenchmark.class.getSimpleName() + ".(registerDistinct|lookupExisting)")
+                    .warmupIterations(2)
+                    .measurementIterations(5)
+                    .mode(Mode.Throughput)
+                    .timeUnit(TimeUnit.MILLISECONDS)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
+
+            new Runner(concurrentOpt).run();
+        }
+    }
+
+    private static final int DISTINCT_TAG_VALUES = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class RegistryState {
+        final String[] tagValues = new String[DISTINCT_TAG_VALUES];
+        MeterRegistry registry;
+
+        @Setup(Level.Trial)
+        public void setupTagValues() {
+            for (int i = 0; i < tagValues.length; i++) {
+                tagValues[i] = "v" + i;
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setupRegistry() {
+            registry = new SimpleMeterRegistry();
+            registry.counter("my.counter", "k", "existing");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int next = ThreadLocalRandom.current().nextInt(DISTINCT_TAG_VALUES);
     }
 
     private int x = 923;
@@ -53,6 +96,21 @@ public class MeterRegistrationBenchmark {
         return sum();
     }
 
+    /**
+     * Simulates dynamic tags (e.g. per-customer or per-URI), where most calls register a meter that doesn't exist yet.
+     */
+    @Benchmark
+    public Counter registerDistinct(RegistryState registryState, ThreadState threadState) {
+        int i = threadState.next;
+        threadState.next = i + 1 == DISTINCT_TAG_VALUES ? 0 : i + 1;
+        return registryState.registry.counter("my.counter", "k", registryState.tagValues[i]);
+    }
+
+    @Benchmark
+    public Counter lookupExisting(RegistryState registryState) {
+        return registryState.registry.counter("my.counter", "k", "existing");
+    }
+
     @Benchmark
     public int sum() {
         return x + y;
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.Histogram;
+import io.micrometer.core.instrument.distribution.TimeWindowPercentileHistogram;
+import io.micrometer.core.instrument.distribution.TimeWindowSketchHistogram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The footprint of the histogram behind a timer publishing percentiles, as reported by {@code gc.alloc.rate.norm}:
+ * each operation builds a histogram and records a realistic spread of latencies into it, so the bytes allocated per
+ * operation approximate the memory each such timer retains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PercentileHistogramMemoryBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PercentileHistogramMemoryBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .measurementIterations(5)
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Param({"1", "2"})
+    public int percentilePrecision;
+
+    private DistributionStatisticConfig config;
+
+    private final long[] latencies = new long[1000];
+
+    @Setup
+    public void setup() {
+        config = DistributionStatisticConfig.builder()
+                .percentiles(0.5, 0.95, 0.99)
+                .percentilePrecision(percentilePrecision)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        // log-normally distributed around 10ms, in nanoseconds
+        Random random = new Random(1234567891L);
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = (long) Math.exp(Math.log(10_000_000) + random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    public Histogram hdrHistogram() {
+        return record(new TimeWindowPercentileHistogram(Clock.SYSTEM, config, false));
+    }
+
+    @Benchmark
+    public Histogram sketchHistogram() {
+        return record(new TimeWindowSketchHistogram(Clock.SYSTEM, config, false));
+    }
+
+    private Histogram record(Histogram histogram) {
+        for (long latency : latencies) {
+            histogram.recordLong(latency);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scraping many series written straight from Micrometer's meters, compared with rendering the
+ * {@link io.prometheus.client.Collector.MetricFamilySamples} of the same {@link CollectorRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrometheusScrapeBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PrometheusScrapeBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .measurementIterations(5)
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Param({"1000", "10000"})
+    public int timers;
+
+    private CollectorRegistry collectorRegistry;
+    private PrometheusMeterRegistry registry;
+
+    @Setup
+    public void setup() {
+        collectorRegistry = new CollectorRegistry();
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, collectorRegistry, Clock.SYSTEM);
+
+        for (int i = 0; i < timers; i++) {
+            Timer.builder("http.server.requests")
+                    .tags("uri", "/api/" + i, "method", "GET", "status", "200")
+                    .sla(Duration.ofMillis(10), Duration.ofMillis(100))
+                    .register(registry)
+                    .record(i % 200, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    public void scrape() throws IOException {
+        registry.scrape(NullOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public void metricFamilySamples() throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(NullOutputStream.INSTANCE, StandardCharsets.UTF_8));
+        TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+        writer.flush();
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.micrometer.benchmark.core;
 
 import io.micrometer.core.instrument.Tags;
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -42,9 +43,58 @@ public class TagsBenchmark {
         Tags.of("key", "value").and("key2", "value2", "key3", "value3", "key4", "value4", "key5", "value5");
     }
 
+    /**
+     * Tag sets of 1, 5 and 20 tags, each merged with a disjoint set of the same size.
+     */
+    @State(Scope.Benchmark)
+    public static class TagSets {
+        @Param({"1", "5", "20"})
+        int size;
+
+        String[] keyValues;
+        Tags tags;
+        Tags otherTags;
+
+        @Setup
+        public void setup() {
+            keyValues = new String[size * 2];
+            String[] otherKeyValues = new String[size * 2];
+            for (int i = 0; i < size; i++) {
+                keyValues[2 * i] = "key" + (2 * i);
+                keyValues[2 * i + 1] = "value" + i;
+                otherKeyValues[2 * i] = "key" + (2 * i + 1);
+                otherKeyValues[2 * i + 1] = "value" + i;
+            }
+            tags = Tags.of(keyValues);
+            otherTags = Tags.of(otherKeyValues);
+        }
+    }
+
+    @Benchmark
+    public Tags ofKeyValues(TagSets tagSets) {
+        return Tags.of(tagSets.keyValues);
+    }
+
+    @Benchmark
+    public Tags andSortedTags(TagSets tagSets) {
+        return tagSets.tags.and(tagSets.otherTags);
+    }
+
+    @Benchmark
+    public Tags andKeyValue(TagSets tagSets) {
+        return tagSets.tags.and("key", "value");
+    }
+
+    @Benchmark
+    public int internedHashCode(TagSets tagSets) {
+        return Tags.of(tagSets.keyValues).intern().hashCode();
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(TagsBenchmark.class.getSimpleName())
+                // reports allocation rate and bytes allocated per operation alongside time
+                .addProfiler(GCProfiler.class)
                 .build();
         new Runner(opt).run();
     }
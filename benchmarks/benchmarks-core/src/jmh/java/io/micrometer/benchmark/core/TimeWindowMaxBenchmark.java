@@ -0,0 +1,79 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.benchmark.core;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.TimeWindowMax;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads recording into the same max, as when every request thread records into a hot endpoint's timer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeWindowMaxBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            Options opt = new OptionsBuilder()
+                    .include(TimeWindowMaxBenchmark.class.getSimpleName())
+                    .warmupIterations(2)
+                    .measurementIterations(5)
+                    .threads(threads)
+                    .forks(1)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    private TimeWindowMax max;
+
+    @Setup
+    public void setup() {
+        max = new TimeWindowMax(Clock.SYSTEM, DistributionStatisticConfig.DEFAULT);
+    }
+
+    /**
+     * Mostly samples below the current max, which is the steady state for a timer.
+     */
+    @Benchmark
+    public void record() {
+        max.record(ThreadLocalRandom.current().nextLong(1_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Every sample raises the max, the worst case for contention between recording threads.
+     */
+    @Benchmark
+    public void recordIncreasing() {
+        max.record(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double poll() {
+        return max.poll(TimeUnit.MILLISECONDS);
+    }
+}
@@ -107,7 +107,7 @@ public class AppOpticsMeterRegistry extends StepMeterRegistry {
     protected void publish() {
         try {
             String bodyMeasurementsPrefix = getBodyMeasurementsPrefix();
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
+            for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
                 final List<String> meters = batch.stream()
                         .map(meter -> meter.match(
                                 this::writeGauge,
@@ -91,7 +91,7 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (Meter meter : getMeters()) {
+        for (Meter meter : getMetersToPublish()) {
             meter.match(
                     this::trackGauge,
                     this::trackCounter,
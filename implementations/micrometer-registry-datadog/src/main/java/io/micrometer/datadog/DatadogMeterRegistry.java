@@ -17,24 +17,28 @@ package io.micrometer.datadog;
 
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.config.MissingRequiredConfigurationException;
+import io.micrometer.core.instrument.push.MeterReadings;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
-import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.instrument.util.RenderedIdCache;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.ipc.http.ConcurrencyLimitingHttpSender;
 import io.micrometer.core.ipc.http.HttpSender;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URLEncoder;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static io.micrometer.core.instrument.util.StringEscapeUtils.escapeJson;
@@ -55,6 +59,11 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
      */
     private final Set<String> verifiedMetadata = ConcurrentHashMap.newKeySet();
 
+    /**
+     * The metrics written for each meter, rendered up to the points of the metric.
+     */
+    private final RenderedIdCache<RenderedMetrics> renderedMetrics = new RenderedIdCache<>(this, id -> new RenderedMetrics());
+
     /**
      * @param config Configuration options for the registry that are describable as properties.
      * @param clock  The clock to use for timings.
@@ -104,43 +113,14 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        Map<String, DatadogMetricMetadata> metadataToSend = new HashMap<>();
+        // filled as batches are written, which may happen on the threads of the sender
+        Map<String, DatadogMetricMetadata> metadataToSend = new ConcurrentHashMap<>();
 
         String datadogEndpoint = config.uri() + "/api/v1/series?api_key=" + config.apiKey();
 
         try {
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-                /*
-                Example post body from Datadog API docs. Host and tags are optional.
-                "{ \"series\" :
-                        [{\"metric\":\"test.metric\",
-                          \"points\":[[$currenttime, 20]],
-                          \"host\":\"test.example.com\",
-                          \"tags\":[\"environment:test\"]}
-                        ]
-                }"
-                */
-                String body = batch.stream().flatMap(meter -> meter.match(
-                        m -> writeMeter(m, metadataToSend),
-                        m -> writeMeter(m, metadataToSend),
-                        timer -> writeTimer(timer, metadataToSend),
-                        summary -> writeSummary(summary, metadataToSend),
-                        m -> writeMeter(m, metadataToSend),
-                        m -> writeMeter(m, metadataToSend),
-                        m -> writeMeter(m, metadataToSend),
-                        timer -> writeTimer(timer, metadataToSend),
-                        m -> writeMeter(m, metadataToSend))
-                ).collect(joining(",", "{\"series\":[", "]}"));
-
-                logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), body);
-
-                httpClient.post(datadogEndpoint)
-                        .withJsonContent(
-                                body)
-                        .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to datadog", batch.size()))
-                        .onError(response -> logger.error("failed to send metrics to datadog: {}", response.body()));
-            }
+            HttpSender sender = new ConcurrencyLimitingHttpSender(httpClient, config.maxInFlightRequests());
+            forEachBatch(config.batchSize(), batch -> sendBatch(sender, datadogEndpoint, batch, metadataToSend)).join();
         } catch (Throwable e) {
             logger.warn("failed to send metrics to datadog", e);
         }
@@ -148,80 +128,131 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
         metadataToSend.forEach(this::postMetricMetadata);
     }
 
-    private Stream<String> writeTimer(FunctionTimer timer, Map<String, DatadogMetricMetadata> metadata) {
+    private CompletableFuture<Void> sendBatch(HttpSender sender, String datadogEndpoint, MeterReadings batch,
+                                              Map<String, DatadogMetricMetadata> metadataToSend) {
+        /*
+        Example post body from Datadog API docs. Host and tags are optional.
+        "{ \"series\" :
+                [{\"metric\":\"test.metric\",
+                  \"points\":[[$currenttime, 20]],
+                  \"host\":\"test.example.com\",
+                  \"tags\":[\"environment:test\"]}
+                ]
+        }"
+        */
+        HttpSender.EntityWriter body = HttpSender.EntityWriter.joining(() -> IntStream.range(0, batch.size())
+                .mapToObj(i -> writeReading(batch, i, metadataToSend))
+                .flatMap(metrics -> metrics), ",", "{\"series\":[", "]}");
+
+        if (logger.isTraceEnabled()) {
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            try {
+                body.writeTo(printed);
+                logger.trace("sending metrics batch to datadog:{}{}", System.lineSeparator(), printed.toString("UTF-8"));
+            } catch (IOException e) {
+                logger.trace("failed to write metrics batch", e);
+            }
+        }
+
+        HttpSender.Request.Builder request = sender.post(datadogEndpoint)
+                .withJsonContent(body);
+        return publishAsync(request::sendAsync)
+                .thenAccept(response -> response
+                        .onSuccess(r -> logger.debug("successfully sent {} metrics to datadog", batch.size()))
+                        .onError(r -> logger.error("failed to send metrics to datadog: {}", r.body())))
+                .exceptionally(e -> {
+                    logger.warn("failed to send metrics to datadog", e);
+                    return null;
+                });
+    }
+
+    private Stream<String> writeReading(MeterReadings batch, int i, Map<String, DatadogMetricMetadata> metadata) {
+        Meter.Id id = batch.id(i);
+        switch (batch.kind(i)) {
+            case GAUGE:
+            case TIME_GAUGE:
+                return Stream.of(writeMeasurement(id, Statistic.VALUE, batch.value(i), metadata));
+            case COUNTER:
+            case FUNCTION_COUNTER:
+                return Stream.of(writeMeasurement(id, Statistic.COUNT, batch.count(i), metadata));
+            case TIMER:
+                return writeHistogram(id, batch.total(i), batch.count(i), batch.mean(i), batch.max(i), Statistic.TOTAL_TIME, metadata);
+            case DISTRIBUTION_SUMMARY:
+                return writeHistogram(id, batch.total(i), batch.count(i), batch.mean(i), batch.max(i), Statistic.TOTAL, metadata);
+            case FUNCTION_TIMER:
+                return writeFunctionTimer(id, batch.count(i), batch.mean(i), batch.total(i), metadata);
+            default:
+                // long task timers report their duration in nanoseconds, as measured
+                return writeMeter(batch.meter(i), metadata);
+        }
+    }
+
+    private Stream<String> writeFunctionTimer(Meter.Id id, double count, double mean, double total,
+                                              Map<String, DatadogMetricMetadata> metadata) {
         long wallTime = clock.wallTime();
 
-        Meter.Id id = timer.getId();
 
-        addToMetadataList(metadata, id, "count", Statistic.COUNT, "occurrence");
-        addToMetadataList(metadata, id, "avg", Statistic.VALUE, null);
-        addToMetadataList(metadata, id, "sum", Statistic.TOTAL_TIME, null);
+        RenderedMetric countMetric = renderedMetric(id, "count");
+        RenderedMetric avgMetric = renderedMetric(id, "avg");
+        RenderedMetric sumMetric = renderedMetric(id, "sum");
+
+        addToMetadataList(metadata, countMetric, Statistic.COUNT, "occurrence");
+        addToMetadataList(metadata, avgMetric, Statistic.VALUE, null);
+        addToMetadataList(metadata, sumMetric, Statistic.TOTAL_TIME, null);
 
         // we can't know anything about max and percentiles originating from a function timer
         return Stream.of(
-                writeMetric(id, "count", wallTime, timer.count()),
-                writeMetric(id, "avg", wallTime, timer.mean(getBaseTimeUnit())),
-                writeMetric(id, "sum", wallTime, timer.totalTime(getBaseTimeUnit())));
+                writeMetric(countMetric, wallTime, count),
+                writeMetric(avgMetric, wallTime, mean),
+                writeMetric(sumMetric, wallTime, total));
     }
 
-    private Stream<String> writeTimer(Timer timer, Map<String, DatadogMetricMetadata> metadata) {
+    private Stream<String> writeHistogram(Meter.Id id, double total, double count, double mean, double max,
+                                          Statistic totalStatistic, Map<String, DatadogMetricMetadata> metadata) {
         final long wallTime = clock.wallTime();
         final Stream.Builder<String> metrics = Stream.builder();
 
-        Meter.Id id = timer.getId();
-        metrics.add(writeMetric(id, "sum", wallTime, timer.totalTime(getBaseTimeUnit())));
-        metrics.add(writeMetric(id, "count", wallTime, timer.count()));
-        metrics.add(writeMetric(id, "avg", wallTime, timer.mean(getBaseTimeUnit())));
-        metrics.add(writeMetric(id, "max", wallTime, timer.max(getBaseTimeUnit())));
+        RenderedMetric sumMetric = renderedMetric(id, "sum");
+        RenderedMetric countMetric = renderedMetric(id, "count");
+        RenderedMetric avgMetric = renderedMetric(id, "avg");
+        RenderedMetric maxMetric = renderedMetric(id, "max");
 
-        addToMetadataList(metadata, id, "sum", Statistic.TOTAL_TIME, null);
-        addToMetadataList(metadata, id, "count", Statistic.COUNT, "occurrence");
-        addToMetadataList(metadata, id, "avg", Statistic.VALUE, null);
-        addToMetadataList(metadata, id, "max", Statistic.MAX, null);
+        metrics.add(writeMetric(sumMetric, wallTime, total));
+        metrics.add(writeMetric(countMetric, wallTime, count));
+        metrics.add(writeMetric(avgMetric, wallTime, mean));
+        metrics.add(writeMetric(maxMetric, wallTime, max));
+
+        addToMetadataList(metadata, sumMetric, totalStatistic, null);
+        addToMetadataList(metadata, countMetric, Statistic.COUNT, "occurrence");
+        addToMetadataList(metadata, avgMetric, Statistic.VALUE, null);
+        addToMetadataList(metadata, maxMetric, Statistic.MAX, null);
 
         return metrics.build();
     }
 
-    private Stream<String> writeSummary(DistributionSummary summary, Map<String, DatadogMetricMetadata> metadata) {
-        final long wallTime = clock.wallTime();
-        final Stream.Builder<String> metrics = Stream.builder();
-
-        Meter.Id id = summary.getId();
-        metrics.add(writeMetric(id, "sum", wallTime, summary.totalAmount()));
-        metrics.add(writeMetric(id, "count", wallTime, summary.count()));
-        metrics.add(writeMetric(id, "avg", wallTime, summary.mean()));
-        metrics.add(writeMetric(id, "max", wallTime, summary.max()));
-
-        addToMetadataList(metadata, id, "sum", Statistic.TOTAL, null);
-        addToMetadataList(metadata, id, "count", Statistic.COUNT, "occurrence");
-        addToMetadataList(metadata, id, "avg", Statistic.VALUE, null);
-        addToMetadataList(metadata, id, "max", Statistic.MAX, null);
-
-        return metrics.build();
+    private String writeMeasurement(Meter.Id meterId, Statistic statistic, double value, Map<String, DatadogMetricMetadata> metadata) {
+        RenderedMetric metric = renderedMetric(meterId, statistic);
+        addToMetadataList(metadata, metric, statistic, null);
+        return writeMetric(metric, clock.wallTime(), value);
     }
 
     private Stream<String> writeMeter(Meter m, Map<String, DatadogMetricMetadata> metadata) {
         long wallTime = clock.wallTime();
         return stream(m.measure().spliterator(), false)
                 .map(ms -> {
-                    Meter.Id id = m.getId().withTag(ms.getStatistic());
-                    addToMetadataList(metadata, id, null, ms.getStatistic(), null);
-                    return writeMetric(id, null, wallTime, ms.getValue());
+                    RenderedMetric metric = renderedMetric(m.getId(), ms.getStatistic());
+                    addToMetadataList(metadata, metric, ms.getStatistic(), null);
+                    return writeMetric(metric, wallTime, ms.getValue());
                 });
     }
 
-    private void addToMetadataList(Map<String, DatadogMetricMetadata> metadata, Meter.Id id, @Nullable String suffix,
+    private void addToMetadataList(Map<String, DatadogMetricMetadata> metadata, RenderedMetric metric,
                                    Statistic stat, @Nullable String overrideBaseUnit) {
         if (config.applicationKey() == null)
             return; // we can't set metadata correctly without the application key
 
-        Meter.Id fullId = id;
-        if (suffix != null)
-            fullId = idWithSuffix(id, suffix);
-
-        String metricName = getConventionName(fullId);
-        if (!verifiedMetadata.contains(metricName)) {
-            metadata.put(metricName, new DatadogMetricMetadata(fullId, stat, config.descriptions(), overrideBaseUnit));
+        if (!verifiedMetadata.contains(metric.name)) {
+            metadata.put(metric.name, new DatadogMetricMetadata(metric.id, stat, config.descriptions(), overrideBaseUnit));
         }
     }
 
@@ -230,8 +261,35 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
         Meter.Id fullId = id;
         if (suffix != null)
             fullId = idWithSuffix(id, suffix);
+        return writeMetric(renderMetric(fullId), wallTime, value);
+    }
+
+    private String writeMetric(RenderedMetric metric, long wallTime, double value) {
+        return metric.prefix + (wallTime / 1000) + ", " + value + metric.suffix;
+    }
+
+    private RenderedMetric renderedMetric(Meter.Id meterId, String suffix) {
+        Map<String, RenderedMetric> bySuffix = renderedMetrics.get(meterId).bySuffix;
+        RenderedMetric metric = bySuffix.get(suffix);
+        if (metric == null) {
+            metric = renderMetric(idWithSuffix(meterId, suffix));
+            bySuffix.put(suffix, metric);
+        }
+        return metric;
+    }
 
-        Iterable<Tag> tags = getConventionTags(fullId);
+    private RenderedMetric renderedMetric(Meter.Id meterId, Statistic statistic) {
+        Map<Statistic, RenderedMetric> byStatistic = renderedMetrics.get(meterId).byStatistic;
+        RenderedMetric metric = byStatistic.get(statistic);
+        if (metric == null) {
+            metric = renderMetric(meterId.withTag(statistic));
+            byStatistic.put(statistic, metric);
+        }
+        return metric;
+    }
+
+    private RenderedMetric renderMetric(Meter.Id id) {
+        Iterable<Tag> tags = getConventionTags(id);
 
         String host = config.hostTag() == null ? "" : stream(tags.spliterator(), false)
                 .filter(t -> config.hostTag().equals(t.getKey()))
@@ -245,8 +303,9 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
                 .collect(joining(",", ",\"tags\":[", "]"))
                 : "";
 
-        return "{\"metric\":\"" + escapeJson(getConventionName(fullId)) + "\"," +
-                "\"points\":[[" + (wallTime / 1000) + ", " + value + "]]" + host + tagsArray + "}";
+        String name = getConventionName(id);
+        return new RenderedMetric(id, name, "{\"metric\":\"" + escapeJson(name) + "\"," + "\"points\":[[",
+                "]]" + host + tagsArray + "}");
     }
 
     /**
@@ -295,6 +354,28 @@ public class DatadogMeterRegistry extends StepMeterRegistry {
         return new Builder(config);
     }
 
+    private static class RenderedMetrics {
+        final Map<String, RenderedMetric> bySuffix = new ConcurrentHashMap<>();
+        final Map<Statistic, RenderedMetric> byStatistic = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A metric with its name and tags rendered, around the points that are written for each publish.
+     */
+    private static class RenderedMetric {
+        final Meter.Id id;
+        final String name;
+        final String prefix;
+        final String suffix;
+
+        RenderedMetric(Meter.Id id, String name, String prefix, String suffix) {
+            this.id = id;
+            this.name = name;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+
     public static class Builder {
         private final DatadogConfig config;
 
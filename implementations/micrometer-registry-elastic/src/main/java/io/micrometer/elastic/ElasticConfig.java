@@ -147,4 +147,30 @@ public interface ElasticConfig extends StepRegistryConfig {
         String v = get(prefix() + ".indexDateSeparator");
         return v == null ? "-" : v;
     }
+
+    /**
+     * The maximum size of a bulk request, in bytes before compression. Batches of meters are split into more than one
+     * bulk request if needed, to stay below the {@code http.max_content_length} of Elasticsearch. A single document
+     * larger than this is still sent, in a request of its own.
+     * Default is: 10485760 (10 MiB)
+     *
+     * @return maximum size of a bulk request in bytes
+     * @since 1.3.17
+     */
+    default int maxBulkSize() {
+        String v = get(prefix() + ".maxBulkSize");
+        return v == null ? 10 * 1024 * 1024 : Integer.parseInt(v);
+    }
+
+    /**
+     * Whether bulk requests should be GZIP compressed.
+     * Default is: {@code false}
+     *
+     * @return whether to compress bulk requests
+     * @since 1.3.17
+     */
+    default boolean compressed() {
+        String v = get(prefix() + ".compressed");
+        return v != null && Boolean.valueOf(v);
+    }
 }
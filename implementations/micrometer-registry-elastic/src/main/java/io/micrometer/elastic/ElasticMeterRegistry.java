@@ -17,16 +17,29 @@ package io.micrometer.elastic;
 
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.push.MeterReadings;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
-import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.instrument.util.RenderedIdCache;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.ipc.http.ConcurrencyLimitingHttpSender;
 import io.micrometer.core.ipc.http.HttpSender;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import io.micrometer.core.lang.NonNull;
+import io.micrometer.core.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -35,6 +48,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -43,7 +57,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static io.micrometer.core.instrument.util.StringEscapeUtils.escapeJson;
-import static java.util.stream.Collectors.joining;
 
 /**
  * {@link MeterRegistry} for Elasticsearch.
@@ -117,6 +130,11 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
 
     private final String indexLine;
 
+    /**
+     * The name, type and tags of each meter, as they are written in each of its documents.
+     */
+    private final RenderedIdCache<String> documentNamesAndTags = new RenderedIdCache<>(this, this::renderNameAndTags);
+
     private volatile Integer majorVersion;
     private volatile boolean checkedForIndexTemplate = false;
 
@@ -207,45 +225,83 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         createIndexTemplateIfNeeded();
 
         String uri = config.host() + "/" + indexName() + getTypePath() + "/_bulk";
-        for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-            try {
-                String requestBody = batch.stream()
-                        .map(m -> m.match(
-                                this::writeGauge,
-                                this::writeCounter,
-                                this::writeTimer,
-                                this::writeSummary,
-                                this::writeLongTaskTimer,
-                                this::writeTimeGauge,
-                                this::writeFunctionCounter,
-                                this::writeFunctionTimer,
-                                this::writeMeter))
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .collect(joining("\n", "", "\n"));
-                httpClient
-                        .post(uri)
-                        .withBasicAuthentication(config.userName(), config.password())
-                        .withJsonContent(requestBody)
-                        .send()
-                        .onSuccess(response -> {
-                            int numberOfSentItems = batch.size();
-                            String responseBody = response.body();
+        // every document of a publish has the same timestamp
+        String documentStart = documentStart(generateTimestamp());
+        HttpSender sender = new ConcurrencyLimitingHttpSender(httpClient, config.maxInFlightRequests());
+        try {
+            forEachBatch(config.batchSize(), batch -> publishAsync(() -> sendBatch(sender, uri, documentStart, batch))
+                    .exceptionally(e -> {
+                        logger.error("failed to send metrics to elastic", e);
+                        return null;
+                    })).join();
+        } catch (Throwable e) {
+            logger.error("failed to send metrics to elastic", e);
+        }
+    }
+
+    private CompletableFuture<Void> sendBatch(HttpSender sender, String uri, String documentStart, MeterReadings batch) {
+        return sendBulkRequests(sender, uri, new BulkRequestBody(documentStart, batch, 0));
+    }
+
+    /**
+     * Sends a bulk request, and then the documents of the batch it had no room for in further requests. Where a
+     * request ends is only known once its body has been written, so the requests of a batch are sent one after the
+     * other.
+     */
+    private CompletableFuture<Void> sendBulkRequests(HttpSender sender, String uri, BulkRequestBody body) {
+        if (!body.hasDocuments()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return sendBulkRequest(sender, uri, body).thenCompose(sent -> {
+            // a request that failed before its body was written leaves the rest of the batch unsent
+            return body.end > body.from ? sendBulkRequests(sender, uri, body.next()) : CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private CompletableFuture<Void> sendBulkRequest(HttpSender sender, String uri, BulkRequestBody body) {
+        HttpSender.Request.Builder request;
+        try {
+            request = sender
+                    .post(uri)
+                    .withBasicAuthentication(config.userName(), config.password())
+                    .withJsonContent(body)
+                    .compressWhen(config::compressed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return request.sendAsync()
+                .thenAccept(response -> response
+                        .onSuccess(r -> {
+                            int numberOfSentItems = body.documents;
+                            String responseBody = r.body();
                             if (responseBody.contains(ERROR_RESPONSE_BODY_SIGNATURE)) {
                                 int numberOfCreatedItems = countCreatedItems(responseBody);
-                                logger.debug("failed metrics payload: {}", requestBody);
+                                logFailedPayload(body);
                                 logger.error("failed to send metrics to elastic (sent {} metrics but created {} metrics): {}",
                                         numberOfSentItems, numberOfCreatedItems, responseBody);
                             } else {
                                 logger.debug("successfully sent {} metrics to elastic", numberOfSentItems);
                             }
                         })
-                        .onError(response -> {
-                            logger.debug("failed metrics payload: {}", requestBody);
-                            logger.error("failed to send metrics to elastic: {}", response.body());
-                        });
-            } catch (Throwable e) {
-                logger.error("failed to send metrics to elastic", e);
+                        .onError(r -> {
+                            logFailedPayload(body);
+                            logger.error("failed to send metrics to elastic: {}", r.body());
+                        }))
+                .exceptionally(e -> {
+                    logger.error("failed to send metrics to elastic", e);
+                    return null;
+                });
+    }
+
+    private void logFailedPayload(HttpSender.EntityWriter requestBody) {
+        if (logger.isDebugEnabled()) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            try {
+                requestBody.writeTo(payload);
+                logger.debug("failed metrics payload: {}", payload.toString("UTF-8"));
+            } catch (IOException e) {
+                logger.debug("failed to write metrics payload", e);
             }
         }
     }
@@ -299,92 +355,122 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         return config.index() + config.indexDateSeparator() + indexDateFormatter.format(dt);
     }
 
+    @Nullable
+    private Consumer<StringBuilder> readingFields(MeterReadings batch, int i) {
+        switch (batch.kind(i)) {
+            case GAUGE:
+            case TIME_GAUGE:
+                return gaugeFields(batch.value(i));
+            case COUNTER:
+            case FUNCTION_COUNTER:
+                return counterFields(batch.count(i));
+            case TIMER:
+            case DISTRIBUTION_SUMMARY:
+                return histogramFields((long) batch.count(i), batch.total(i), batch.mean(i), batch.max(i));
+            case LONG_TASK_TIMER:
+                return longTaskTimerFields((int) batch.count(i), batch.total(i));
+            case FUNCTION_TIMER:
+                return functionTimerFields(batch.count(i), batch.total(i), batch.mean(i));
+            default:
+                return meterFields(batch.meter(i));
+        }
+    }
+
     // VisibleForTesting
     Optional<String> writeCounter(Counter counter) {
-        return writeCounter(counter, counter.count());
+        return writeDocumentIfPresent(counter, counterFields(counter.count()));
     }
 
     // VisibleForTesting
     Optional<String> writeFunctionCounter(FunctionCounter counter) {
-        return writeCounter(counter, counter.count());
+        return writeDocumentIfPresent(counter, counterFields(counter.count()));
     }
 
-    private Optional<String> writeCounter(Meter meter, double value) {
+    @Nullable
+    private static Consumer<StringBuilder> counterFields(double value) {
         if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(meter, builder -> {
-                builder.append(",\"count\":").append(value);
-            }));
+            return builder -> builder.append(",\"count\":").append(value);
         }
-        return Optional.empty();
+        return null;
     }
 
     // VisibleForTesting
     Optional<String> writeGauge(Gauge gauge) {
-        double value = gauge.value();
-        if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(gauge, builder -> {
-                builder.append(",\"value\":").append(value);
-            }));
-        }
-        return Optional.empty();
+        return writeDocumentIfPresent(gauge, gaugeFields(gauge.value()));
     }
 
     // VisibleForTesting
     Optional<String> writeTimeGauge(TimeGauge gauge) {
-        double value = gauge.value(getBaseTimeUnit());
+        return writeDocumentIfPresent(gauge, gaugeFields(gauge.value(getBaseTimeUnit())));
+    }
+
+    @Nullable
+    private static Consumer<StringBuilder> gaugeFields(double value) {
         if (Double.isFinite(value)) {
-            return Optional.of(writeDocument(gauge, builder -> {
-                builder.append(",\"value\":").append(value);
-            }));
+            return builder -> builder.append(",\"value\":").append(value);
         }
-        return Optional.empty();
+        return null;
     }
 
     // VisibleForTesting
     Optional<String> writeFunctionTimer(FunctionTimer timer) {
-        double sum = timer.totalTime(getBaseTimeUnit());
-        double mean = timer.mean(getBaseTimeUnit());
+        return writeDocumentIfPresent(timer, functionTimerFields(timer.count(), timer.totalTime(getBaseTimeUnit()),
+                timer.mean(getBaseTimeUnit())));
+    }
+
+    @Nullable
+    private static Consumer<StringBuilder> functionTimerFields(double count, double sum, double mean) {
         if (Double.isFinite(sum) && Double.isFinite(mean)) {
-            return Optional.of(writeDocument(timer, builder -> {
-                builder.append(",\"count\":").append(timer.count());
+            return builder -> {
+                builder.append(",\"count\":").append(count);
                 builder.append(",\"sum\":").append(sum);
                 builder.append(",\"mean\":").append(mean);
-            }));
+            };
         }
-        return Optional.empty();
+        return null;
     }
 
     // VisibleForTesting
     Optional<String> writeLongTaskTimer(LongTaskTimer timer) {
-        return Optional.of(writeDocument(timer, builder -> {
-            builder.append(",\"activeTasks\":").append(timer.activeTasks());
-            builder.append(",\"duration\":").append(timer.duration(getBaseTimeUnit()));
-        }));
+        return writeDocumentIfPresent(timer, longTaskTimerFields(timer.activeTasks(), timer.duration(getBaseTimeUnit())));
+    }
+
+    private static Consumer<StringBuilder> longTaskTimerFields(int activeTasks, double duration) {
+        return builder -> {
+            builder.append(",\"activeTasks\":").append(activeTasks);
+            builder.append(",\"duration\":").append(duration);
+        };
     }
 
     // VisibleForTesting
     Optional<String> writeTimer(Timer timer) {
-        return Optional.of(writeDocument(timer, builder -> {
-            builder.append(",\"count\":").append(timer.count());
-            builder.append(",\"sum\":").append(timer.totalTime(getBaseTimeUnit()));
-            builder.append(",\"mean\":").append(timer.mean(getBaseTimeUnit()));
-            builder.append(",\"max\":").append(timer.max(getBaseTimeUnit()));
-        }));
+        return writeDocumentIfPresent(timer, histogramFields(timer.count(), timer.totalTime(getBaseTimeUnit()),
+                timer.mean(getBaseTimeUnit()), timer.max(getBaseTimeUnit())));
     }
 
     // VisibleForTesting
     Optional<String> writeSummary(DistributionSummary summary) {
         HistogramSnapshot histogramSnapshot = summary.takeSnapshot();
-        return Optional.of(writeDocument(summary, builder -> {
-            builder.append(",\"count\":").append(histogramSnapshot.count());
-            builder.append(",\"sum\":").append(histogramSnapshot.total());
-            builder.append(",\"mean\":").append(histogramSnapshot.mean());
-            builder.append(",\"max\":").append(histogramSnapshot.max());
-        }));
+        return writeDocumentIfPresent(summary, histogramFields(histogramSnapshot.count(), histogramSnapshot.total(),
+                histogramSnapshot.mean(), histogramSnapshot.max()));
+    }
+
+    private static Consumer<StringBuilder> histogramFields(long count, double sum, double mean, double max) {
+        return builder -> {
+            builder.append(",\"count\":").append(count);
+            builder.append(",\"sum\":").append(sum);
+            builder.append(",\"mean\":").append(mean);
+            builder.append(",\"max\":").append(max);
+        };
     }
 
     // VisibleForTesting
     Optional<String> writeMeter(Meter meter) {
+        return writeDocumentIfPresent(meter, meterFields(meter));
+    }
+
+    @Nullable
+    private static Consumer<StringBuilder> meterFields(Meter meter) {
         Iterable<Measurement> measurements = meter.measure();
         List<String> names = new ArrayList<>();
         // Snapshot values should be used throughout this method as there are chances for values to be changed in-between.
@@ -398,13 +484,13 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
             values.add(value);
         }
         if (names.isEmpty()) {
-            return Optional.empty();
+            return null;
         }
-        return Optional.of(writeDocument(meter, builder -> {
+        return builder -> {
             for (int i = 0; i < names.size(); i++) {
                 builder.append(",\"").append(names.get(i)).append("\":\"").append(values.get(i)).append("\"");
             }
-        }));
+        };
     }
 
     /**
@@ -417,25 +503,39 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         return TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(config().clock().wallTime()));
     }
 
+    private Optional<String> writeDocumentIfPresent(Meter meter, @Nullable Consumer<StringBuilder> fields) {
+        return fields == null ? Optional.empty() : Optional.of(writeDocument(meter, fields));
+    }
+
     // VisibleForTesting
     String writeDocument(Meter meter, Consumer<StringBuilder> consumer) {
-        StringBuilder sb = new StringBuilder(indexLine);
-        String timestamp = generateTimestamp();
-        String name = getConventionName(meter.getId());
-        String type = meter.getId().getType().toString().toLowerCase();
-        sb.append("{\"").append(config.timestampFieldName()).append("\":\"").append(timestamp).append('"')
-                .append(",\"name\":\"").append(escapeJson(name)).append('"')
+        StringBuilder sb = new StringBuilder();
+        appendDocument(sb, documentStart(generateTimestamp()), meter, consumer);
+        return sb.toString();
+    }
+
+    private String documentStart(String timestamp) {
+        return indexLine + "{\"" + config.timestampFieldName() + "\":\"" + timestamp + '"';
+    }
+
+    private void appendDocument(StringBuilder sb, String documentStart, Meter meter, Consumer<StringBuilder> fields) {
+        sb.append(documentStart).append(documentNamesAndTags.get(meter.getId()));
+        fields.accept(sb);
+        sb.append("}");
+    }
+
+    private String renderNameAndTags(Meter.Id id) {
+        StringBuilder sb = new StringBuilder();
+        String name = getConventionName(id);
+        String type = id.getType().toString().toLowerCase();
+        sb.append(",\"name\":\"").append(escapeJson(name)).append('"')
                 .append(",\"type\":\"").append(type).append('"');
 
-        List<Tag> tags = getConventionTags(meter.getId());
+        List<Tag> tags = getConventionTags(id);
         for (Tag tag : tags) {
             sb.append(",\"").append(escapeJson(tag.getKey())).append("\":\"")
                     .append(escapeJson(tag.getValue())).append('"');
         }
-
-        consumer.accept(sb);
-        sb.append("}");
-
         return sb.toString();
     }
 
@@ -445,6 +545,110 @@ public class ElasticMeterRegistry extends StepMeterRegistry {
         return TimeUnit.MILLISECONDS;
     }
 
+    /**
+     * Writes the documents of a batch from a position on straight into the body of a bulk request as it is sent, up to
+     * {@link ElasticConfig#maxBulkSize()}. Only one document at a time is held in memory, to check that it still fits.
+     * The same documents are written every time the body is written.
+     */
+    private class BulkRequestBody implements HttpSender.EntityWriter {
+        private final String documentStart;
+        private final MeterReadings batch;
+        private final int from;
+
+        /**
+         * The position of the first meter that wasn't written, once the body has been written.
+         */
+        private volatile int end;
+        private volatile int documents;
+
+        BulkRequestBody(String documentStart, MeterReadings batch, int from) {
+            this.documentStart = documentStart;
+            this.batch = batch;
+            this.from = from;
+            this.end = from;
+        }
+
+        boolean hasDocuments() {
+            for (int i = from; i < batch.size(); i++) {
+                if (readingFields(batch, i) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        BulkRequestBody next() {
+            return new BulkRequestBody(documentStart, batch, end);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            int maxBulkSize = config.maxBulkSize();
+            DocumentEncoder encoder = new DocumentEncoder();
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(512);
+            long size = 0;
+            int written = 0;
+
+            int i = from;
+            for (; i < batch.size(); i++) {
+                Consumer<StringBuilder> fields = readingFields(batch, i);
+                if (fields == null) {
+                    continue;
+                }
+
+                StringBuilder document = encoder.document();
+                appendDocument(document, documentStart, batch.meter(i), fields);
+                document.append('\n');
+
+                encoded.reset();
+                encoder.encode(encoded);
+                // a document larger than a whole request is still sent, in a request of its own
+                if (written > 0 && size + encoded.size() > maxBulkSize) {
+                    break;
+                }
+                encoded.writeTo(out);
+                size += encoded.size();
+                written++;
+            }
+
+            this.documents = written;
+            this.end = i;
+        }
+    }
+
+    /**
+     * Encodes documents as UTF-8 through buffers that are reused for all of the documents of a batch.
+     */
+    private static class DocumentEncoder {
+        private final StringBuilder document = new StringBuilder(512);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(4096);
+
+        /**
+         * @return The document to fill before calling {@link #encode}, emptied.
+         */
+        StringBuilder document() {
+            document.setLength(0);
+            return document;
+        }
+
+        void encode(ByteArrayOutputStream out) {
+            CharBuffer chars = CharBuffer.wrap(document);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, bytes, true);
+                if (result.isUnderflow()) {
+                    result = encoder.flush(bytes);
+                }
+                out.write(bytes.array(), 0, bytes.position());
+                bytes.clear();
+            } while (result.isOverflow());
+        }
+    }
+
     public static class Builder {
         private final ElasticConfig config;
 
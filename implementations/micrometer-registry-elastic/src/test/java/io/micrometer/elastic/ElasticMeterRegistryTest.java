@@ -17,11 +17,14 @@ package io.micrometer.elastic;
 
 import io.micrometer.core.Issue;
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.ipc.http.HttpSender;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -298,4 +301,58 @@ class ElasticMeterRegistryTest {
         assertThat(ElasticMeterRegistry.getMajorVersion(responseBody)).isEqualTo(5);
     }
 
+    @Test
+    void publishSplitsBulkRequestsByByteSize() {
+        List<String> bulkRequests = new CopyOnWriteArrayList<>();
+        HttpSender httpClient = request -> {
+            if (request.getMethod() == HttpSender.Method.GET) {
+                return new HttpSender.Response(200, "{\"version\":{\"number\":\"7.0.0\"}}");
+            }
+            assertThat(request.isStreaming()).isTrue();
+            bulkRequests.add(new String(request.getEntity(), StandardCharsets.UTF_8));
+            return new HttpSender.Response(200, "{}");
+        };
+        ElasticMeterRegistry registry = ElasticMeterRegistry.builder(new ElasticConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+
+            @Override
+            public boolean autoCreateIndex() {
+                return false;
+            }
+
+            @Override
+            public int maxBulkSize() {
+                return 300;
+            }
+        }).clock(clock).httpClient(httpClient).build();
+
+        for (int i = 0; i < 5; i++) {
+            registry.gauge("my.gauge" + i, Tags.of("tag", "vålue"), this, test -> 1.0);
+        }
+        registry.gauge("not.written", Tags.empty(), this, test -> Double.NaN);
+        registry.publish();
+
+        assertThat(bulkRequests).hasSizeGreaterThan(1);
+        int documents = 0;
+        for (String bulkRequest : bulkRequests) {
+            String[] lines = bulkRequest.split("\n");
+            assertThat(bulkRequest).endsWith("\n");
+            assertThat(lines.length % 2).isZero();
+            documents += lines.length / 2;
+            if (lines.length > 2) {
+                assertThat(bulkRequest.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(300);
+            }
+        }
+        assertThat(documents).isEqualTo(5);
+        assertThat(String.join("", bulkRequests)).contains("\"tag\":\"vålue\"").doesNotContain("not.written");
+    }
+
 }
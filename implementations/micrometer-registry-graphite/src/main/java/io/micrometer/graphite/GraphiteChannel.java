@@ -0,0 +1,191 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.graphite;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A connection to Graphite that stays open from one publish to the next. After failing to connect, it waits longer
+ * and longer before trying again, so that the batches of a publish don't each wait on the connect timeout while
+ * Graphite is down.
+ */
+class GraphiteChannel implements Closeable {
+    /**
+     * Keeps datagrams within the MTU of Fast Ethernet.
+     */
+    static final int MAX_DATAGRAM_LENGTH = 1432;
+
+    private static final long INITIAL_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final GraphiteProtocol protocol;
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMillis;
+    private final long maxBackoffNanos;
+    private final Clock clock;
+
+    @Nullable
+    private ByteChannel channel;
+
+    /**
+     * Zero until connecting fails.
+     */
+    private long backoffNanos;
+    private long nextConnectAttempt;
+
+    GraphiteChannel(GraphiteProtocol protocol, String host, int port, Duration connectTimeout,
+                    Duration maxReconnectBackoff, Clock clock) {
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.maxBackoffNanos = Math.max(maxReconnectBackoff.toNanos(), INITIAL_BACKOFF_NANOS);
+        this.clock = clock;
+    }
+
+    /**
+     * Writes all of a payload, connecting first if there is no open connection.
+     *
+     * @param payload Plaintext lines, or a pickle with its length header.
+     * @throws IOException When connecting or writing fails, or while waiting to connect again. The connection is
+     *                     closed after a failed write, and opened again by the next send.
+     */
+    synchronized void send(ByteBuffer payload) throws IOException {
+        ByteChannel channel = connect();
+        try {
+            if (protocol == GraphiteProtocol.UDP) {
+                sendDatagrams((DatagramChannel) channel, payload);
+            } else {
+                while (payload.hasRemaining()) {
+                    channel.write(payload);
+                }
+            }
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    private ByteChannel connect() throws IOException {
+        ByteChannel channel = this.channel;
+        if (channel != null) {
+            return channel;
+        }
+
+        long now = clock.monotonicTime();
+        if (backoffNanos > 0 && now - nextConnectAttempt < 0) {
+            throw new IOException("not connecting to graphite at " + host + ":" + port + " for another " +
+                    TimeUtils.format(Duration.ofNanos(nextConnectAttempt - now)));
+        }
+
+        try {
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(host);
+            }
+            channel = protocol == GraphiteProtocol.UDP ? openDatagramChannel(address) : openSocketChannel(address);
+        } catch (IOException e) {
+            backoffNanos = backoffNanos == 0 ? INITIAL_BACKOFF_NANOS : Math.min(backoffNanos * 2, maxBackoffNanos);
+            nextConnectAttempt = now + backoffNanos;
+            throw e;
+        }
+
+        backoffNanos = 0;
+        this.channel = channel;
+        return channel;
+    }
+
+    private SocketChannel openSocketChannel(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().setKeepAlive(true);
+            channel.socket().connect(address, connectTimeoutMillis);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static DatagramChannel openDatagramChannel(InetSocketAddress address) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.connect(address);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends plaintext lines in as few datagrams as fit them, without splitting lines across datagrams.
+     */
+    private static void sendDatagrams(DatagramChannel channel, ByteBuffer payload) throws IOException {
+        while (payload.hasRemaining()) {
+            int start = payload.position();
+            int end = Math.min(payload.limit(), start + MAX_DATAGRAM_LENGTH);
+            if (end < payload.limit()) {
+                int lineEnd = end;
+                while (lineEnd > start && payload.get(lineEnd - 1) != '\n') {
+                    lineEnd--;
+                }
+                if (lineEnd > start) {
+                    end = lineEnd;
+                } else {
+                    // a line longer than a datagram is sent on its own
+                    while (end < payload.limit() && payload.get(end - 1) != '\n') {
+                        end++;
+                    }
+                }
+            }
+
+            ByteBuffer datagram = payload.duplicate();
+            datagram.limit(end);
+            channel.write(datagram);
+            payload.position(end);
+        }
+    }
+
+    private void disconnect() {
+        ByteChannel channel = this.channel;
+        this.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+}
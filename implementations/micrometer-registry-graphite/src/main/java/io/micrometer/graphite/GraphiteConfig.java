@@ -18,6 +18,7 @@ package io.micrometer.graphite;
 import io.micrometer.core.instrument.dropwizard.DropwizardConfig;
 import io.micrometer.core.lang.Nullable;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -99,4 +100,24 @@ public interface GraphiteConfig extends DropwizardConfig {
 
         throw new IllegalArgumentException("Unrecognized graphite protocol '" + v + "' (check property " + prefix() + ".protocol)");
     }
+
+    /**
+     * @return The timeout for {@link GraphiteStepMeterRegistry} to connect to Graphite. Default is 1 second.
+     * @since 1.3.17
+     */
+    default Duration connectTimeout() {
+        String v = get(prefix() + ".connectTimeout");
+        return v == null ? Duration.ofSeconds(1) : Duration.parse(v);
+    }
+
+    /**
+     * @return The longest that {@link GraphiteStepMeterRegistry} waits before trying to connect to Graphite again,
+     * after failing to connect. The wait starts at 1 second and doubles with every failure in a row. Default is
+     * 5 minutes.
+     * @since 1.3.17
+     */
+    default Duration maxReconnectBackoff() {
+        String v = get(prefix() + ".maxReconnectBackoff");
+        return v == null ? Duration.ofMinutes(5) : Duration.parse(v);
+    }
 }
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.graphite;
+
+import io.micrometer.core.instrument.util.DoubleFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the lines of a batch either as plaintext, or as a pickle of {@code (name, (timestamp, value))} tuples
+ * framed by its length, the way Graphite's pickle receiver expects them. The buffer is reused from batch to batch.
+ */
+class GraphitePayload {
+    private static final byte MARK = '(';
+    private static final byte STOP = '.';
+    private static final byte LONG = 'L';
+    private static final byte STRING = 'S';
+    private static final byte APPEND = 'a';
+    private static final byte LIST = 'l';
+    private static final byte TUPLE = 't';
+    private static final byte QUOTE = '\'';
+    private static final byte LF = '\n';
+
+    private final boolean pickled;
+    private final Buffer buffer = new Buffer();
+
+    private byte[] timestamp = new byte[0];
+    private int lines;
+
+    GraphitePayload(boolean pickled) {
+        this.pickled = pickled;
+    }
+
+    /**
+     * @param name A hierarchical name.
+     * @return The name encoded the way {@link #add} expects it.
+     */
+    static byte[] encodeName(String name, boolean pickled) {
+        if (pickled && (name.indexOf('\'') >= 0 || name.indexOf('\\') >= 0)) {
+            name = name.replace("\\", "\\\\").replace("'", "\\'");
+        }
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Empties the payload, to start the next batch.
+     *
+     * @param timestampSeconds The timestamp of every line of the batch.
+     */
+    void begin(long timestampSeconds) {
+        buffer.reset();
+        lines = 0;
+        timestamp = Long.toString(timestampSeconds).getBytes(StandardCharsets.US_ASCII);
+        if (pickled) {
+            // room for the length header, filled in by finish()
+            buffer.write(0);
+            buffer.write(0);
+            buffer.write(0);
+            buffer.write(0);
+            buffer.write(MARK);
+            buffer.write(LIST);
+        }
+    }
+
+    /**
+     * Adds a line, unless its value is not finite, which Graphite can't store.
+     *
+     * @param name   A name encoded by {@link #encodeName}.
+     * @param suffix Appended to the name, like {@code ".count"}. Must be ASCII and need no escaping.
+     * @param value  The value of the line.
+     */
+    void add(byte[] name, String suffix, double value) {
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        lines++;
+
+        if (pickled) {
+            buffer.write(MARK);
+            buffer.write(STRING);
+            buffer.write(QUOTE);
+            buffer.write(name, 0, name.length);
+            buffer.writeAscii(suffix);
+            buffer.write(QUOTE);
+            buffer.write(LF);
+
+            buffer.write(MARK);
+            buffer.write(LONG);
+            buffer.write(timestamp, 0, timestamp.length);
+            buffer.write(LONG);
+            buffer.write(LF);
+
+            buffer.write(STRING);
+            buffer.write(QUOTE);
+            buffer.writeAscii(DoubleFormat.decimalOrNan(value));
+            buffer.write(QUOTE);
+            buffer.write(LF);
+
+            buffer.write(TUPLE);
+            buffer.write(TUPLE);
+            buffer.write(APPEND);
+        } else {
+            buffer.write(name, 0, name.length);
+            buffer.writeAscii(suffix);
+            buffer.write(' ');
+            buffer.writeAscii(DoubleFormat.decimalOrNan(value));
+            buffer.write(' ');
+            buffer.write(timestamp, 0, timestamp.length);
+            buffer.write(LF);
+        }
+    }
+
+    /**
+     * @return The number of lines added since {@link #begin}.
+     */
+    int lines() {
+        return lines;
+    }
+
+    /**
+     * Ends the batch.
+     *
+     * @return The bytes to send, valid until the next {@link #begin}.
+     */
+    ByteBuffer finish() {
+        if (pickled) {
+            buffer.write(STOP);
+            buffer.putLengthHeader();
+        }
+        return buffer.asByteBuffer();
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(8192);
+        }
+
+        void writeAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        /**
+         * Fills the first four bytes with the big-endian length of what follows them.
+         */
+        void putLengthHeader() {
+            int length = count - 4;
+            buf[0] = (byte) (length >>> 24);
+            buf[1] = (byte) (length >>> 16);
+            buf[2] = (byte) (length >>> 8);
+            buf[3] = (byte) length;
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.graphite;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.push.MeterReadings;
+import io.micrometer.core.instrument.step.StepMeterRegistry;
+import io.micrometer.core.instrument.step.StepRegistryConfig;
+import io.micrometer.core.instrument.util.DoubleFormat;
+import io.micrometer.core.instrument.util.HierarchicalNameMapper;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.instrument.util.RenderedIdCache;
+import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MeterRegistry} for Graphite that sends the step values of its meters itself, rather than reporting them
+ * through a Dropwizard {@code MetricRegistry} like {@link GraphiteMeterRegistry} does. Meters aren't duplicated as
+ * Dropwizard metrics, so recording to them doesn't update a Dropwizard reservoir as well.
+ * <p>
+ * Each meter is sent as lines named by the {@link HierarchicalNameMapper} with a suffix for each of its statistics,
+ * like {@code .count}, {@code .sum}, {@code .mean} and {@code .max} for timers and distribution summaries, over a
+ * connection that stays open from one publish to the next, in the {@link GraphiteConfig#protocol() protocol} of the
+ * configuration. Counters send the count of the last step rather than a cumulative count. Options of a
+ * {@link StepRegistryConfig} like {@code batchSize} are read from the properties of the {@link GraphiteConfig}.
+ *
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public class GraphiteStepMeterRegistry extends StepMeterRegistry {
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = new NamedThreadFactory("graphite-metrics-publisher");
+
+    private static final Statistic[] STATISTICS = Statistic.values();
+    private static final String[] STATISTIC_SUFFIXES = new String[STATISTICS.length];
+
+    static {
+        for (Statistic statistic : STATISTICS) {
+            STATISTIC_SUFFIXES[statistic.ordinal()] = "." + statistic.getTagValueRepresentation();
+        }
+    }
+
+    private final GraphiteConfig config;
+    private final StepRegistryConfig stepConfig;
+    private final HierarchicalNameMapper nameMapper;
+    private final TimeUnit baseTimeUnit;
+    private final GraphiteChannel channel;
+    private final Logger logger = LoggerFactory.getLogger(GraphiteStepMeterRegistry.class);
+
+    /**
+     * The hierarchical name of each meter, encoded for the protocol.
+     */
+    private final RenderedIdCache<byte[]> names = new RenderedIdCache<>(this, this::renderName);
+
+    public GraphiteStepMeterRegistry(GraphiteConfig config, Clock clock) {
+        this(config, clock, new GraphiteHierarchicalNameMapper(config.tagsAsPrefix()));
+    }
+
+    public GraphiteStepMeterRegistry(GraphiteConfig config, Clock clock, HierarchicalNameMapper nameMapper) {
+        this(config, clock, nameMapper, DEFAULT_THREAD_FACTORY);
+    }
+
+    public GraphiteStepMeterRegistry(GraphiteConfig config, Clock clock, HierarchicalNameMapper nameMapper,
+                                     ThreadFactory threadFactory) {
+        this(config, new GraphiteStepRegistryConfig(config), clock, nameMapper, threadFactory);
+    }
+
+    private GraphiteStepMeterRegistry(GraphiteConfig config, StepRegistryConfig stepConfig, Clock clock,
+                                      HierarchicalNameMapper nameMapper, ThreadFactory threadFactory) {
+        super(stepConfig, clock);
+        config().namingConvention(new GraphiteNamingConvention());
+        this.config = config;
+        this.stepConfig = stepConfig;
+        this.nameMapper = nameMapper;
+        this.baseTimeUnit = config.durationUnits();
+        this.channel = new GraphiteChannel(config.protocol(), config.host(), config.port(),
+                config.connectTimeout(), config.maxReconnectBackoff(), clock);
+        start(threadFactory);
+    }
+
+    @Override
+    public void start(ThreadFactory threadFactory) {
+        if (config.enabled()) {
+            logger.info("publishing metrics to graphite every " + TimeUtils.format(config.step()));
+        }
+        super.start(threadFactory);
+    }
+
+    @Override
+    protected boolean readsHistograms() {
+        // percentiles are published along with the count, sum, mean and max of timers and distribution summaries
+        return true;
+    }
+
+    @Override
+    protected void publish() {
+        long timestamp = TimeUnit.MILLISECONDS.toSeconds(config().clock().wallTime());
+        GraphitePayload payload = new GraphitePayload(config.protocol() == GraphiteProtocol.PICKLED);
+        try {
+            forEachBatch(stepConfig.batchSize(), batch -> sendBatch(payload, timestamp, batch)).join();
+        } catch (Throwable e) {
+            logger.warn("failed to send metrics to graphite", e);
+        }
+    }
+
+    private CompletableFuture<Void> sendBatch(GraphitePayload payload, long timestamp, MeterReadings batch) {
+        payload.begin(timestamp);
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] name = names.get(batch.id(i));
+            switch (batch.kind(i)) {
+                case GAUGE:
+                case TIME_GAUGE:
+                    payload.add(name, "", batch.value(i));
+                    break;
+                case COUNTER:
+                case FUNCTION_COUNTER:
+                    payload.add(name, ".count", batch.count(i));
+                    break;
+                case TIMER:
+                case DISTRIBUTION_SUMMARY:
+                    payload.add(name, ".count", batch.count(i));
+                    payload.add(name, ".sum", batch.total(i));
+                    payload.add(name, ".mean", batch.mean(i));
+                    payload.add(name, ".max", batch.max(i));
+                    boolean timer = batch.kind(i) == MeterReadings.Kind.TIMER;
+                    for (ValueAtPercentile percentile : batch.percentileValues(i)) {
+                        payload.add(name, percentileSuffix(percentile.percentile()),
+                                timer ? percentile.value(baseTimeUnit) : percentile.value());
+                    }
+                    break;
+                case LONG_TASK_TIMER:
+                    payload.add(name, ".activeTasks", batch.count(i));
+                    payload.add(name, ".duration", batch.total(i));
+                    break;
+                case FUNCTION_TIMER:
+                    payload.add(name, ".count", batch.count(i));
+                    payload.add(name, ".sum", batch.total(i));
+                    payload.add(name, ".mean", batch.mean(i));
+                    break;
+                default:
+                    for (Measurement measurement : batch.meter(i).measure()) {
+                        payload.add(name, STATISTIC_SUFFIXES[measurement.getStatistic().ordinal()], measurement.getValue());
+                    }
+            }
+        }
+
+        if (payload.lines() > 0) {
+            try {
+                channel.send(payload.finish());
+                logger.debug("successfully sent {} metrics to graphite", payload.lines());
+            } catch (IOException e) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Names percentiles like Dropwizard's Graphite reporter does, like {@code .p99} and {@code .p999}.
+     */
+    private static String percentileSuffix(double percentile) {
+        return ".p" + DoubleFormat.wholeOrDecimal(percentile * 100).replace(".", "");
+    }
+
+    private byte[] renderName(Meter.Id id) {
+        return GraphitePayload.encodeName(nameMapper.toHierarchicalName(id, config().namingConvention()),
+                config.protocol() == GraphiteProtocol.PICKLED);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        channel.close();
+    }
+
+    @Override
+    protected TimeUnit getBaseTimeUnit() {
+        return baseTimeUnit;
+    }
+
+    /**
+     * Reads the options of a {@link StepRegistryConfig} from the properties of a {@link GraphiteConfig}, except for
+     * those that the {@link GraphiteConfig} has itself.
+     */
+    private static class GraphiteStepRegistryConfig implements StepRegistryConfig {
+        private final GraphiteConfig config;
+
+        GraphiteStepRegistryConfig(GraphiteConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        public String prefix() {
+            return config.prefix();
+        }
+
+        @Override
+        @Nullable
+        public String get(String key) {
+            return config.get(key);
+        }
+
+        @Override
+        public Duration step() {
+            return config.step();
+        }
+
+        @Override
+        public boolean enabled() {
+            return config.enabled();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.graphite;
+
+import io.micrometer.core.instrument.MockClock;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GraphiteChannelTest {
+    private final MockClock clock = new MockClock();
+
+    @Test
+    void backOffAfterFailingToConnect() throws IOException {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+
+        GraphiteChannel channel = new GraphiteChannel(GraphiteProtocol.PLAINTEXT, "127.0.0.1", port,
+                Duration.ofSeconds(1), Duration.ofSeconds(3), clock);
+        ByteBuffer payload = ByteBuffer.wrap("a 1 1\n".getBytes());
+
+        assertThatThrownBy(() -> channel.send(payload)).hasMessageNotContaining("not connecting");
+        assertThatThrownBy(() -> channel.send(payload)).hasMessageContaining("not connecting");
+
+        clock.add(Duration.ofSeconds(1));
+        assertThatThrownBy(() -> channel.send(payload)).hasMessageNotContaining("not connecting");
+
+        // the wait doubles with each failure
+        clock.add(Duration.ofSeconds(1));
+        assertThatThrownBy(() -> channel.send(payload)).hasMessageContaining("not connecting");
+        clock.add(Duration.ofSeconds(1));
+        assertThatThrownBy(() -> channel.send(payload)).hasMessageNotContaining("not connecting");
+        channel.close();
+    }
+
+    @Test
+    void keepConnectionOpenBetweenSends() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            GraphiteChannel channel = new GraphiteChannel(GraphiteProtocol.PLAINTEXT, "127.0.0.1",
+                    server.getLocalPort(), Duration.ofSeconds(1), Duration.ofSeconds(3), clock);
+            channel.send(ByteBuffer.wrap("a 1 1\n".getBytes()));
+            channel.send(ByteBuffer.wrap("b 2 1\n".getBytes()));
+            channel.close();
+
+            server.setSoTimeout(10_000);
+            byte[] received = new byte[12];
+            int length = 0;
+            int read;
+            Socket socket = server.accept();
+            while (length < received.length && (read = socket.getInputStream().read(received, length, received.length - length)) != -1) {
+                length += read;
+            }
+            socket.close();
+            assertThat(new String(received, 0, length)).isEqualTo("a 1 1\nb 2 1\n");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.graphite;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.lang.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphiteStepMeterRegistryTest {
+    private final MockClock clock = new MockClock();
+    private final ServerSocket server = newServer();
+
+    private static ServerSocket newServer() {
+        try {
+            ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            server.setSoTimeout(10_000);
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AfterEach
+    void closeServer() throws IOException {
+        server.close();
+    }
+
+    private GraphiteStepMeterRegistry registry(GraphiteProtocol protocol) {
+        return new GraphiteStepMeterRegistry(new GraphiteConfig() {
+            @Override
+            @Nullable
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+
+            @Override
+            public GraphiteProtocol protocol() {
+                return protocol;
+            }
+
+            @Override
+            public String host() {
+                return server.getInetAddress().getHostAddress();
+            }
+
+            @Override
+            public int port() {
+                return server.getLocalPort();
+            }
+        }, clock);
+    }
+
+    @Test
+    void sendPlaintextLines() throws IOException {
+        GraphiteStepMeterRegistry registry = registry(GraphiteProtocol.PLAINTEXT);
+        Counter.builder("my.counter").tag("k", "v").register(registry).increment();
+        Timer.builder("my.timer").register(registry).record(10, TimeUnit.MILLISECONDS);
+        clock.add(Duration.ofMinutes(1));
+        registry.publish();
+        registry.close();
+
+        try (Socket socket = server.accept()) {
+            String lines = new String(readAll(socket), StandardCharsets.UTF_8);
+            assertThat(lines.split("\n")).containsExactlyInAnyOrder(
+                    "myCounter.k.v.count 1 60",
+                    "myTimer.count 1 60",
+                    "myTimer.sum 10 60",
+                    "myTimer.mean 10 60",
+                    "myTimer.max 10 60");
+        }
+    }
+
+    @Test
+    void sendPickledBatchesFramedByTheirLength() throws IOException {
+        GraphiteStepMeterRegistry registry = registry(GraphiteProtocol.PICKLED);
+        registry.counter("my.counter").increment(2);
+        clock.add(Duration.ofMinutes(1));
+        registry.publish();
+        registry.close();
+
+        try (Socket socket = server.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] pickle = new byte[in.readInt()];
+            in.readFully(pickle);
+            assertThat(new String(pickle, StandardCharsets.UTF_8))
+                    .isEqualTo("(l(S'myCounter.count'\n(L60L\nS'2'\ntta.");
+        }
+    }
+
+    @Test
+    void nonFiniteValuesAreNotSent() throws IOException {
+        GraphiteStepMeterRegistry registry = registry(GraphiteProtocol.PLAINTEXT);
+        registry.gauge("my.gauge", Double.NaN);
+        registry.counter("my.counter").increment();
+        clock.add(Duration.ofMinutes(1));
+        registry.publish();
+        registry.close();
+
+        try (Socket socket = server.accept()) {
+            assertThat(new String(readAll(socket), StandardCharsets.UTF_8)).isEqualTo("myCounter.count 1 60\n");
+        }
+    }
+
+    private static byte[] readAll(Socket socket) throws IOException {
+        socket.setSoTimeout(10_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = socket.getInputStream().read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -22,6 +22,7 @@ import io.micrometer.core.instrument.util.DoubleFormat;
 import io.micrometer.core.instrument.util.MeterPartition;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.ipc.http.ConcurrencyLimitingHttpSender;
 import io.micrometer.core.ipc.http.HttpSender;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import io.micrometer.core.lang.NonNull;
@@ -34,6 +35,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -89,9 +91,11 @@ public class HumioMeterRegistry extends StepMeterRegistry {
 
     @Override
     protected void publish() {
-        for (List<Meter> meters : MeterPartition.partition(this, config.batchSize())) {
+        HttpSender sender = new ConcurrencyLimitingHttpSender(httpClient, config.maxInFlightRequests());
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (List<Meter> meters : MeterPartition.partition(getMetersToPublish(), config.batchSize())) {
             try {
-                HttpSender.Request.Builder post = httpClient.post(config.uri() + "/api/v1/ingest/humio-structured");
+                HttpSender.Request.Builder post = sender.post(config.uri() + "/api/v1/ingest/humio-structured");
                 String token = config.apiToken();
                 if (token != null) {
                     post.withHeader("Authorization", "Bearer " + token);
@@ -106,7 +110,8 @@ public class HumioMeterRegistry extends StepMeterRegistry {
                             .collect(joining(",", "\"tags\":{",  "},"));
                 }
 
-                post.withJsonContent(meters.stream()
+                batchSent();
+                post.withJsonContent(HttpSender.EntityWriter.joining(() -> meters.stream()
                         .map(m -> m.match(
                                 batch::writeGauge,
                                 batch::writeCounter,
@@ -117,15 +122,20 @@ public class HumioMeterRegistry extends StepMeterRegistry {
                                 batch::writeFunctionCounter,
                                 batch::writeFunctionTimer,
                                 batch::writeMeter)
-                        )
-                        .collect(joining(",", "[{" + tags + "\"events\": [", "]}]")))
-                        .send()
-                        .onSuccess(response -> logger.debug("successfully sent {} metrics to humio.", meters.size()))
-                        .onError(response -> logger.error("failed to send metrics to humio: {}", response.body()));
+                        ), ",", "[{" + tags + "\"events\": [", "]}]"));
+                requests.add(publishAsync(post::sendAsync)
+                        .thenAccept(response -> response
+                                .onSuccess(r -> logger.debug("successfully sent {} metrics to humio.", meters.size()))
+                                .onError(r -> logger.error("failed to send metrics to humio: {}", r.body())))
+                        .exceptionally(e -> {
+                            logger.warn("failed to send metrics to humio", e);
+                            return null;
+                        }));
             } catch (Throwable e) {
                 logger.warn("failed to send metrics to humio", e);
             }
         }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
     }
 
     @Override
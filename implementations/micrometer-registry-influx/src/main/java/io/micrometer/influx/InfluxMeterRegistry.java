@@ -16,19 +16,24 @@
 package io.micrometer.influx;
 
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.push.MeterReadings;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.util.*;
+import io.micrometer.core.ipc.http.ConcurrencyLimitingHttpSender;
 import io.micrometer.core.ipc.http.HttpSender;
 import io.micrometer.core.ipc.http.HttpUrlConnectionSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.net.MalformedURLException;
 import java.net.URLEncoder;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
@@ -44,7 +49,12 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
     private final InfluxConfig config;
     private final HttpSender httpClient;
     private final Logger logger = LoggerFactory.getLogger(InfluxMeterRegistry.class);
-    private boolean databaseExists = false;
+    private volatile boolean databaseExists = false;
+
+    /**
+     * The name and tags of each meter, as they start its lines.
+     */
+    private final RenderedIdCache<String> lineStarts = new RenderedIdCache<>(this, this::renderLineStart);
 
     @SuppressWarnings("deprecation")
     public InfluxMeterRegistry(InfluxConfig config, Clock clock) {
@@ -117,33 +127,58 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
                 influxEndpoint += "&rp=" + config.retentionPolicy();
             }
 
-            for (List<Meter> batch : MeterPartition.partition(this, config.batchSize())) {
-                httpClient.post(influxEndpoint)
-                        .withBasicAuthentication(config.userName(), config.password())
-                        .withPlainText(batch.stream()
-                                .flatMap(m -> m.match(
-                                        gauge -> writeGauge(gauge.getId(), gauge.value()),
-                                        counter -> writeCounter(counter.getId(), counter.count()),
-                                        this::writeTimer,
-                                        this::writeSummary,
-                                        this::writeLongTaskTimer,
-                                        gauge -> writeGauge(gauge.getId(), gauge.value(getBaseTimeUnit())),
-                                        counter -> writeCounter(counter.getId(), counter.count()),
-                                        this::writeFunctionTimer,
-                                        this::writeMeter))
-                                .collect(joining("\n")))
-                        .compressWhen(config::compressed)
-                        .send()
-                        .onSuccess(response -> {
+            HttpSender sender = new ConcurrencyLimitingHttpSender(httpClient, config.maxInFlightRequests());
+            String endpoint = influxEndpoint;
+            forEachBatch(config.batchSize(), batch -> sendBatch(sender, endpoint, batch)).join();
+        } catch (Throwable e) {
+            logger.error("failed to send metrics to influx", e);
+        }
+    }
+
+    private CompletableFuture<Void> sendBatch(HttpSender sender, String influxEndpoint, MeterReadings batch) {
+        HttpSender.Request.Builder request;
+        try {
+            request = sender.post(influxEndpoint)
+                    .withBasicAuthentication(config.userName(), config.password())
+                    .withPlainText(HttpSender.EntityWriter.joining(() -> IntStream.range(0, batch.size())
+                            .mapToObj(i -> writeReading(batch, i))
+                            .flatMap(lines -> lines), "\n"))
+                    .compressWhen(config::compressed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return publishAsync(request::sendAsync)
+                .thenAccept(response -> response
+                        .onSuccess(r -> {
                             logger.debug("successfully sent {} metrics to InfluxDB.", batch.size());
                             databaseExists = true;
                         })
-                        .onError(response -> logger.error("failed to send metrics to influx: {}", response.body()));
-            }
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException("Malformed InfluxDB publishing endpoint, see '" + config.prefix() + ".uri'", e);
-        } catch (Throwable e) {
-            logger.error("failed to send metrics to influx", e);
+                        .onError(r -> logger.error("failed to send metrics to influx: {}", r.body())))
+                .exceptionally(e -> {
+                    logger.error("failed to send metrics to influx", e);
+                    return null;
+                });
+    }
+
+    private Stream<String> writeReading(MeterReadings batch, int i) {
+        Meter.Id id = batch.id(i);
+        switch (batch.kind(i)) {
+            case GAUGE:
+            case TIME_GAUGE:
+                return writeGauge(id, batch.value(i));
+            case COUNTER:
+            case FUNCTION_COUNTER:
+                return writeCounter(id, batch.count(i));
+            case TIMER:
+            case DISTRIBUTION_SUMMARY:
+                return writeHistogram(id, batch.total(i), batch.count(i), batch.mean(i), batch.max(i));
+            case LONG_TASK_TIMER:
+                return writeLongTaskTimer(id, batch.count(i), batch.total(i));
+            case FUNCTION_TIMER:
+                return writeFunctionTimer(id, batch.total(i), batch.count(i), batch.mean(i));
+            default:
+                return writeMeter(batch.meter(i));
         }
     }
 
@@ -166,12 +201,12 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
         return Stream.of(influxLineProtocol(id, id.getType().name().toLowerCase(), fields.stream()));
     }
 
-    private Stream<String> writeLongTaskTimer(LongTaskTimer timer) {
+    private Stream<String> writeLongTaskTimer(Meter.Id id, double activeTasks, double duration) {
         Stream<Field> fields = Stream.of(
-                new Field("active_tasks", timer.activeTasks()),
-                new Field("duration", timer.duration(getBaseTimeUnit()))
+                new Field("active_tasks", activeTasks),
+                new Field("duration", duration)
         );
-        return Stream.of(influxLineProtocol(timer.getId(), "long_task_timer", fields));
+        return Stream.of(influxLineProtocol(id, "long_task_timer", fields));
     }
 
     // VisibleForTesting
@@ -192,52 +227,47 @@ public class InfluxMeterRegistry extends StepMeterRegistry {
 
     // VisibleForTesting
     Stream<String> writeFunctionTimer(FunctionTimer timer) {
-        double sum = timer.totalTime(getBaseTimeUnit());
+        return writeFunctionTimer(timer.getId(), timer.totalTime(getBaseTimeUnit()), timer.count(), timer.mean(getBaseTimeUnit()));
+    }
+
+    private Stream<String> writeFunctionTimer(Meter.Id id, double sum, double count, double mean) {
         if (Double.isFinite(sum)) {
             Stream.Builder<Field> builder = Stream.builder();
             builder.add(new Field("sum", sum));
-            builder.add(new Field("count", timer.count()));
-            double mean = timer.mean(getBaseTimeUnit());
+            builder.add(new Field("count", count));
             if (Double.isFinite(mean)) {
                 builder.add(new Field("mean", mean));
             }
-            return Stream.of(influxLineProtocol(timer.getId(), "histogram", builder.build()));
+            return Stream.of(influxLineProtocol(id, "histogram", builder.build()));
         }
         return Stream.empty();
     }
 
-    private Stream<String> writeTimer(Timer timer) {
+    private Stream<String> writeHistogram(Meter.Id id, double sum, double count, double mean, double upper) {
         final Stream<Field> fields = Stream.of(
-                new Field("sum", timer.totalTime(getBaseTimeUnit())),
-                new Field("count", timer.count()),
-                new Field("mean", timer.mean(getBaseTimeUnit())),
-                new Field("upper", timer.max(getBaseTimeUnit()))
+                new Field("sum", sum),
+                new Field("count", count),
+                new Field("mean", mean),
+                new Field("upper", upper)
         );
 
-        return Stream.of(influxLineProtocol(timer.getId(), "histogram", fields));
+        return Stream.of(influxLineProtocol(id, "histogram", fields));
     }
 
-    private Stream<String> writeSummary(DistributionSummary summary) {
-        final Stream<Field> fields = Stream.of(
-                new Field("sum", summary.totalAmount()),
-                new Field("count", summary.count()),
-                new Field("mean", summary.mean()),
-                new Field("upper", summary.max())
-        );
-
-        return Stream.of(influxLineProtocol(summary.getId(), "histogram", fields));
+    private String influxLineProtocol(Meter.Id id, String metricType, Stream<Field> fields) {
+        return lineStarts.get(id)
+                + ",metric_type=" + metricType + " "
+                + fields.map(Field::toString).collect(joining(","))
+                + " " + clock.wallTime();
     }
 
-    private String influxLineProtocol(Meter.Id id, String metricType, Stream<Field> fields) {
+    private String renderLineStart(Meter.Id id) {
         String tags = getConventionTags(id).stream()
                 .filter(t -> StringUtils.isNotBlank(t.getValue()))
                 .map(t -> "," + t.getKey() + "=" + t.getValue())
                 .collect(joining(""));
 
-        return getConventionName(id)
-                + tags + ",metric_type=" + metricType + " "
-                + fields.map(Field::toString).collect(joining(","))
-                + " " + clock.wallTime();
+        return getConventionName(id) + tags;
     }
 
     @Override
@@ -112,7 +112,7 @@ public class NewRelicMeterRegistry extends StepMeterRegistry {
 
         // New Relic's Insights API limits us to 1000 events per call
         // 1:1 mapping between Micrometer meters and New Relic events
-        for (List<Meter> batch : MeterPartition.partition(this, Math.min(config.batchSize(), 1000))) {
+        for (List<Meter> batch : MeterPartition.partition(getMetersToPublish(), Math.min(config.batchSize(), 1000))) {
             sendEvents(insightsEndpoint, batch.stream().flatMap(meter -> meter.match(
                     this::writeGauge,
                     this::writeCounter,
@@ -18,11 +18,13 @@ package io.micrometer.prometheus;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.lang.Nullable;
 import io.prometheus.client.Collector;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 
 import static java.util.stream.Collectors.toList;
 
@@ -31,20 +33,40 @@ import static java.util.stream.Collectors.toList;
  */
 class MicrometerCollector extends Collector {
     private final Meter.Id id;
-    private final Map<List<String>, Child> children = new ConcurrentHashMap<>();
+    private final Map<List<String>, Series> children = new ConcurrentHashMap<>();
     private final String conventionName;
+    private final String maxName;
     private final List<String> tagKeys;
     private final PrometheusConfig config;
+    private final BooleanSupplier collectSuppressed;
 
     public MicrometerCollector(Meter.Id id, NamingConvention convention, PrometheusConfig config) {
+        this(id, convention, config, () -> false);
+    }
+
+    /**
+     * @param collectSuppressed When true, {@link #collect()} returns nothing because this collector's samples are
+     *                          being written by {@link #write(PrometheusTextFormatWriter)} instead.
+     */
+    MicrometerCollector(Meter.Id id, NamingConvention convention, PrometheusConfig config, BooleanSupplier collectSuppressed) {
         this.id = id;
         this.conventionName = id.getConventionName(convention);
+        this.maxName = conventionName + "_max";
         this.tagKeys = id.getConventionTags(convention).stream().map(Tag::getKey).collect(toList());
         this.config = config;
+        this.collectSuppressed = collectSuppressed;
+    }
+
+    public void add(List<String> tagValues, Type type, Child child) {
+        add(tagValues, type, child, null);
     }
 
-    public void add(List<String> tagValues, Child child) {
-        children.put(tagValues, child);
+    /**
+     * @param max Optional value of a gauge named after the meter with a {@code _max} suffix, as published by
+     *            timers and distribution summaries.
+     */
+    public void add(List<String> tagValues, Type type, Child child, @Nullable DoubleSupplier max) {
+        children.put(tagValues, new Series(tagValues, PrometheusTextFormatWriter.labels(tagKeys, tagValues), type, child, max));
     }
 
     public void remove(List<String> tagValues) {
@@ -59,52 +81,143 @@ class MicrometerCollector extends Collector {
         return tagKeys;
     }
 
+    private String help() {
+        return config.descriptions() ? Optional.ofNullable(id.getDescription()).orElse(" ") : " ";
+    }
+
     @Override
     public List<MetricFamilySamples> collect() {
-        final String help = config.descriptions() ? Optional.ofNullable(id.getDescription()).orElse(" ") : " ";
+        if (collectSuppressed.getAsBoolean()) {
+            return Collections.emptyList();
+        }
 
-        Map<String, Family> families = new HashMap<>();
+        Type type = null;
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        List<MetricFamilySamples.Sample> maxSamples = new ArrayList<>();
+
+        for (Series series : children.values()) {
+            if (type == null) {
+                type = series.type;
+            }
+            series.child.samples(new SampleCollector(series.tagValues, samples));
+            if (series.max != null) {
+                maxSamples.add(new MetricFamilySamples.Sample(maxName, tagKeys, series.tagValues, series.max.getAsDouble()));
+            }
+        }
+
+        if (type == null) {
+            return Collections.emptyList();
+        }
 
-        for (Child child : children.values()) {
-            child.samples(conventionName, tagKeys).forEach(family -> {
-                families.compute(family.getConventionName(), (name, matchingFamily) -> matchingFamily != null ?
-                        matchingFamily.addSamples(family.samples) : family);
-            });
+        String help = help();
+        List<MetricFamilySamples> families = new ArrayList<>(2);
+        families.add(new MetricFamilySamples(conventionName, type, help, samples));
+        if (!maxSamples.isEmpty()) {
+            families.add(new MetricFamilySamples(maxName, Type.GAUGE, help, maxSamples));
         }
+        return families;
+    }
 
-        return families.values().stream()
-                .map(family -> new MetricFamilySamples(family.conventionName, family.type, help, family.samples))
-                .collect(toList());
+    /**
+     * Writes the same families as {@link #collect()} straight to a scrape, without building samples or label lists.
+     */
+    void write(PrometheusTextFormatWriter writer) {
+        String help = null;
+        boolean hasMax = false;
+
+        for (Series series : children.values()) {
+            if (help == null) {
+                help = help();
+                writer.family(conventionName, help, series.type);
+            }
+            writer.series(conventionName, series.labels);
+            series.child.samples(writer);
+            hasMax |= series.max != null;
+        }
+
+        if (hasMax) {
+            writer.family(maxName, help, Type.GAUGE);
+            for (Series series : children.values()) {
+                if (series.max != null) {
+                    writer.series(maxName, series.labels);
+                    writer.sample("", series.max.getAsDouble());
+                }
+            }
+        }
     }
 
+    /**
+     * Produces the samples of one set of tag values of a meter.
+     */
     interface Child {
-        Stream<Family> samples(String conventionName, List<String> tagKeys);
+        void samples(SampleConsumer samples);
     }
 
-    static class Family {
+    /**
+     * Receives the samples of a {@link Child}, which are named after the meter's convention name followed by a
+     * suffix, and carry the child's tags optionally followed by one more label.
+     */
+    interface SampleConsumer {
+        void sample(String suffix, double value);
+
+        void sample(String suffix, String labelKey, String labelValue, double value);
+
+        void sample(String suffix, String labelKey, double labelValue, double value);
+    }
+
+    private static class Series {
+        final List<String> tagValues;
+
+        /**
+         * Rendered and escaped once, rather than on every scrape.
+         */
+        final String labels;
+
         final Type type;
-        final String conventionName;
-        final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        final Child child;
+
+        @Nullable
+        final DoubleSupplier max;
 
-        Family(Type type, String conventionName, MetricFamilySamples.Sample... samples) {
+        Series(List<String> tagValues, String labels, Type type, Child child, @Nullable DoubleSupplier max) {
+            this.tagValues = tagValues;
+            this.labels = labels;
             this.type = type;
-            this.conventionName = conventionName;
-            Collections.addAll(this.samples, samples);
+            this.child = child;
+            this.max = max;
         }
+    }
 
-        Family(Type type, String conventionName, Stream<MetricFamilySamples.Sample> samples) {
-            this.type = type;
-            this.conventionName = conventionName;
-            samples.forEach(this.samples::add);
+    private class SampleCollector implements SampleConsumer {
+        private final List<String> tagValues;
+        private final List<MetricFamilySamples.Sample> samples;
+
+        SampleCollector(List<String> tagValues, List<MetricFamilySamples.Sample> samples) {
+            this.tagValues = tagValues;
+            this.samples = samples;
         }
 
-        String getConventionName() {
-            return conventionName;
+        @Override
+        public void sample(String suffix, double value) {
+            samples.add(new MetricFamilySamples.Sample(conventionName + suffix, tagKeys, tagValues, value));
+        }
+
+        @Override
+        public void sample(String suffix, String labelKey, String labelValue, double value) {
+            List<String> keys = new ArrayList<>(tagKeys.size() + 1);
+            keys.addAll(tagKeys);
+            keys.add(labelKey);
+
+            List<String> values = new ArrayList<>(tagValues.size() + 1);
+            values.addAll(tagValues);
+            values.add(labelValue);
+
+            samples.add(new MetricFamilySamples.Sample(conventionName + suffix, keys, values, value));
         }
 
-        Family addSamples(Collection<MetricFamilySamples.Sample> samples) {
-            this.samples.addAll(samples);
-            return this;
+        @Override
+        public void sample(String suffix, String labelKey, double labelValue, double value) {
+            sample(suffix, labelKey, Collector.doubleToGoString(labelValue), value);
         }
     }
 }
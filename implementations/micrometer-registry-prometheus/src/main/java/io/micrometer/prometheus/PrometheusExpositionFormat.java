@@ -0,0 +1,148 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Locale;
+
+/**
+ * Formats in which Prometheus can scrape metrics, as negotiated by the {@code Accept} header of a scrape request.
+ *
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public enum PrometheusExpositionFormat {
+    /**
+     * Text format 0.0.4, understood by every Prometheus server.
+     */
+    TEXT_004(TextFormat.CONTENT_TYPE_004, "text/plain"),
+
+    /**
+     * OpenMetrics text format 1.0.0.
+     */
+    OPENMETRICS_TEXT("application/openmetrics-text; version=1.0.0; charset=utf-8", "application/openmetrics-text"),
+
+    /**
+     * Varint length-delimited {@code io.prometheus.client.MetricFamily} protocol buffer messages.
+     */
+    PROTOBUF_DELIMITED("application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited",
+            "application/vnd.google.protobuf");
+
+    private final String contentType;
+    private final String mediaType;
+
+    PrometheusExpositionFormat(String contentType, String mediaType) {
+        this.contentType = contentType;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return The {@code Content-Type} of a scrape in this format.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Picks the format the client prefers, by the quality values of the media ranges in an {@code Accept} header.
+     * Protocol buffers are only chosen when their {@code proto} and {@code encoding} parameters match.
+     *
+     * @param accept The {@code Accept} header of a scrape request, if any.
+     * @return The preferred format, or {@link #TEXT_004} when no other format is acceptable.
+     */
+    public static PrometheusExpositionFormat fromAcceptHeader(@Nullable String accept) {
+        if (accept == null) {
+            return TEXT_004;
+        }
+
+        PrometheusExpositionFormat preferred = TEXT_004;
+        double preferredQuality = 0;
+
+        for (String mediaRange : accept.split(",")) {
+            String[] parts = mediaRange.split(";");
+            String mediaType = parts[0].trim().toLowerCase(Locale.ROOT);
+
+            double quality = 1;
+            boolean protobufParametersMatch = true;
+            for (int i = 1; i < parts.length; i++) {
+                String[] parameter = parts[i].split("=", 2);
+                String name = parameter[0].trim().toLowerCase(Locale.ROOT);
+                String value = parameter.length > 1 ? parameter[1].trim() : "";
+                if (name.equals("q")) {
+                    try {
+                        quality = Double.parseDouble(value);
+                    } catch (NumberFormatException ignored) {
+                        quality = 0;
+                    }
+                } else if (name.equals("proto")) {
+                    protobufParametersMatch &= value.equals("io.prometheus.client.MetricFamily");
+                } else if (name.equals("encoding")) {
+                    protobufParametersMatch &= value.equals("delimited");
+                }
+            }
+
+            for (PrometheusExpositionFormat format : values()) {
+                if (format.mediaType.equals(mediaType) && quality > preferredQuality &&
+                        (format != PROTOBUF_DELIMITED || protobufParametersMatch)) {
+                    preferred = format;
+                    preferredQuality = quality;
+                }
+            }
+        }
+
+        return preferred;
+    }
+
+    /**
+     * Writes the samples of every collector of a {@link CollectorRegistry} in this format.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus.
+     * @param families     Samples to write, e.g. from {@link CollectorRegistry#metricFamilySamples()}.
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream outputStream, Enumeration<Collector.MetricFamilySamples> families) throws IOException {
+        switch (this) {
+            case PROTOBUF_DELIMITED:
+                new PrometheusProtobufWriter(outputStream).write(families);
+                break;
+            case OPENMETRICS_TEXT:
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                PrometheusTextFormatWriter textFormatWriter = new PrometheusTextFormatWriter(writer, true);
+                try {
+                    while (families.hasMoreElements()) {
+                        textFormatWriter.family(families.nextElement());
+                    }
+                    textFormatWriter.end();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.flush();
+                break;
+            default:
+                writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                TextFormat.write004(writer, families);
+                writer.flush();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.micrometer.prometheus;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionCounter;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionTimer;
@@ -30,17 +31,15 @@ import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.common.TextFormat;
 
-import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.LinkedList;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
-import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
@@ -54,6 +53,12 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     private final ConcurrentMap<String, MicrometerCollector> collectorMap = new ConcurrentHashMap<>();
     private final PrometheusConfig prometheusConfig;
 
+    /**
+     * Set while a scrape enumerates the {@link CollectorRegistry} for collectors other than Micrometer's, whose
+     * samples have already been written.
+     */
+    private final ThreadLocal<Boolean> skipMicrometerCollectors = ThreadLocal.withInitial(() -> false);
+
     public PrometheusMeterRegistry(PrometheusConfig config) {
         this(config, new CollectorRegistry(), Clock.SYSTEM);
     }
@@ -93,18 +98,76 @@ public class PrometheusMeterRegistry extends MeterRegistry {
      * @since 1.2.0
      */
     public void scrape(Writer writer) throws IOException {
-        TextFormat.write004(writer, registry.metricFamilySamples());
+        scrape(writer, false);
+    }
+
+    private void scrape(Writer writer, boolean openMetrics) throws IOException {
+        // Micrometer's own meters are written straight from each meter, without building MetricFamilySamples
+        PrometheusTextFormatWriter textFormatWriter = new PrometheusTextFormatWriter(writer, openMetrics);
+        try {
+            for (MicrometerCollector collector : collectorMap.values()) {
+                collector.write(textFormatWriter);
+            }
+
+            // anything else registered with the same CollectorRegistry, skipping the collectors written above
+            skipMicrometerCollectors.set(true);
+            try {
+                if (openMetrics) {
+                    Enumeration<Collector.MetricFamilySamples> families = registry.metricFamilySamples();
+                    while (families.hasMoreElements()) {
+                        textFormatWriter.family(families.nextElement());
+                    }
+                } else {
+                    TextFormat.write004(writer, registry.metricFamilySamples());
+                }
+            } finally {
+                skipMicrometerCollectors.remove();
+            }
+
+            textFormatWriter.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Scrape to the specified output stream, encoded as UTF-8, without buffering the whole scrape in memory.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus.
+     * @throws IOException if writing fails
+     * @since 1.3.17
+     */
+    public void scrape(OutputStream outputStream) throws IOException {
+        scrape(outputStream, PrometheusExpositionFormat.TEXT_004);
+    }
+
+    /**
+     * Scrape to the specified output stream in the given format, typically the one negotiated with
+     * {@link PrometheusExpositionFormat#fromAcceptHeader(String)}. The response should declare the format's
+     * {@link PrometheusExpositionFormat#getContentType() content type}.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus.
+     * @param format       Format to write.
+     * @throws IOException if writing fails
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    public void scrape(OutputStream outputStream, PrometheusExpositionFormat format) throws IOException {
+        if (format == PrometheusExpositionFormat.PROTOBUF_DELIMITED) {
+            format.write(outputStream, registry.metricFamilySamples());
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        scrape(writer, format == PrometheusExpositionFormat.OPENMETRICS_TEXT);
+        writer.flush();
     }
 
     @Override
     public Counter newCounter(Meter.Id id) {
         MicrometerCollector collector = collectorByName(id);
         PrometheusCounter counter = new PrometheusCounter(id);
-        List<String> tagValues = tagValues(id);
-
-        collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER, conventionName,
-                new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, counter.count()))));
-
+        collector.add(tagValues(id), Collector.Type.COUNTER, samples -> samples.sample("", counter.count()));
         return counter;
     }
 
@@ -112,61 +175,33 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     public DistributionSummary newDistributionSummary(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, double scale) {
         MicrometerCollector collector = collectorByName(id);
         PrometheusDistributionSummary summary = new PrometheusDistributionSummary(id, clock, distributionStatisticConfig, scale);
-        List<String> tagValues = tagValues(id);
 
-        collector.add(tagValues, (conventionName, tagKeys) -> {
-            Stream.Builder<Collector.MetricFamilySamples.Sample> samples = Stream.builder();
+        // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
+        Collector.Type type = distributionStatisticConfig.isPublishingHistogram() ? Collector.Type.HISTOGRAM : Collector.Type.SUMMARY;
 
+        collector.add(tagValues(id), type, samples -> {
             final ValueAtPercentile[] percentileValues = summary.takeSnapshot().percentileValues();
             final CountAtBucket[] histogramCounts = summary.histogramCounts();
             double count = summary.count();
 
-            if (percentileValues.length > 0) {
-                List<String> quantileKeys = new LinkedList<>(tagKeys);
-                quantileKeys.add("quantile");
-
-                // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
-                for (ValueAtPercentile v : percentileValues) {
-                    List<String> quantileValues = new LinkedList<>(tagValues);
-                    quantileValues.add(Collector.doubleToGoString(v.percentile()));
-                    samples.add(new Collector.MetricFamilySamples.Sample(
-                            conventionName, quantileKeys, quantileValues, v.value()));
-                }
+            // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
+            for (ValueAtPercentile v : percentileValues) {
+                samples.sample("", "quantile", v.percentile(), v.value());
             }
 
-            Collector.Type type = Collector.Type.SUMMARY;
             if (histogramCounts.length > 0) {
-                // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
-                type = Collector.Type.HISTOGRAM;
-
-                List<String> histogramKeys = new LinkedList<>(tagKeys);
-                histogramKeys.add("le");
-
                 // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
                 for (CountAtBucket c : histogramCounts) {
-                    final List<String> histogramValues = new LinkedList<>(tagValues);
-                    histogramValues.add(Collector.doubleToGoString(c.bucket()));
-                    samples.add(new Collector.MetricFamilySamples.Sample(
-                            conventionName + "_bucket", histogramKeys, histogramValues, c.count()));
+                    samples.sample("_bucket", "le", c.bucket(), c.count());
                 }
 
                 // the +Inf bucket should always equal `count`
-                final List<String> histogramValues = new LinkedList<>(tagValues);
-                histogramValues.add("+Inf");
-                samples.add(new Collector.MetricFamilySamples.Sample(
-                        conventionName + "_bucket", histogramKeys, histogramValues, count));
+                samples.sample("_bucket", "le", Double.POSITIVE_INFINITY, count);
             }
 
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + "_count", tagKeys, tagValues, count));
-
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + "_sum", tagKeys, tagValues, summary.totalAmount()));
-
-            return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
-                    new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max",
-                            new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues, summary.max())));
-        });
+            samples.sample("_count", count);
+            samples.sample("_sum", summary.totalAmount());
+        }, summary::max);
 
         return summary;
     }
@@ -175,62 +210,33 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     protected io.micrometer.core.instrument.Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
         MicrometerCollector collector = collectorByName(id);
         PrometheusTimer timer = new PrometheusTimer(id, clock, distributionStatisticConfig, pauseDetector);
-        List<String> tagValues = tagValues(id);
 
-        collector.add(tagValues, (conventionName, tagKeys) -> {
-            Stream.Builder<Collector.MetricFamilySamples.Sample> samples = Stream.builder();
+        // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
+        Collector.Type type = distributionStatisticConfig.isPublishingHistogram() ? Collector.Type.HISTOGRAM : Collector.Type.SUMMARY;
 
+        collector.add(tagValues(id), type, samples -> {
             final ValueAtPercentile[] percentileValues = timer.takeSnapshot().percentileValues();
             final CountAtBucket[] histogramCounts = timer.histogramCounts();
             double count = timer.count();
 
-            if (percentileValues.length > 0) {
-                List<String> quantileKeys = new LinkedList<>(tagKeys);
-                quantileKeys.add("quantile");
-
-                // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
-                for (ValueAtPercentile v : percentileValues) {
-                    List<String> quantileValues = new LinkedList<>(tagValues);
-                    quantileValues.add(Collector.doubleToGoString(v.percentile()));
-                    samples.add(new Collector.MetricFamilySamples.Sample(
-                            conventionName, quantileKeys, quantileValues, v.value(TimeUnit.SECONDS)));
-                }
+            // satisfies https://prometheus.io/docs/concepts/metric_types/#summary
+            for (ValueAtPercentile v : percentileValues) {
+                samples.sample("", "quantile", v.percentile(), v.value(TimeUnit.SECONDS));
             }
 
-            Collector.Type type = distributionStatisticConfig.isPublishingHistogram() ? Collector.Type.HISTOGRAM : Collector.Type.SUMMARY;
             if (histogramCounts.length > 0) {
-                // Prometheus doesn't balk at a metric being BOTH a histogram and a summary
-                type = Collector.Type.HISTOGRAM;
-
-                List<String> histogramKeys = new LinkedList<>(tagKeys);
-                histogramKeys.add("le");
-
                 // satisfies https://prometheus.io/docs/concepts/metric_types/#histogram
                 for (CountAtBucket c : histogramCounts) {
-                    final List<String> histogramValues = new LinkedList<>(tagValues);
-                    histogramValues.add(Collector.doubleToGoString(c.bucket(TimeUnit.SECONDS)));
-                    samples.add(new Collector.MetricFamilySamples.Sample(
-                            conventionName + "_bucket", histogramKeys, histogramValues, c.count()));
+                    samples.sample("_bucket", "le", c.bucket(TimeUnit.SECONDS), c.count());
                 }
 
                 // the +Inf bucket should always equal `count`
-                final List<String> histogramValues = new LinkedList<>(tagValues);
-                histogramValues.add("+Inf");
-                samples.add(new Collector.MetricFamilySamples.Sample(
-                        conventionName + "_bucket", histogramKeys, histogramValues, count));
+                samples.sample("_bucket", "le", Double.POSITIVE_INFINITY, count);
             }
 
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + "_count", tagKeys, tagValues, count));
-
-            samples.add(new Collector.MetricFamilySamples.Sample(
-                    conventionName + "_sum", tagKeys, tagValues, timer.totalTime(TimeUnit.SECONDS)));
-
-            return Stream.of(new MicrometerCollector.Family(type, conventionName, samples.build()),
-                    new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName + "_max", Stream.of(
-                            new Collector.MetricFamilySamples.Sample(conventionName + "_max", tagKeys, tagValues,
-                                    timer.max(getBaseTimeUnit())))));
-        });
+            samples.sample("_count", count);
+            samples.sample("_sum", timer.totalTime(TimeUnit.SECONDS));
+        }, () -> timer.max(getBaseTimeUnit()));
 
         return timer;
     }
@@ -240,11 +246,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     protected <T> io.micrometer.core.instrument.Gauge newGauge(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> valueFunction) {
         MicrometerCollector collector = collectorByName(id);
         Gauge gauge = new DefaultGauge(id, obj, valueFunction);
-        List<String> tagValues = tagValues(id);
-
-        collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.GAUGE, conventionName,
-                new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, gauge.value()))));
-
+        collector.add(tagValues(id), Collector.Type.GAUGE, samples -> samples.sample("", gauge.value()));
         return gauge;
     }
 
@@ -252,12 +254,11 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     protected LongTaskTimer newLongTaskTimer(Meter.Id id) {
         MicrometerCollector collector = collectorByName(id);
         LongTaskTimer ltt = new DefaultLongTaskTimer(id, clock);
-        List<String> tagValues = tagValues(id);
 
-        collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.UNTYPED, conventionName,
-                new Collector.MetricFamilySamples.Sample(conventionName + "_active_count", tagKeys, tagValues, ltt.activeTasks()),
-                new Collector.MetricFamilySamples.Sample(conventionName + "_duration_sum", tagKeys, tagValues, ltt.duration(TimeUnit.SECONDS))
-        )));
+        collector.add(tagValues(id), Collector.Type.UNTYPED, samples -> {
+            samples.sample("_active_count", ltt.activeTasks());
+            samples.sample("_duration_sum", ltt.duration(TimeUnit.SECONDS));
+        });
 
         return ltt;
     }
@@ -266,12 +267,11 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     protected <T> FunctionTimer newFunctionTimer(Meter.Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction, TimeUnit totalTimeFunctionUnit) {
         MicrometerCollector collector = collectorByName(id);
         FunctionTimer ft = new CumulativeFunctionTimer<>(id, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, getBaseTimeUnit());
-        List<String> tagValues = tagValues(id);
 
-        collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.SUMMARY, conventionName,
-                new Collector.MetricFamilySamples.Sample(conventionName + "_count", tagKeys, tagValues, ft.count()),
-                new Collector.MetricFamilySamples.Sample(conventionName + "_sum", tagKeys, tagValues, ft.totalTime(TimeUnit.SECONDS))
-        )));
+        collector.add(tagValues(id), Collector.Type.SUMMARY, samples -> {
+            samples.sample("_count", ft.count());
+            samples.sample("_sum", ft.totalTime(TimeUnit.SECONDS));
+        });
 
         return ft;
     }
@@ -280,12 +280,7 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     protected <T> FunctionCounter newFunctionCounter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
         MicrometerCollector collector = collectorByName(id);
         FunctionCounter fc = new CumulativeFunctionCounter<>(id, obj, countFunction);
-        List<String> tagValues = tagValues(id);
-
-        collector.add(tagValues, (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER, conventionName,
-                new Collector.MetricFamilySamples.Sample(conventionName, tagKeys, tagValues, fc.count())
-        )));
-
+        collector.add(tagValues(id), Collector.Type.COUNTER, samples -> samples.sample("", fc.count()));
         return fc;
     }
 
@@ -306,38 +301,27 @@ public class PrometheusMeterRegistry extends MeterRegistry {
         }
 
         MicrometerCollector collector = collectorByName(id);
-        List<String> tagValues = tagValues(id);
-
-        final Collector.Type finalPromType = promType;
-        collector.add(tagValues, (conventionName, tagKeys) -> {
-            List<String> statKeys = new LinkedList<>(tagKeys);
-            statKeys.add("statistic");
-
-            return Stream.of(new MicrometerCollector.Family(finalPromType, conventionName,
-                    stream(measurements.spliterator(), false)
-                            .map(m -> {
-                                List<String> statValues = new LinkedList<>(tagValues);
-                                statValues.add(m.getStatistic().toString());
-
-                                String name = conventionName;
-                                switch (m.getStatistic()) {
-                                    case TOTAL:
-                                    case TOTAL_TIME:
-                                        name += "_sum";
-                                        break;
-                                    case MAX:
-                                        name += "_max";
-                                        break;
-                                    case ACTIVE_TASKS:
-                                        name += "_active_count";
-                                        break;
-                                    case DURATION:
-                                        name += "_duration_sum";
-                                        break;
-                                }
-
-                                return new Collector.MetricFamilySamples.Sample(name, statKeys, statValues, m.getValue());
-                            })));
+        collector.add(tagValues(id), promType, samples -> {
+            for (Measurement m : measurements) {
+                String suffix = "";
+                switch (m.getStatistic()) {
+                    case TOTAL:
+                    case TOTAL_TIME:
+                        suffix = "_sum";
+                        break;
+                    case MAX:
+                        suffix = "_max";
+                        break;
+                    case ACTIVE_TASKS:
+                        suffix = "_active_count";
+                        break;
+                    case DURATION:
+                        suffix = "_duration_sum";
+                        break;
+                }
+
+                samples.sample(suffix, "statistic", m.getStatistic().toString(), m.getValue());
+            }
         });
 
         return new DefaultMeter(id, type, measurements);
@@ -369,7 +353,8 @@ public class PrometheusMeterRegistry extends MeterRegistry {
     private MicrometerCollector collectorByName(Meter.Id id) {
         return collectorMap.compute(getConventionName(id), (name, existingCollector) -> {
             if (existingCollector == null) {
-                return new MicrometerCollector(id, config().namingConvention(), prometheusConfig).register(registry);
+                return new MicrometerCollector(id, config().namingConvention(), prometheusConfig,
+                        skipMicrometerCollectors::get).register(registry);
             }
 
             List<String> tagKeys = getConventionTags(id).stream().map(Tag::getKey).collect(toList());
@@ -0,0 +1,305 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes {@link Collector.MetricFamilySamples} as varint length-delimited {@code io.prometheus.client.MetricFamily}
+ * protocol buffer messages, as defined by Prometheus'
+ * <a href="https://github.com/prometheus/client_model/blob/master/metrics.proto">metrics.proto</a>.
+ * <p>
+ * The handful of messages involved are encoded by hand so that no protobuf runtime is required.
+ * <p>
+ * Summaries and histograms are assembled from their {@code _count}, {@code _sum}, {@code _bucket} and quantile
+ * samples. Quantiles that a histogram family has along its buckets become a summary family named after it with a
+ * {@code _quantiles} suffix, since a histogram metric has no room for them. Any other sample, including every sample
+ * of counters, gauges and untyped families, becomes a metric of a family named after the sample, since a protobuf
+ * family only names its metrics once.
+ */
+class PrometheusProtobufWriter {
+    // MetricType enum values
+    private static final int COUNTER = 0;
+    private static final int GAUGE = 1;
+    private static final int SUMMARY = 2;
+    private static final int UNTYPED = 3;
+    private static final int HISTOGRAM = 4;
+
+    // protobuf wire types
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+
+    private final OutputStream out;
+
+    private final Buffer family = new Buffer();
+    private final Buffer metric = new Buffer();
+    private final Buffer value = new Buffer();
+    private final Buffer item = new Buffer();
+    private final Buffer length = new Buffer();
+
+    PrometheusProtobufWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void write(Enumeration<Collector.MetricFamilySamples> families) throws IOException {
+        while (families.hasMoreElements()) {
+            write(families.nextElement());
+        }
+    }
+
+    void write(Collector.MetricFamilySamples familySamples) throws IOException {
+        Map<String, List<Collector.MetricFamilySamples.Sample>> ungrouped = new LinkedHashMap<>();
+
+        if (familySamples.type == Collector.Type.SUMMARY || familySamples.type == Collector.Type.HISTOGRAM) {
+            boolean histogram = familySamples.type == Collector.Type.HISTOGRAM;
+            String name = familySamples.name;
+
+            // one metric per set of labels other than "le" and "quantile"
+            Map<List<String>, Series> series = new LinkedHashMap<>();
+
+            // quantiles published along the buckets of a histogram, which a histogram metric has no room for
+            Map<List<String>, Series> quantiles = new LinkedHashMap<>();
+
+            for (Collector.MetricFamilySamples.Sample sample : familySamples.samples) {
+                String extraLabel = histogram ? "le" : "quantile";
+                int extraLabelIndex = sample.labelNames.indexOf(extraLabel);
+
+                Map<List<String>, Series> target = series;
+                boolean grouped;
+                if (sample.name.equals(name + "_count") || sample.name.equals(name + "_sum")) {
+                    grouped = extraLabelIndex < 0;
+                } else if (sample.name.equals(histogram ? name + "_bucket" : name)) {
+                    grouped = extraLabelIndex >= 0;
+                } else if (histogram && sample.name.equals(name) && sample.labelNames.contains("quantile")) {
+                    extraLabelIndex = sample.labelNames.indexOf("quantile");
+                    target = quantiles;
+                    grouped = true;
+                } else {
+                    grouped = false;
+                }
+
+                if (!grouped) {
+                    ungrouped.computeIfAbsent(sample.name, n -> new ArrayList<>()).add(sample);
+                    continue;
+                }
+
+                List<String> labelNames = new ArrayList<>(sample.labelNames);
+                List<String> labelValues = new ArrayList<>(sample.labelValues);
+                if (extraLabelIndex >= 0) {
+                    labelNames.remove(extraLabelIndex);
+                    labelValues.remove(extraLabelIndex);
+                }
+                Series s = target.computeIfAbsent(labelValues, v -> new Series(labelNames, labelValues));
+
+                if (sample.name.equals(name + "_count")) {
+                    s.count = sample.value;
+                    s.hasCountAndSum = true;
+                } else if (sample.name.equals(name + "_sum")) {
+                    s.sum = sample.value;
+                    s.hasCountAndSum = true;
+                } else {
+                    s.extra.add(sample);
+                }
+            }
+
+            writeDistributionFamily(name, familySamples.help, histogram, series.values());
+            // named like the summary family of the OpenMetrics text format
+            writeDistributionFamily(name + "_quantiles", familySamples.help, false, quantiles.values());
+        } else {
+            for (Collector.MetricFamilySamples.Sample sample : familySamples.samples) {
+                ungrouped.computeIfAbsent(sample.name, n -> new ArrayList<>()).add(sample);
+            }
+        }
+
+        for (Map.Entry<String, List<Collector.MetricFamilySamples.Sample>> samples : ungrouped.entrySet()) {
+            int type = UNTYPED;
+            if (samples.getKey().equals(familySamples.name)) {
+                if (familySamples.type == Collector.Type.GAUGE) {
+                    type = GAUGE;
+                } else if (familySamples.type == Collector.Type.COUNTER) {
+                    type = COUNTER;
+                }
+            } else if (familySamples.type == Collector.Type.COUNTER && samples.getKey().equals(familySamples.name + "_total")) {
+                type = COUNTER;
+            }
+
+            family.reset();
+            family.writeString(1, samples.getKey());
+            family.writeString(2, familySamples.help);
+            family.writeVarint(3, type);
+
+            for (Collector.MetricFamilySamples.Sample sample : samples.getValue()) {
+                metric.reset();
+                writeLabels(sample.labelNames, sample.labelValues);
+
+                value.reset();
+                value.writeDouble(1, sample.value);
+                metric.writeMessage(type == GAUGE ? 2 : type == COUNTER ? 3 : 5, value);
+                writeTimestamp(sample.timestampMs);
+
+                family.writeMessage(4, metric);
+            }
+
+            writeDelimited(family);
+        }
+    }
+
+    private void writeDistributionFamily(String name, String help, boolean histogram, Collection<Series> series) throws IOException {
+        if (series.isEmpty()) {
+            return;
+        }
+
+        family.reset();
+        family.writeString(1, name);
+        family.writeString(2, help);
+        family.writeVarint(3, histogram ? HISTOGRAM : SUMMARY);
+
+        for (Series s : series) {
+            metric.reset();
+            writeLabels(s.labelNames, s.labelValues);
+
+            value.reset();
+            if (s.hasCountAndSum) {
+                value.writeVarint(1, (long) s.count);
+                value.writeDouble(2, s.sum);
+            }
+            for (Collector.MetricFamilySamples.Sample sample : s.extra) {
+                item.reset();
+                double bound = parseGoDouble(sample.labelValues.get(sample.labelNames.indexOf(histogram ? "le" : "quantile")));
+                if (histogram) {
+                    item.writeVarint(1, (long) sample.value);
+                    item.writeDouble(2, bound);
+                } else {
+                    item.writeDouble(1, bound);
+                    item.writeDouble(2, sample.value);
+                }
+                value.writeMessage(3, item);
+            }
+            metric.writeMessage(histogram ? 7 : 4, value);
+            writeTimestamp(s.timestampMs());
+
+            family.writeMessage(4, metric);
+        }
+
+        writeDelimited(family);
+    }
+
+    /**
+     * The inverse of {@link Collector#doubleToGoString(double)}.
+     */
+    private static double parseGoDouble(String value) {
+        switch (value) {
+            case "+Inf":
+                return Double.POSITIVE_INFINITY;
+            case "-Inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(value);
+        }
+    }
+
+    private void writeLabels(List<String> labelNames, List<String> labelValues) {
+        for (int i = 0; i < labelNames.size(); i++) {
+            item.reset();
+            item.writeString(1, labelNames.get(i));
+            item.writeString(2, labelValues.get(i));
+            metric.writeMessage(1, item);
+        }
+    }
+
+    private void writeTimestamp(@Nullable Long timestampMs) {
+        if (timestampMs != null) {
+            metric.writeVarint(6, timestampMs);
+        }
+    }
+
+    private void writeDelimited(Buffer message) throws IOException {
+        length.reset();
+        length.writeRawVarint(message.size());
+        length.writeTo(out);
+        message.writeTo(out);
+    }
+
+    private static class Series {
+        final List<String> labelNames;
+        final List<String> labelValues;
+        final List<Collector.MetricFamilySamples.Sample> extra = new ArrayList<>();
+        double count;
+        double sum;
+        boolean hasCountAndSum;
+
+        Series(List<String> labelNames, List<String> labelValues) {
+            this.labelNames = labelNames;
+            this.labelValues = labelValues;
+        }
+
+        @Nullable
+        Long timestampMs() {
+            return extra.isEmpty() ? null : extra.get(0).timestampMs;
+        }
+    }
+
+    /**
+     * A growable buffer with just enough of the protobuf encoding to write metrics.proto messages.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        void writeTag(int fieldNumber, int wireType) {
+            writeRawVarint((fieldNumber << 3) | wireType);
+        }
+
+        void writeVarint(int fieldNumber, long value) {
+            writeTag(fieldNumber, VARINT);
+            writeRawVarint(value);
+        }
+
+        void writeDouble(int fieldNumber, double value) {
+            writeTag(fieldNumber, FIXED64);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int fieldNumber, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeTag(fieldNumber, LENGTH_DELIMITED);
+            writeRawVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeMessage(int fieldNumber, Buffer message) {
+            writeTag(fieldNumber, LENGTH_DELIMITED);
+            writeRawVarint(message.size());
+            write(message.buf, 0, message.count);
+        }
+
+        void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+}
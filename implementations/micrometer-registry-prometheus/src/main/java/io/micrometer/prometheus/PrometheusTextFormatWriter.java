@@ -0,0 +1,430 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import io.micrometer.core.lang.Nullable;
+import io.prometheus.client.Collector;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes samples in the same format as {@link TextFormat#write004(Writer, java.util.Enumeration)}, or in the
+ * OpenMetrics text format, directly from {@link MicrometerCollector.Child children} rather than from
+ * {@link Collector.MetricFamilySamples}, and without formatting intermediate strings for names, labels and most
+ * values.
+ * <p>
+ * {@link IOException IOExceptions} from the underlying writer are rethrown as {@link UncheckedIOException}.
+ */
+class PrometheusTextFormatWriter implements MicrometerCollector.SampleConsumer {
+    private final Writer writer;
+    private final boolean openMetrics;
+    private final char[] digits = new char[20];
+
+    private String name = "";
+    private String labels = "";
+
+    /**
+     * Where the sample being written goes, and the name and suffix it is written with. In OpenMetrics, samples that don't belong
+     * to the family being written, by their name or their labels, go to families of their own written after it.
+     */
+    private Writer out;
+    private String outName = "";
+    private String outSuffix = "";
+
+    // the OpenMetrics family being written, and the names its samples may have
+    private String familyName = "";
+    private String familyType = "";
+    private String help = "";
+    private String countName = "";
+    private String sumName = "";
+    private String bucketName = "";
+    private String totalName = "";
+
+    /**
+     * An OpenMetrics family is only declared once a sample belongs to it, so that no empty family is declared when
+     * every sample goes to families of their own.
+     */
+    private boolean headerPending;
+    private final Map<String, DeferredFamily> deferredFamilies = new LinkedHashMap<>();
+
+    PrometheusTextFormatWriter(Writer writer) {
+        this(writer, false);
+    }
+
+    /**
+     * @param openMetrics Whether to write the OpenMetrics text format rather than text format 0.0.4.
+     */
+    PrometheusTextFormatWriter(Writer writer, boolean openMetrics) {
+        this.writer = writer;
+        this.out = writer;
+        this.openMetrics = openMetrics;
+    }
+
+    /**
+     * Renders label pairs as they appear between the braces of a sample, with a trailing comma after each pair.
+     */
+    static String labels(List<String> keys, List<String> values) {
+        StringBuilder labels = new StringBuilder();
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                labels.append(keys.get(i)).append("=\"");
+                appendEscaped(labels, values.get(i), true);
+                labels.append("\",");
+            }
+        } catch (IOException e) {
+            // never happens, StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return labels.toString();
+    }
+
+    /**
+     * Escapes backslashes and line feeds, and optionally double quotes as required in label values.
+     */
+    private static void appendEscaped(Appendable out, String s, boolean escapeQuotes) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '"' && escapeQuotes) {
+                out.append("\\\"");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    void family(String name, String help, Collector.Type type) {
+        String typeString = typeString(type);
+        if (openMetrics) {
+            writeDeferredFamilies();
+
+            // OpenMetrics names counter families without the suffix of their samples
+            if (type == Collector.Type.COUNTER && name.endsWith("_total")) {
+                name = name.substring(0, name.length() - "_total".length());
+            } else if (type == Collector.Type.COUNTER || type == Collector.Type.UNTYPED) {
+                typeString = "unknown";
+            }
+
+            this.familyName = name;
+            this.familyType = typeString;
+            this.help = help;
+            this.countName = name + "_count";
+            this.sumName = name + "_sum";
+            this.bucketName = name + "_bucket";
+            this.totalName = name + "_total";
+            this.headerPending = true;
+            return;
+        }
+
+        try {
+            writeHeader(name, help, typeString);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader(String name, String help, String typeString) throws IOException {
+        writer.write("# HELP ");
+        writer.write(name);
+        writer.write(' ');
+        appendEscaped(writer, help, openMetrics);
+        writer.write('\n');
+
+        writer.write("# TYPE ");
+        writer.write(name);
+        writer.write(' ');
+        writer.write(typeString);
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a family of samples collected by any {@link Collector}.
+     */
+    void family(Collector.MetricFamilySamples family) {
+        family(family.name, family.help, family.type);
+        try {
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                String labelKey = sample.labelNames.contains("le") ? "le" :
+                        sample.labelNames.contains("quantile") ? "quantile" : null;
+                route(sample.name, "", labelKey);
+
+                out.write(outName);
+                out.write(outSuffix);
+                if (!sample.labelNames.isEmpty()) {
+                    out.write('{');
+                    for (int i = 0; i < sample.labelNames.size(); i++) {
+                        if (i > 0 && openMetrics) {
+                            out.write(',');
+                        }
+                        out.write(sample.labelNames.get(i));
+                        out.write("=\"");
+                        appendEscaped(out, sample.labelValues.get(i), true);
+                        out.write(openMetrics ? "\"" : "\",");
+                    }
+                    out.write('}');
+                }
+                out.write(' ');
+                writeDouble(sample.value);
+                if (sample.timestampMs != null) {
+                    out.write(' ');
+                    if (openMetrics) {
+                        // OpenMetrics timestamps are in seconds
+                        writeDouble(sample.timestampMs / 1000.0);
+                    } else {
+                        writeLong(sample.timestampMs);
+                    }
+                }
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Terminates an OpenMetrics exposition, and does nothing in text format 0.0.4.
+     */
+    void end() {
+        if (openMetrics) {
+            try {
+                writeDeferredFamilies();
+                writer.write("# EOF\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Picks where a sample named {@code name + suffix} is written. Text format 0.0.4 accepts any sample in any
+     * family. In OpenMetrics, a sample only belongs to a family if its name has one of the suffixes of the family's
+     * type, and it carries the label that goes with that suffix, like {@code le} for the buckets of a histogram.
+     * Other samples, like the active tasks and duration of a long task timer or the quantiles that a histogram
+     * publishes along its buckets, are written to families of their own: the quantiles to a summary named after the
+     * family with a {@code _quantiles} suffix, and anything else to a gauge named after the sample.
+     */
+    private void route(String name, String suffix, @Nullable String labelKey) throws IOException {
+        if (!openMetrics || belongsToFamily(name, suffix, labelKey)) {
+            if (headerPending) {
+                writeHeader(familyName, help, familyType);
+                headerPending = false;
+            }
+            out = writer;
+            outName = name;
+            outSuffix = suffix;
+            return;
+        }
+
+        String deferredName;
+        String deferredType;
+        if ("quantile".equals(labelKey) && isNamed(familyName, name, suffix)) {
+            deferredName = familyName + "_quantiles";
+            deferredType = "summary";
+        } else {
+            deferredName = name + suffix;
+            deferredType = familyType.equals("counter") ? "unknown" : "gauge";
+        }
+
+        DeferredFamily deferred = deferredFamilies.get(deferredName);
+        if (deferred == null) {
+            deferred = new DeferredFamily(deferredType, help);
+            deferredFamilies.put(deferredName, deferred);
+        }
+        out = deferred.samples;
+        outName = deferredName;
+        outSuffix = "";
+    }
+
+    private boolean belongsToFamily(String name, String suffix, @Nullable String labelKey) {
+        switch (familyType) {
+            case "counter":
+                return labelKey == null && isNamed(totalName, name, suffix);
+            case "summary":
+                if (isNamed(familyName, name, suffix)) {
+                    return "quantile".equals(labelKey);
+                }
+                return labelKey == null && (isNamed(countName, name, suffix) || isNamed(sumName, name, suffix));
+            case "histogram":
+                if (isNamed(bucketName, name, suffix)) {
+                    return "le".equals(labelKey);
+                }
+                return labelKey == null && (isNamed(countName, name, suffix) || isNamed(sumName, name, suffix));
+            default:
+                return labelKey == null && isNamed(familyName, name, suffix);
+        }
+    }
+
+    /**
+     * @return Whether {@code name + suffix} equals {@code expected}, without concatenating them.
+     */
+    private static boolean isNamed(String expected, String name, String suffix) {
+        return expected.length() == name.length() + suffix.length() && expected.startsWith(name) &&
+                expected.endsWith(suffix);
+    }
+
+    private void writeDeferredFamilies() {
+        headerPending = false;
+        if (deferredFamilies.isEmpty()) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, DeferredFamily> deferred : deferredFamilies.entrySet()) {
+                writeHeader(deferred.getKey(), deferred.getValue().help, deferred.getValue().type);
+                writer.write(deferred.getValue().samples.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deferredFamilies.clear();
+    }
+
+    /**
+     * Sets the name and labels of the samples that follow.
+     *
+     * @param name   The name that sample suffixes are appended to.
+     * @param labels Labels rendered by {@link #labels(List, List)}.
+     */
+    void series(String name, String labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+
+    @Override
+    public void sample(String suffix, double value) {
+        try {
+            route(name, suffix, null);
+            out.write(outName);
+            out.write(outSuffix);
+            if (!labels.isEmpty()) {
+                out.write('{');
+                // OpenMetrics doesn't allow a trailing comma after the last label
+                out.write(labels, 0, openMetrics ? labels.length() - 1 : labels.length());
+                out.write('}');
+            }
+            out.write(' ');
+            writeDouble(value);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void sample(String suffix, String labelKey, String labelValue, double value) {
+        try {
+            writeNameAndLabels(suffix, labelKey);
+            appendEscaped(out, labelValue, true);
+            writeValue(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void sample(String suffix, String labelKey, double labelValue, double value) {
+        try {
+            writeNameAndLabels(suffix, labelKey);
+            writeDouble(labelValue);
+            writeValue(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeNameAndLabels(String suffix, String labelKey) throws IOException {
+        route(name, suffix, labelKey);
+        out.write(outName);
+        out.write(outSuffix);
+        out.write('{');
+        out.write(labels);
+        out.write(labelKey);
+        out.write("=\"");
+    }
+
+    private void writeValue(double value) throws IOException {
+        out.write(openMetrics ? "\"} " : "\",} ");
+        writeDouble(value);
+        out.write('\n');
+    }
+
+    /**
+     * Equivalent to writing {@link Collector#doubleToGoString(double)}, but integral values that
+     * {@link Double#toString(double)} renders without an exponent are written without allocating a string.
+     */
+    private void writeDouble(double d) throws IOException {
+        if (d == Double.POSITIVE_INFINITY) {
+            out.write("+Inf");
+        } else if (d == Double.NEGATIVE_INFINITY) {
+            out.write("-Inf");
+        } else if (Double.isNaN(d)) {
+            out.write("NaN");
+        } else if (d == (long) d && Math.abs(d) < 1e7 && (d != 0 || 1 / d > 0)) {
+            writeLong((long) d);
+            out.write(".0");
+        } else {
+            out.write(Double.toString(d));
+        }
+    }
+
+    private void writeLong(long l) throws IOException {
+        if (l < 0) {
+            out.write('-');
+            l = -l;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + l % 10);
+            l /= 10;
+        } while (l > 0);
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    private static String typeString(Collector.Type type) {
+        switch (type) {
+            case GAUGE:
+                return "gauge";
+            case COUNTER:
+                return "counter";
+            case SUMMARY:
+                return "summary";
+            case HISTOGRAM:
+                return "histogram";
+            default:
+                return "untyped";
+        }
+    }
+
+    private static class DeferredFamily {
+        final String type;
+        final String help;
+        final StringWriter samples = new StringWriter();
+
+        DeferredFamily(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
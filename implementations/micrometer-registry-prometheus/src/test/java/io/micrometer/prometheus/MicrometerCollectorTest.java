@@ -20,10 +20,12 @@ import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.prometheus.client.Collector;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collections;
-import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -37,11 +39,8 @@ class MicrometerCollectorTest {
         MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.dot, PrometheusConfig.DEFAULT);
 
         for (Integer i = 0; i < 20_000; i++) {
-            Collector.MetricFamilySamples.Sample sample = new Collector.MetricFamilySamples.Sample("my_counter",
-                    singletonList("k"), singletonList(i.toString()), 1.0);
-
-            collector.add(Collections.emptyList(), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                    "my_counter", sample)));
+            String value = i.toString();
+            collector.add(Collections.emptyList(), Collector.Type.COUNTER, samples -> samples.sample("", "k", value, 1.0));
         }
 
         // Threw StackOverflowException because of too many nested streams originally
@@ -53,16 +52,35 @@ class MicrometerCollectorTest {
         Meter.Id id = Metrics.counter("my.counter").getId();
         MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.dot, PrometheusConfig.DEFAULT);
 
-        Collector.MetricFamilySamples.Sample sample = new Collector.MetricFamilySamples.Sample("my_counter",
-                asList("k", "k2"), asList("v1", "v2"), 1.0);
-        Collector.MetricFamilySamples.Sample sample2 = new Collector.MetricFamilySamples.Sample("my_counter",
-                asList("k", "k2"), asList("v2", "v1"), 1.0);
-
-        collector.add(asList("v1", "v2"), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                "my_counter", sample)));
-        collector.add(asList("v2", "v1"), (conventionName, tagKeys) -> Stream.of(new MicrometerCollector.Family(Collector.Type.COUNTER,
-                "my_counter", sample2)));
+        collector.add(asList("v1", "v2"), Collector.Type.COUNTER, samples -> samples.sample("", 1.0));
+        collector.add(asList("v2", "v1"), Collector.Type.COUNTER, samples -> samples.sample("", 1.0));
 
         assertThat(collector.collect().get(0).samples).hasSize(2);
     }
+
+    @Test
+    void writeMatchesTextFormatOfCollectedSamples() throws IOException {
+        Meter.Id id = Metrics.counter("my.counter", "k", "v").getId();
+        MicrometerCollector collector = new MicrometerCollector(id, NamingConvention.snakeCase, PrometheusConfig.DEFAULT);
+
+        collector.add(singletonList("a\\b\"c\nd"), Collector.Type.HISTOGRAM, samples -> {
+            samples.sample("", "quantile", 0.95, 1.5);
+            samples.sample("_bucket", "le", 100.0, 3);
+            samples.sample("_bucket", "le", Double.POSITIVE_INFINITY, 4);
+            samples.sample("_count", 4);
+            samples.sample("_sum", 1e-8);
+            samples.sample("_sum", -0.0);
+            samples.sample("_sum", -12345678);
+            samples.sample("_sum", Double.NaN);
+        }, () -> 5.0);
+        collector.add(singletonList("v2"), Collector.Type.HISTOGRAM, samples -> samples.sample("", "statistic", "max", 2), () -> 6.0);
+
+        StringWriter collected = new StringWriter();
+        TextFormat.write004(collected, Collections.enumeration(collector.collect()));
+
+        StringWriter written = new StringWriter();
+        collector.write(new PrometheusTextFormatWriter(written));
+
+        assertThat(written.toString()).isEqualTo(collected.toString());
+    }
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.prometheus;
+
+import org.junit.jupiter.api.Test;
+
+import static io.micrometer.prometheus.PrometheusExpositionFormat.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrometheusExpositionFormatTest {
+
+    @Test
+    void defaultsToTextFormat() {
+        assertThat(fromAcceptHeader(null)).isEqualTo(TEXT_004);
+        assertThat(fromAcceptHeader("*/*")).isEqualTo(TEXT_004);
+        assertThat(fromAcceptHeader("application/json")).isEqualTo(TEXT_004);
+    }
+
+    @Test
+    void prometheusServerAcceptHeader() {
+        assertThat(fromAcceptHeader("application/openmetrics-text; version=0.0.1,text/plain;version=0.0.4;q=0.5,*/*;q=0.1"))
+                .isEqualTo(OPENMETRICS_TEXT);
+        assertThat(fromAcceptHeader("application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited;q=0.7," +
+                "text/plain;version=0.0.4;q=0.3,*/*;q=0.1"))
+                .isEqualTo(PROTOBUF_DELIMITED);
+    }
+
+    @Test
+    void highestQualityWins() {
+        assertThat(fromAcceptHeader("application/openmetrics-text;q=0.2,text/plain;q=0.9")).isEqualTo(TEXT_004);
+        assertThat(fromAcceptHeader("text/plain;q=0.2, application/openmetrics-text")).isEqualTo(OPENMETRICS_TEXT);
+    }
+
+    @Test
+    void protobufRequiresDelimitedMetricFamilies() {
+        assertThat(fromAcceptHeader("application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=text"))
+                .isEqualTo(TEXT_004);
+        assertThat(fromAcceptHeader("application/vnd.google.protobuf;proto=other.Message;encoding=delimited"))
+                .isEqualTo(TEXT_004);
+    }
+}
@@ -23,16 +23,29 @@ import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
 import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.assertj.core.api.Condition;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static io.micrometer.core.instrument.MockClock.clock;
 import static java.util.Collections.emptyList;
@@ -429,4 +442,250 @@ class PrometheusMeterRegistryTest {
         assertThat(scrape).contains("my_timer_seconds_sum 1.0\n");
         assertThat(scrape).contains("my_timer_seconds_max 1.0\n");
     }
+
+    @Test
+    void scrapeWritesSameSamplesAsTextFormat() throws IOException {
+        Counter.builder("my.counter").tags("k", "v\"quoted\"").description("a \\ counter").register(registry).increment();
+        Gauge.builder("my.gauge", () -> 1e-5).register(registry);
+        Timer.builder("my.timer").publishPercentiles(0.5, 0.95).publishPercentileHistogram().register(registry)
+                .record(10, TimeUnit.MILLISECONDS);
+        DistributionSummary.builder("my.summary").sla(1, 10).register(registry).record(5);
+        LongTaskTimer.builder("my.long.task").register(registry).start();
+        registry.more().counter("my.function.counter", emptyList(), 1, n -> 3);
+        Meter.builder("my.custom", Meter.Type.OTHER, Collections.singletonList(new Measurement(() -> 2.0, Statistic.VALUE)))
+                .register(registry);
+
+        StringWriter expected = new StringWriter();
+        TextFormat.write004(expected, prometheusRegistry.metricFamilySamples());
+
+        ByteArrayOutputStream scraped = new ByteArrayOutputStream();
+        registry.scrape(scraped);
+
+        assertThat(scraped.toString("UTF-8").split("\n")).containsExactlyInAnyOrder(expected.toString().split("\n"));
+        assertThat(registry.scrape()).isEqualTo(scraped.toString("UTF-8"));
+    }
+
+    @Test
+    void scrapeIncludesOtherCollectorsOfSameCollectorRegistryOnce() {
+        registry.counter("my.counter").increment();
+        io.prometheus.client.Counter.build("other_counter", "another counter").register(prometheusRegistry).inc();
+
+        String scraped = registry.scrape();
+        assertThat(scraped).contains("other_counter 1.0\n");
+        assertThat(scraped.split("# TYPE my_counter_total counter", -1)).hasSize(2);
+        assertThat(scraped.split("# TYPE other_counter counter", -1)).hasSize(2);
+
+        // Micrometer's collectors still produce samples when the CollectorRegistry is scraped directly
+        assertThat(prometheusRegistry.getSampleValue("my_counter_total")).isEqualTo(1.0);
+    }
+
+    @Test
+    void scrapeOpenMetrics() throws IOException {
+        registry.counter("my.counter", "k", "v").increment();
+        registry.timer("my.timer").record(1, TimeUnit.SECONDS);
+        io.prometheus.client.Counter.build("other_counter", "another counter").register(prometheusRegistry).inc();
+
+        Map<String, OpenMetricsFamily> families = scrapeOpenMetricsFamilies();
+
+        assertThat(families.get("my_counter").type).isEqualTo("counter");
+        assertThat(families.get("my_counter").samples).containsExactly("my_counter_total{k=\"v\"} 1.0");
+        assertThat(families.get("my_timer_seconds").type).isEqualTo("summary");
+        assertThat(families.get("my_timer_seconds").samples).contains("my_timer_seconds_count 1.0", "my_timer_seconds_sum 1.0");
+        assertThat(families.get("my_timer_seconds_max").type).isEqualTo("gauge");
+        assertThat(families.get("other_counter").type).isEqualTo("unknown");
+        assertThat(families.get("other_counter").samples).containsExactly("other_counter 1.0");
+    }
+
+    @Test
+    void scrapeOpenMetricsOfLongTaskTimers() throws IOException {
+        LongTaskTimer.builder("my.ltt").tag("k", "v").register(registry).start();
+        clock(registry).add(1, TimeUnit.SECONDS);
+
+        Map<String, OpenMetricsFamily> families = scrapeOpenMetricsFamilies();
+
+        assertThat(families.get("my_ltt_seconds")).isNull();
+        assertThat(families.get("my_ltt_seconds_active_count").type).isEqualTo("gauge");
+        assertThat(families.get("my_ltt_seconds_active_count").samples).containsExactly("my_ltt_seconds_active_count{k=\"v\"} 1.0");
+        assertThat(families.get("my_ltt_seconds_duration_sum").type).isEqualTo("gauge");
+        assertThat(families.get("my_ltt_seconds_duration_sum").samples).containsExactly("my_ltt_seconds_duration_sum{k=\"v\"} 1.0");
+    }
+
+    @Test
+    void scrapeOpenMetricsOfHistogramsWithPercentiles() throws IOException {
+        Timer timer = Timer.builder("my.timer")
+                .publishPercentiles(0.5)
+                .publishPercentileHistogram()
+                .register(registry);
+        timer.record(1, TimeUnit.SECONDS);
+        DistributionSummary.builder("my.summary").publishPercentiles(0.5, 0.9).register(registry).record(3);
+
+        Map<String, OpenMetricsFamily> families = scrapeOpenMetricsFamilies();
+
+        assertThat(families.get("my_timer_seconds").type).isEqualTo("histogram");
+        assertThat(families.get("my_timer_seconds").samples).allMatch(sample -> !sample.contains("quantile"));
+        assertThat(families.get("my_timer_seconds_quantiles").type).isEqualTo("summary");
+        assertThat(families.get("my_timer_seconds_quantiles").samples).hasSize(1)
+                .allMatch(sample -> sample.startsWith("my_timer_seconds_quantiles{quantile=\"0.5\"} "));
+
+        assertThat(families.get("my_summary").type).isEqualTo("summary");
+        assertThat(families.get("my_summary").samples).contains("my_summary{quantile=\"0.5\"} 3.0", "my_summary_count 1.0");
+        assertThat(families.get("my_summary_quantiles")).isNull();
+    }
+
+    private Map<String, OpenMetricsFamily> scrapeOpenMetricsFamilies() throws IOException {
+        ByteArrayOutputStream scraped = new ByteArrayOutputStream();
+        registry.scrape(scraped, PrometheusExpositionFormat.OPENMETRICS_TEXT);
+        return parseOpenMetrics(scraped.toString("UTF-8"));
+    }
+
+    /**
+     * Parses an OpenMetrics text exposition, failing on anything that breaks the rules of the format this registry is
+     * expected to follow: every sample follows the {@code TYPE} of its family and has a name and labels allowed by
+     * that type, families aren't interleaved or repeated, and the exposition ends with {@code # EOF}.
+     */
+    private static Map<String, OpenMetricsFamily> parseOpenMetrics(String exposition) {
+        Pattern samplePattern = Pattern.compile("([a-zA-Z_:][a-zA-Z0-9_:]*)(\\{(.*)})? (\\S+)( \\S+)?");
+        Pattern labelPattern = Pattern.compile("([a-zA-Z_][a-zA-Z0-9_]*)=\"((?:[^\"\\\\]|\\\\.)*)\"(,|$)");
+
+        assertThat(exposition).endsWith("# EOF\n");
+        Map<String, OpenMetricsFamily> families = new LinkedHashMap<>();
+        OpenMetricsFamily family = null;
+        String[] lines = exposition.split("\n");
+        for (int i = 0; i < lines.length - 1; i++) {
+            String line = lines[i];
+            if (line.startsWith("# HELP ")) {
+                continue;
+            }
+            if (line.startsWith("# TYPE ")) {
+                String[] type = line.split(" ");
+                assertThat(type).as(line).hasSize(4);
+                assertThat(families).as("family %s is repeated", type[2]).doesNotContainKey(type[2]);
+                assertThat(type[3]).isIn("counter", "gauge", "summary", "histogram", "unknown");
+                family = new OpenMetricsFamily(type[3]);
+                families.put(type[2], family);
+                continue;
+            }
+
+            Matcher sample = samplePattern.matcher(line);
+            assertThat(sample.matches()).as("sample %s", line).isTrue();
+            assertThat(family).as("sample %s has no family", line).isNotNull();
+            String familyName = families.keySet().stream().reduce((first, last) -> last).get();
+
+            Map<String, String> labels = new HashMap<>();
+            if (sample.group(3) != null) {
+                Matcher label = labelPattern.matcher(sample.group(3));
+                int end = 0;
+                while (label.find() && label.start() == end) {
+                    labels.put(label.group(1), label.group(2));
+                    end = label.end();
+                }
+                assertThat(end).as("labels of %s", line).isEqualTo(sample.group(3).length());
+                assertThat(sample.group(3)).doesNotEndWith(",");
+            }
+            Double.parseDouble(sample.group(4).replace("Inf", "Infinity"));
+
+            String name = sample.group(1);
+            switch (family.type) {
+                case "counter":
+                    assertThat(name).as(line).isIn(familyName + "_total", familyName + "_created");
+                    break;
+                case "summary":
+                    assertThat(name).as(line).isIn(familyName, familyName + "_count", familyName + "_sum");
+                    assertThat(labels.containsKey("quantile")).as(line).isEqualTo(name.equals(familyName));
+                    break;
+                case "histogram":
+                    assertThat(name).as(line).isIn(familyName + "_bucket", familyName + "_count", familyName + "_sum");
+                    assertThat(labels.containsKey("le")).as(line).isEqualTo(name.equals(familyName + "_bucket"));
+                    assertThat(labels).as(line).doesNotContainKey("quantile");
+                    break;
+                default:
+                    assertThat(name).as(line).isEqualTo(familyName);
+            }
+            family.samples.add(line);
+        }
+        return families;
+    }
+
+    private static class OpenMetricsFamily {
+        final String type;
+        final List<String> samples = new ArrayList<>();
+
+        OpenMetricsFamily(String type) {
+            this.type = type;
+        }
+    }
+
+    @Test
+    void scrapeProtobuf() throws IOException {
+        registry.counter("my.counter", "k", "v").increment(3);
+        registry.timer("my.timer").record(1, TimeUnit.SECONDS);
+
+        assertThat(scrapeProtobufFamilyTypes())
+                .containsEntry("my_counter_total", 0L)
+                .containsEntry("my_timer_seconds", 2L)
+                .containsEntry("my_timer_seconds_max", 1L);
+    }
+
+    @Test
+    void scrapeProtobufOfHistogramsWithPercentiles() throws IOException {
+        Timer.builder("my.timer")
+                .publishPercentiles(0.5)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(1, TimeUnit.SECONDS);
+
+        assertThat(scrapeProtobufFamilyTypes())
+                .containsEntry("my_timer_seconds", 4L)
+                .containsEntry("my_timer_seconds_quantiles", 2L)
+                .containsEntry("my_timer_seconds_max", 1L)
+                .hasSize(3);
+    }
+
+    /**
+     * Decodes the name (field 1) and type (field 3) of each length-delimited MetricFamily of a scrape, failing if a
+     * name is repeated.
+     */
+    private Map<String, Long> scrapeProtobufFamilyTypes() throws IOException {
+        ByteArrayOutputStream scraped = new ByteArrayOutputStream();
+        registry.scrape(scraped, PrometheusExpositionFormat.PROTOBUF_DELIMITED);
+
+        Map<String, Long> typesByName = new HashMap<>();
+        ByteArrayInputStream in = new ByteArrayInputStream(scraped.toByteArray());
+        while (in.available() > 0) {
+            byte[] family = new byte[(int) readVarint(in)];
+            assertThat(in.read(family, 0, family.length)).isEqualTo(family.length);
+
+            ByteArrayInputStream fields = new ByteArrayInputStream(family);
+            String name = null;
+            long type = -1;
+            while (fields.available() > 0) {
+                long tag = readVarint(fields);
+                if ((tag & 7) == 0) {
+                    long value = readVarint(fields);
+                    if (tag >>> 3 == 3) {
+                        type = value;
+                    }
+                } else {
+                    byte[] bytes = new byte[(int) readVarint(fields)];
+                    fields.read(bytes, 0, bytes.length);
+                    if (tag >>> 3 == 1) {
+                        name = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            assertThat(typesByName.put(name, type)).as("family %s is repeated", name).isNull();
+        }
+        return typesByName;
+    }
+
+    private static long readVarint(ByteArrayInputStream in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
 }
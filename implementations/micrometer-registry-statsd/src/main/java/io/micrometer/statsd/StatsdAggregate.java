@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd;
+
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.statsd.internal.StatsdLineSender;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-aggregates the samples of a timer or distribution summary between polls, when
+ * {@link StatsdConfig#clientSideAggregation() client-side aggregation} is enabled, and sends them as a count, a total
+ * and a max line per poll rather than one line per sample.
+ */
+class StatsdAggregate {
+    private final Statistic totalStatistic;
+
+    /**
+     * The bits of the largest sample since the last poll.
+     */
+    private final AtomicLong max = new AtomicLong(Double.doubleToLongBits(0));
+
+    // only accessed by the polling thread
+    private long sentCount;
+    private long sentTotal;
+
+    StatsdAggregate(Statistic totalStatistic) {
+        this.totalStatistic = totalStatistic;
+    }
+
+    void record(double amount) {
+        long bits = Double.doubleToLongBits(amount);
+        long current;
+        while (amount > Double.longBitsToDouble(current = max.get())) {
+            if (max.compareAndSet(current, bits)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends what was recorded since the last poll. Counts and totals are sent as whole numbers, and any fraction of
+     * a total is carried over to later polls.
+     *
+     * @param count The cumulative count of samples.
+     * @param total The cumulative total of samples.
+     */
+    void poll(StatsdLineSender lineSender, StatsdLineBuilder lineBuilder, long count, double total) {
+        if (count <= sentCount) {
+            return;
+        }
+
+        lineSender.count(lineBuilder, count - sentCount, Statistic.COUNT);
+        sentCount = count;
+
+        long wholeTotal = (long) total;
+        if (wholeTotal > sentTotal) {
+            lineSender.count(lineBuilder, wholeTotal - sentTotal, totalStatistic);
+            sentTotal = wholeTotal;
+        }
+
+        lineSender.gauge(lineBuilder, Double.longBitsToDouble(max.getAndSet(Double.doubleToLongBits(0))), Statistic.MAX);
+    }
+}
@@ -64,7 +64,7 @@ public interface StatsdConfig extends MeterRegistryConfig {
     }
 
     /**
-     * @return The host name of the StatsD agent.
+     * @return The host name of the StatsD agent, or the path of its socket for {@link StatsdProtocol#UDS_STREAM}.
      */
     default String host() {
         String v = get(prefix() + ".host");
@@ -80,6 +80,8 @@ public interface StatsdConfig extends MeterRegistryConfig {
     }
 
     /**
+     * {@link StatsdProtocol#UDS_STREAM} requires Java 16 or later, on earlier versions the registry fails to start.
+     *
      * @return the protocol of the connection to the agent
      * @since 1.2.0
      */
@@ -102,15 +104,19 @@ public interface StatsdConfig extends MeterRegistryConfig {
      * 1. Fast Ethernet (1432) - This is most likely for Intranets.
      * 2. Gigabit Ethernet (8932) - Jumbo frames can make use of this feature much more efficient.
      * 3. Commodity Internet (512) - If you are routing over the internet a value in this range will be reasonable. You might be able to go higher, but you are at the mercy of all the hops in your route.
+     * Unix domain sockets don't go through the network, so {@link StatsdProtocol#UDS_STREAM} defaults to 8192.
      *
      * @return The max length of the payload.
      */
     default int maxPacketLength() {
         String v = get(prefix() + ".maxPacketLength");
+        if (v != null) {
+            return Integer.parseInt(v);
+        }
 
         // 1400 is the value that Datadog has chosen in their client. Seems to work well
-        // for most cases.
-        return (v == null) ? 1400 : Integer.parseInt(v);
+        // for most cases. 8192 is the default buffer size of DogStatsD's Unix domain sockets.
+        return protocol() == StatsdProtocol.UDS_STREAM ? 8192 : 1400;
     }
 
     /**
@@ -162,4 +168,60 @@ public interface StatsdConfig extends MeterRegistryConfig {
         String v = get(prefix() + ".buffered");
         return v == null || Boolean.valueOf(v);
     }
+
+    /**
+     * @return {@code true} if lines should be encoded straight into byte buffers and sent to the agent through an NIO
+     * datagram channel, rather than rendered as strings and sent through a reactive pipeline. This avoids allocating
+     * per recorded sample. Lines wait in a bounded queue of {@link #queueCapacity()} lines until a single sender
+     * thread encodes and sends them. Only applies to the UDP protocol, {@link StatsdProtocol#UDS_STREAM} always uses
+     * this sender. Default is {@code false}.
+     * @since 1.3.17
+     */
+    default boolean nioSender() {
+        String v = get(prefix() + ".nioSender");
+        return v != null && Boolean.valueOf(v);
+    }
+
+    /**
+     * @return The number of lines that can wait to be sent by the {@link #nioSender() NIO sender}, rounded up to a
+     * power of two. Default is 16384.
+     * @since 1.3.17
+     */
+    default int queueCapacity() {
+        String v = get(prefix() + ".queueCapacity");
+        return v == null ? 16384 : Integer.parseInt(v);
+    }
+
+    /**
+     * @return What to do with lines recorded while the queue of the {@link #nioSender() NIO sender} is full. Lines
+     * that are dropped are counted by the {@code statsd.lines.dropped} meter. Default is
+     * {@link StatsdOverflowPolicy#DROP_NEWEST}.
+     * @since 1.3.17
+     */
+    default StatsdOverflowPolicy overflowPolicy() {
+        String v = get(prefix() + ".overflowPolicy");
+
+        if (v == null)
+            return StatsdOverflowPolicy.DROP_NEWEST;
+
+        for (StatsdOverflowPolicy policy : StatsdOverflowPolicy.values()) {
+            if (policy.toString().equalsIgnoreCase(v))
+                return policy;
+        }
+
+        throw new IllegalArgumentException("Unrecognized statsd overflow policy '" + v + "' (check property " + prefix() + ".overflowPolicy)");
+    }
+
+    /**
+     * @return {@code true} if counters, timers and distribution summaries should be aggregated in the client and sent
+     * once per {@link #pollingFrequency()}, rather than sent as a line per increment or sample. Counters send the sum
+     * of their increments, and timers and distribution summaries send the count, total and max of their samples, each
+     * tagged with its statistic. This cuts the number of lines sent to the agent for frequently updated meters, at
+     * the cost of the agent no longer seeing individual samples. Default is {@code false}.
+     * @since 1.3.17
+     */
+    default boolean clientSideAggregation() {
+        String v = get(prefix() + ".clientSideAggregation");
+        return v != null && Boolean.valueOf(v);
+    }
 }
@@ -18,30 +18,57 @@ package io.micrometer.statsd;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.util.MeterEquivalence;
-import org.reactivestreams.Subscriber;
+import io.micrometer.statsd.internal.StatsdLineSender;
 
 import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * @author Jon Schneider
  */
-public class StatsdCounter extends AbstractMeter implements Counter {
+public class StatsdCounter extends AbstractMeter implements Counter, StatsdPollable {
     private final StatsdLineBuilder lineBuilder;
-    private final Subscriber<String> subscriber;
+    private final StatsdLineSender lineSender;
     private DoubleAdder count = new DoubleAdder();
     private volatile boolean shutdown = false;
 
-    StatsdCounter(Id id, StatsdLineBuilder lineBuilder, Subscriber<String> subscriber) {
+    /**
+     * Whether increments are summed up and sent once per poll rather than one line each.
+     */
+    private final boolean aggregate;
+
+    // only accessed by the polling thread
+    private long sentCount;
+
+    StatsdCounter(Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender) {
+        this(id, lineBuilder, lineSender, false);
+    }
+
+    StatsdCounter(Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, boolean aggregate) {
         super(id);
         this.lineBuilder = lineBuilder;
-        this.subscriber = subscriber;
+        this.lineSender = lineSender;
+        this.aggregate = aggregate;
     }
 
     @Override
     public void increment(double amount) {
         if (!shutdown && amount > 0) {
             count.add(amount);
-            subscriber.onNext(lineBuilder.count((long) amount));
+            if (!aggregate) {
+                lineSender.count(lineBuilder, (long) amount);
+            }
+        }
+    }
+
+    @Override
+    public void poll() {
+        if (aggregate) {
+            // fractions of the count are carried over to later polls
+            long count = (long) count();
+            if (count > sentCount) {
+                lineSender.count(lineBuilder, count - sentCount);
+                sentCount = count;
+            }
         }
     }
 
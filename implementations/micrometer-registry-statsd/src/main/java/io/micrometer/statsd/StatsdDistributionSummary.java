@@ -18,29 +18,43 @@ package io.micrometer.statsd;
 import io.micrometer.core.instrument.AbstractDistributionSummary;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Statistic;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.TimeWindowMax;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.lang.Nullable;
-import org.reactivestreams.Subscriber;
+import io.micrometer.statsd.internal.StatsdLineSender;
 
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 
-public class StatsdDistributionSummary extends AbstractDistributionSummary {
+public class StatsdDistributionSummary extends AbstractDistributionSummary implements StatsdPollable {
     private final LongAdder count = new LongAdder();
     private final DoubleAdder amount = new DoubleAdder();
     private final TimeWindowMax max;
     private final StatsdLineBuilder lineBuilder;
-    private final Subscriber<String> subscriber;
+    private final StatsdLineSender lineSender;
     private volatile boolean shutdown = false;
 
-    StatsdDistributionSummary(Meter.Id id, StatsdLineBuilder lineBuilder, Subscriber<String> subscriber, Clock clock,
+    @Nullable
+    private final StatsdAggregate aggregate;
+
+    StatsdDistributionSummary(Meter.Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, Clock clock,
                               DistributionStatisticConfig distributionStatisticConfig, double scale) {
+        this(id, lineBuilder, lineSender, clock, distributionStatisticConfig, scale, false);
+    }
+
+    /**
+     * @param aggregate Whether to send the count, total and max of the amounts recorded between polls, rather than a
+     *                  line per amount.
+     */
+    StatsdDistributionSummary(Meter.Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, Clock clock,
+                              DistributionStatisticConfig distributionStatisticConfig, double scale, boolean aggregate) {
         super(id, clock, distributionStatisticConfig, scale, false);
         this.max = new TimeWindowMax(clock, distributionStatisticConfig);
         this.lineBuilder = lineBuilder;
-        this.subscriber = subscriber;
+        this.lineSender = lineSender;
+        this.aggregate = aggregate ? new StatsdAggregate(Statistic.TOTAL) : null;
     }
 
     @Override
@@ -49,7 +63,18 @@ public class StatsdDistributionSummary extends AbstractDistributionSummary {
             count.increment();
             this.amount.add(amount);
             max.record(amount);
-            subscriber.onNext(lineBuilder.histogram(amount));
+            if (aggregate != null) {
+                aggregate.record(amount);
+            } else {
+                lineSender.histogram(lineBuilder, amount);
+            }
+        }
+    }
+
+    @Override
+    public void poll() {
+        if (aggregate != null) {
+            aggregate.poll(lineSender, lineBuilder, count(), totalAmount());
         }
     }
 
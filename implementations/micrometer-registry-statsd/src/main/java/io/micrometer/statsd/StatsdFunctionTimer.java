@@ -15,8 +15,9 @@
  */
 package io.micrometer.statsd;
 
+import io.micrometer.core.instrument.Statistic;
 import io.micrometer.core.instrument.cumulative.CumulativeFunctionTimer;
-import org.reactivestreams.Subscriber;
+import io.micrometer.statsd.internal.StatsdLineSender;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -25,16 +26,27 @@ import java.util.function.ToLongFunction;
 
 public class StatsdFunctionTimer<T> extends CumulativeFunctionTimer<T> implements StatsdPollable {
     private final StatsdLineBuilder lineBuilder;
-    private final Subscriber<String> subscriber;
+    private final StatsdLineSender lineSender;
     private final AtomicReference<Long> lastCount = new AtomicReference<>(0L);
     private final AtomicReference<Double> lastTime = new AtomicReference<>(0.0);
+    private final boolean aggregate;
 
     StatsdFunctionTimer(Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction,
                         TimeUnit totalTimeFunctionUnit, TimeUnit baseTimeUnit,
-                        StatsdLineBuilder lineBuilder, Subscriber<String> subscriber) {
+                        StatsdLineBuilder lineBuilder, StatsdLineSender lineSender) {
+        this(id, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, baseTimeUnit, lineBuilder, lineSender, false);
+    }
+
+    /**
+     * @param aggregate Whether to send the count and total time of new timings, rather than a line per new timing.
+     */
+    StatsdFunctionTimer(Id id, T obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction,
+                        TimeUnit totalTimeFunctionUnit, TimeUnit baseTimeUnit,
+                        StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, boolean aggregate) {
         super(id, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit, baseTimeUnit);
         this.lineBuilder = lineBuilder;
-        this.subscriber = subscriber;
+        this.lineSender = lineSender;
+        this.aggregate = aggregate;
     }
 
     @Override
@@ -48,12 +60,23 @@ public class StatsdFunctionTimer<T> extends CumulativeFunctionTimer<T> implement
                     double totalTime = totalTime(TimeUnit.MILLISECONDS);
                     double newTimingsSum = totalTime - prevTime;
 
+                    if (aggregate) {
+                        lineSender.count(lineBuilder, newTimingsCount, Statistic.COUNT);
+
+                        // whole milliseconds up to the previous total time have already been sent
+                        long newWholeTime = (long) totalTime - prevTime.longValue();
+                        if (newWholeTime > 0) {
+                            lineSender.count(lineBuilder, newWholeTime, Statistic.TOTAL_TIME);
+                        }
+                        return totalTime;
+                    }
+
                     // We can't know what the individual timing samples were, so we approximate each one
                     // by calculating the average of the sum of all new timings seen by the number of new timing
                     // occurrences.
                     double timingAverage = newTimingsSum / newTimingsCount;
                     for (int i = 0; i < newTimingsCount; i++) {
-                        subscriber.onNext(lineBuilder.timing(timingAverage));
+                        lineSender.timing(lineBuilder, timingAverage);
                     }
 
                     return totalTime;
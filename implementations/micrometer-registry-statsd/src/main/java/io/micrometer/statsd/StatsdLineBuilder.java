@@ -18,6 +18,9 @@ package io.micrometer.statsd;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Statistic;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * A StatsD format serializer for an individual {@link Meter}. There is an instance per
  * meter so that name normalization can be cached early and kept for subsequent writes without
@@ -41,4 +44,55 @@ public interface StatsdLineBuilder {
     String histogram(double amount);
 
     String timing(double timeMs);
+
+    /**
+     * Writes the same line as {@link #count(long, Statistic)}, encoded in UTF-8, at the buffer's position.
+     * Implementations may override this and the other {@link ByteBuffer} variants to avoid building a string per line.
+     *
+     * @param amount The amount to count.
+     * @param stat   The statistic the amount is for.
+     * @param buffer The buffer to write to.
+     * @throws java.nio.BufferOverflowException if the line doesn't fit, in which case the buffer's position is undefined
+     * @since 1.3.17
+     */
+    default void count(long amount, Statistic stat, ByteBuffer buffer) {
+        buffer.put(count(amount, stat).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the same line as {@link #gauge(double, Statistic)}, encoded in UTF-8, at the buffer's position.
+     *
+     * @param amount The value of the gauge.
+     * @param stat   The statistic the value is for.
+     * @param buffer The buffer to write to.
+     * @throws java.nio.BufferOverflowException if the line doesn't fit, in which case the buffer's position is undefined
+     * @since 1.3.17
+     */
+    default void gauge(double amount, Statistic stat, ByteBuffer buffer) {
+        buffer.put(gauge(amount, stat).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the same line as {@link #histogram(double)}, encoded in UTF-8, at the buffer's position.
+     *
+     * @param amount The amount to record.
+     * @param buffer The buffer to write to.
+     * @throws java.nio.BufferOverflowException if the line doesn't fit, in which case the buffer's position is undefined
+     * @since 1.3.17
+     */
+    default void histogram(double amount, ByteBuffer buffer) {
+        buffer.put(histogram(amount).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the same line as {@link #timing(double)}, encoded in UTF-8, at the buffer's position.
+     *
+     * @param timeMs The time to record, in milliseconds.
+     * @param buffer The buffer to write to.
+     * @throws java.nio.BufferOverflowException if the line doesn't fit, in which case the buffer's position is undefined
+     * @since 1.3.17
+     */
+    default void timing(double timeMs, ByteBuffer buffer) {
+        buffer.put(timing(timeMs).getBytes(StandardCharsets.UTF_8));
+    }
 }
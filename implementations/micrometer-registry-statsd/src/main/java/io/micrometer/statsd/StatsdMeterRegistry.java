@@ -24,6 +24,8 @@ import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.internal.DefaultMeter;
 import io.micrometer.core.instrument.util.HierarchicalNameMapper;
 import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.InternalLogger;
+import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
 import io.micrometer.statsd.internal.*;
 import org.reactivestreams.Processor;
 import org.reactivestreams.Publisher;
@@ -38,7 +40,10 @@ import reactor.netty.udp.UdpClient;
 import reactor.netty.tcp.TcpClient;
 import reactor.util.concurrent.Queues;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -71,12 +76,14 @@ import java.util.stream.LongStream;
 public class StatsdMeterRegistry extends MeterRegistry {
 
     private static final Processor<String, String> NOOP_PROCESSOR = new NoopProcessor();
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(StatsdMeterRegistry.class);
 
     private final StatsdConfig statsdConfig;
     private final HierarchicalNameMapper nameMapper;
     private final Map<Meter.Id, StatsdPollable> pollableMeters = new ConcurrentHashMap<>();
     private final AtomicBoolean started = new AtomicBoolean(false);
     Processor<String, String> processor = NOOP_PROCESSOR;
+    StatsdLineSender lineSender = new SubscriberStatsdLineSender(NOOP_PROCESSOR);
     private Disposable.Swap client = Disposables.swap();
     private Disposable.Swap meterPoller = Disposables.swap();
 
@@ -86,6 +93,12 @@ public class StatsdMeterRegistry extends MeterRegistry {
     @Nullable
     private Consumer<String> lineSink;
 
+    @Nullable
+    private RingBufferStatsdLineSender queuedLineSender;
+
+    @Nullable
+    private Meter droppedLines;
+
     public StatsdMeterRegistry(StatsdConfig config, Clock clock) {
         this(config, HierarchicalNameMapper.DEFAULT, clock);
     }
@@ -120,9 +133,18 @@ public class StatsdMeterRegistry extends MeterRegistry {
             //noinspection SuspiciousMethodCalls
             meter.use(
                 this::removePollableMeter,
-                c -> ((StatsdCounter) c).shutdown(),
-                t -> ((StatsdTimer) t).shutdown(),
-                d -> ((StatsdDistributionSummary) d).shutdown(),
+                c -> {
+                    ((StatsdCounter) c).shutdown();
+                    removePollableMeter(c);
+                },
+                t -> {
+                    ((StatsdTimer) t).shutdown();
+                    removePollableMeter(t);
+                },
+                d -> {
+                    ((StatsdDistributionSummary) d).shutdown();
+                    removePollableMeter(d);
+                },
                 this::removePollableMeter,
                 this::removePollableMeter,
                 this::removePollableMeter,
@@ -170,7 +192,21 @@ public class StatsdMeterRegistry extends MeterRegistry {
     }
 
     public void start() {
+        if (lineSink == null && statsdConfig.protocol() == StatsdProtocol.UDS_STREAM && !UnixStreamStatsdLineSender.isSupported()) {
+            throw new IllegalStateException("Cannot connect to the StatsD agent at " + statsdConfig.host() +
+                    ": Unix domain sockets require Java 16 or later (check property " + statsdConfig.prefix() + ".protocol)");
+        }
+
         if (started.compareAndSet(false, true)) {
+            if (lineSink == null && statsdConfig.protocol() == StatsdProtocol.UDS_STREAM) {
+                startUnixStreamSender();
+                return;
+            }
+            if (lineSink == null && statsdConfig.nioSender() && statsdConfig.protocol() == StatsdProtocol.UDP) {
+                startDatagramChannelSender();
+                return;
+            }
+
             UnicastProcessor<String> unicastProcessor = UnicastProcessor.create(Queues.<String>unboundedMultiproducer().get());
 
             try {
@@ -179,6 +215,7 @@ public class StatsdMeterRegistry extends MeterRegistry {
             } catch (ClassNotFoundException e) {
                 this.processor = unicastProcessor;
             }
+            this.lineSender = new SubscriberStatsdLineSender(processor);
 
             if (lineSink != null) {
                 processor.subscribe(new Subscriber<String>() {
@@ -222,6 +259,43 @@ public class StatsdMeterRegistry extends MeterRegistry {
         }
     }
 
+    private void startDatagramChannelSender() {
+        try {
+            DatagramChannel channel = DatagramChannelStatsdLineSender.connect(
+                    new InetSocketAddress(statsdConfig.host(), statsdConfig.port()));
+            startQueuedSender(new DatagramChannelStatsdLineSender(channel, statsdConfig.maxPacketLength(),
+                    statsdConfig.buffered()));
+        } catch (IOException e) {
+            logger.warn("failed to open a datagram channel to the StatsD agent at " + statsdConfig.host() + ":" +
+                    statsdConfig.port(), e);
+        }
+    }
+
+    private void startUnixStreamSender() {
+        // the socket is connected when the first lines are sent, so that the agent may start after the application
+        startQueuedSender(new UnixStreamStatsdLineSender(statsdConfig.host(), statsdConfig.maxPacketLength(),
+                statsdConfig.buffered()));
+    }
+
+    private void startQueuedSender(StatsdLineSender delegate) {
+        RingBufferStatsdLineSender sender = new RingBufferStatsdLineSender(delegate, statsdConfig.queueCapacity(),
+                statsdConfig.overflowPolicy(), statsdConfig.buffered());
+        this.queuedLineSender = sender;
+        this.lineSender = sender;
+
+        this.droppedLines = FunctionCounter.builder("statsd.lines.dropped", sender, RingBufferStatsdLineSender::dropped)
+                .description("Lines dropped because the queue of lines waiting to be sent to the agent was full")
+                .register(this);
+
+        // buffered lines are sent at least once per polling interval
+        meterPoller.replace(Flux.interval(statsdConfig.pollingFrequency())
+                .doOnEach(n -> {
+                    poll();
+                    lineSender.flush();
+                })
+                .subscribe());
+    }
+
     private void prepareUdpClient(Publisher<String> publisher) {
         UdpClient.create()
                 .host(statsdConfig.host())
@@ -267,6 +341,22 @@ public class StatsdMeterRegistry extends MeterRegistry {
         if (started.compareAndSet(true, false)) {
             client.dispose();
             meterPoller.dispose();
+
+            Meter droppedLines = this.droppedLines;
+            if (droppedLines != null) {
+                remove(droppedLines);
+                this.droppedLines = null;
+            }
+
+            RingBufferStatsdLineSender sender = this.queuedLineSender;
+            if (sender != null) {
+                try {
+                    sender.close();
+                } catch (IOException e) {
+                    logger.warn("failed to close the connection to the StatsD agent", e);
+                }
+                this.queuedLineSender = null;
+            }
         }
     }
 
@@ -279,7 +369,7 @@ public class StatsdMeterRegistry extends MeterRegistry {
 
     @Override
     protected <T> Gauge newGauge(Meter.Id id, @Nullable T obj, ToDoubleFunction<T> valueFunction) {
-        StatsdGauge<T> gauge = new StatsdGauge<>(id, lineBuilder(id), processor, obj, valueFunction, statsdConfig.publishUnchangedMeters());
+        StatsdGauge<T> gauge = new StatsdGauge<>(id, lineBuilder(id), lineSender, obj, valueFunction, statsdConfig.publishUnchangedMeters());
         pollableMeters.put(id, gauge);
         return gauge;
     }
@@ -315,12 +405,16 @@ public class StatsdMeterRegistry extends MeterRegistry {
 
     @Override
     protected Counter newCounter(Meter.Id id) {
-        return new StatsdCounter(id, lineBuilder(id), processor);
+        StatsdCounter counter = new StatsdCounter(id, lineBuilder(id), lineSender, statsdConfig.clientSideAggregation());
+        if (statsdConfig.clientSideAggregation()) {
+            pollableMeters.put(id, counter);
+        }
+        return counter;
     }
 
     @Override
     protected LongTaskTimer newLongTaskTimer(Meter.Id id) {
-        StatsdLongTaskTimer ltt = new StatsdLongTaskTimer(id, lineBuilder(id), processor, clock, statsdConfig.publishUnchangedMeters());
+        StatsdLongTaskTimer ltt = new StatsdLongTaskTimer(id, lineBuilder(id), lineSender, clock, statsdConfig.publishUnchangedMeters());
         pollableMeters.put(id, ltt);
         return ltt;
     }
@@ -335,8 +429,11 @@ public class StatsdMeterRegistry extends MeterRegistry {
             distributionStatisticConfig = addInfBucket(distributionStatisticConfig);
         }
 
-        Timer timer = new StatsdTimer(id, lineBuilder(id), processor, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(),
-                statsdConfig.step().toMillis());
+        StatsdTimer timer = new StatsdTimer(id, lineBuilder(id), lineSender, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(),
+                statsdConfig.step().toMillis(), statsdConfig.clientSideAggregation());
+        if (statsdConfig.clientSideAggregation()) {
+            pollableMeters.put(id, timer);
+        }
         HistogramGauges.registerWithCommonFormat(timer, this);
         return timer;
     }
@@ -351,14 +448,18 @@ public class StatsdMeterRegistry extends MeterRegistry {
             distributionStatisticConfig = addInfBucket(distributionStatisticConfig);
         }
 
-        DistributionSummary summary = new StatsdDistributionSummary(id, lineBuilder(id), processor, clock, distributionStatisticConfig, scale);
+        StatsdDistributionSummary summary = new StatsdDistributionSummary(id, lineBuilder(id), lineSender, clock, distributionStatisticConfig, scale,
+                statsdConfig.clientSideAggregation());
+        if (statsdConfig.clientSideAggregation()) {
+            pollableMeters.put(id, summary);
+        }
         HistogramGauges.registerWithCommonFormat(summary, this);
         return summary;
     }
 
     @Override
     protected <T> FunctionCounter newFunctionCounter(Meter.Id id, T obj, ToDoubleFunction<T> countFunction) {
-        StatsdFunctionCounter fc = new StatsdFunctionCounter<>(id, obj, countFunction, lineBuilder(id), processor);
+        StatsdFunctionCounter fc = new StatsdFunctionCounter<>(id, obj, countFunction, lineBuilder(id), lineSender);
         pollableMeters.put(id, fc);
         return fc;
     }
@@ -368,7 +469,7 @@ public class StatsdMeterRegistry extends MeterRegistry {
             obj, ToLongFunction<T> countFunction, ToDoubleFunction<T> totalTimeFunction, TimeUnit
                                                          totalTimeFunctionUnit) {
         StatsdFunctionTimer ft = new StatsdFunctionTimer<>(id, obj, countFunction, totalTimeFunction, totalTimeFunctionUnit,
-                getBaseTimeUnit(), lineBuilder(id), processor);
+                getBaseTimeUnit(), lineBuilder(id), lineSender, statsdConfig.clientSideAggregation());
         pollableMeters.put(id, ft);
         return ft;
     }
@@ -382,13 +483,13 @@ public class StatsdMeterRegistry extends MeterRegistry {
                 case COUNT:
                 case TOTAL:
                 case TOTAL_TIME:
-                    pollableMeters.put(id.withTag(stat), () -> processor.onNext(line.count((long) ms.getValue(), stat)));
+                    pollableMeters.put(id.withTag(stat), () -> lineSender.count(line, (long) ms.getValue(), stat));
                     break;
                 case VALUE:
                 case ACTIVE_TASKS:
                 case DURATION:
                 case UNKNOWN:
-                    pollableMeters.put(id.withTag(stat), () -> processor.onNext(line.gauge(ms.getValue(), stat)));
+                    pollableMeters.put(id.withTag(stat), () -> lineSender.gauge(line, ms.getValue(), stat));
                     break;
             }
         });
@@ -409,6 +510,10 @@ public class StatsdMeterRegistry extends MeterRegistry {
     }
 
     public int queueSize() {
+        RingBufferStatsdLineSender sender = this.queuedLineSender;
+        if (sender != null) {
+            return sender.size();
+        }
         try {
             return (Integer) processor.getClass().getMethod("size").invoke(processor);
         } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
@@ -418,6 +523,10 @@ public class StatsdMeterRegistry extends MeterRegistry {
     }
 
     public int queueCapacity() {
+        RingBufferStatsdLineSender sender = this.queuedLineSender;
+        if (sender != null) {
+            return sender.capacity();
+        }
         try {
             return (Integer) processor.getClass().getMethod("getBufferSize").invoke(processor);
         } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
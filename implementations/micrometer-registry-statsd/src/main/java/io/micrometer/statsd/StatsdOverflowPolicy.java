@@ -0,0 +1,42 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd;
+
+import io.micrometer.core.annotation.Incubating;
+
+/**
+ * What to do with a line when the queue of lines waiting to be sent to the agent is full.
+ *
+ * @see StatsdConfig#overflowPolicy()
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public enum StatsdOverflowPolicy {
+    /**
+     * Drop the line being recorded.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest line waiting in the queue to make room for the line being recorded.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Make the recording thread wait until the sender has made room for the line.
+     */
+    BLOCK
+}
@@ -23,5 +23,15 @@ package io.micrometer.statsd;
  */
 public enum StatsdProtocol {
     UDP,
-    TCP
+    TCP,
+
+    /**
+     * A Unix domain stream socket at the path given by {@link StatsdConfig#host()}, such as the stream socket of a
+     * local DogStatsD agent. Each packet of lines is preceded by its length as a 4-byte little-endian integer.
+     * Requires Java 16 or later, where the JDK supports Unix domain sockets. On earlier versions,
+     * {@link StatsdMeterRegistry#start()} throws an {@link IllegalStateException}.
+     *
+     * @since 1.3.17
+     */
+    UDS_STREAM
 }
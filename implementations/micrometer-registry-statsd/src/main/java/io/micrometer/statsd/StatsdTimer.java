@@ -17,30 +17,46 @@ package io.micrometer.statsd;
 
 import io.micrometer.core.instrument.AbstractTimer;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Statistic;
 import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
 import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.step.StepDouble;
 import io.micrometer.core.instrument.util.TimeUtils;
-import org.reactivestreams.Subscriber;
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.statsd.internal.StatsdLineSender;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 
-public class StatsdTimer extends AbstractTimer {
+public class StatsdTimer extends AbstractTimer implements StatsdPollable {
     private final LongAdder count = new LongAdder();
     private final DoubleAdder totalTime = new DoubleAdder();
     private final StatsdLineBuilder lineBuilder;
-    private final Subscriber<String> subscriber;
+    private final StatsdLineSender lineSender;
     private StepDouble max;
     private volatile boolean shutdown = false;
 
-    StatsdTimer(Id id, StatsdLineBuilder lineBuilder, Subscriber<String> subscriber, Clock clock,
+    @Nullable
+    private final StatsdAggregate aggregate;
+
+    StatsdTimer(Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, Clock clock,
                 DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit, long stepMillis) {
+        this(id, lineBuilder, lineSender, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, stepMillis, false);
+    }
+
+    /**
+     * @param aggregate Whether to send the count, total time and max of the timings recorded between polls, rather
+     *                  than a line per timing.
+     */
+    StatsdTimer(Id id, StatsdLineBuilder lineBuilder, StatsdLineSender lineSender, Clock clock,
+                DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector, TimeUnit baseTimeUnit, long stepMillis,
+                boolean aggregate) {
         super(id, clock, distributionStatisticConfig, pauseDetector, baseTimeUnit, false);
         this.max = new StepDouble(clock, stepMillis);
         this.lineBuilder = lineBuilder;
-        this.subscriber = subscriber;
+        this.lineSender = lineSender;
+        this.aggregate = aggregate ? new StatsdAggregate(Statistic.TOTAL_TIME) : null;
     }
 
     @Override
@@ -54,7 +70,18 @@ public class StatsdTimer extends AbstractTimer {
             // not necessary to ship max, as most StatsD agents calculate this themselves
             max.getCurrent().add(Math.max(msAmount - max.getCurrent().doubleValue(), 0));
 
-            subscriber.onNext(lineBuilder.timing(msAmount));
+            if (aggregate != null) {
+                aggregate.record(msAmount);
+            } else {
+                lineSender.timing(lineBuilder, msAmount);
+            }
+        }
+    }
+
+    @Override
+    public void poll() {
+        if (aggregate != null) {
+            aggregate.poll(lineSender, lineBuilder, count(), totalTime.doubleValue());
         }
     }
 
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends packets of lines to the agent as datagrams.
+ */
+public class DatagramChannelStatsdLineSender extends PacketStatsdLineSender {
+    private final DatagramChannel channel;
+
+    /**
+     * @param channel         A channel connected to the agent.
+     * @param maxPacketLength The length up to which lines are packed into a datagram.
+     * @param buffered        Whether to pack lines into datagrams until {@link #flush()}, rather than send each line
+     *                        on its own.
+     */
+    public DatagramChannelStatsdLineSender(DatagramChannel channel, int maxPacketLength, boolean buffered) {
+        super(maxPacketLength, buffered);
+        this.channel = channel;
+    }
+
+    /**
+     * @param address The address of the agent.
+     * @return A channel connected to the agent.
+     * @throws IOException if the channel can't be opened or connected
+     */
+    public static DatagramChannel connect(SocketAddress address) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            return channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void write(ByteBuffer packet) throws IOException {
+        channel.write(packet);
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        channel.close();
+    }
+}
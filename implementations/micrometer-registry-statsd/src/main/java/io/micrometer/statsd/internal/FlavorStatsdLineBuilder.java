@@ -18,11 +18,16 @@ package io.micrometer.statsd.internal;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.instrument.util.DoubleFormat;
 import io.micrometer.core.lang.Nullable;
 import io.micrometer.statsd.StatsdLineBuilder;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Stream.of;
@@ -33,9 +38,21 @@ public abstract class FlavorStatsdLineBuilder implements StatsdLineBuilder {
     private static final String TYPE_HISTOGRAM = "h";
     private static final String TYPE_TIMING = "ms";
 
+    private static final String[] TYPES = {TYPE_COUNT, TYPE_GAUGE, TYPE_HISTOGRAM, TYPE_TIMING};
+    private static final Statistic[] STATISTICS = Statistic.values();
+
+    /**
+     * Stands in for the amount when rendering a line to find the text before and after it, and can't otherwise
+     * appear in a line.
+     */
+    private static final String AMOUNT_PLACEHOLDER = "\u0000";
+
     protected final Meter.Id id;
     protected final MeterRegistry.Config config;
 
+    @Nullable
+    private volatile EncodedLines encodedLines;
+
     protected FlavorStatsdLineBuilder(Meter.Id id, MeterRegistry.Config config) {
         this.id = id;
         this.config = config;
@@ -61,6 +78,38 @@ public abstract class FlavorStatsdLineBuilder implements StatsdLineBuilder {
         return line(DoubleFormat.decimalOrNan(timeMs), null, TYPE_TIMING);
     }
 
+    @Override
+    public void count(long amount, Statistic stat, ByteBuffer buffer) {
+        EncodedLine line = encodedLine(stat, 0);
+        buffer.put(line.prefix);
+        putLong(buffer, amount);
+        buffer.put(line.suffix);
+    }
+
+    @Override
+    public void gauge(double amount, Statistic stat, ByteBuffer buffer) {
+        EncodedLine line = encodedLine(stat, 1);
+        buffer.put(line.prefix);
+        putDecimalOrNan(buffer, amount);
+        buffer.put(line.suffix);
+    }
+
+    @Override
+    public void histogram(double amount, ByteBuffer buffer) {
+        EncodedLine line = encodedLine(null, 2);
+        buffer.put(line.prefix);
+        putDecimalOrNan(buffer, amount);
+        buffer.put(line.suffix);
+    }
+
+    @Override
+    public void timing(double timeMs, ByteBuffer buffer) {
+        EncodedLine line = encodedLine(null, 3);
+        buffer.put(line.prefix);
+        putDecimalOrNan(buffer, timeMs);
+        buffer.put(line.suffix);
+    }
+
     abstract String line(String amount, @Nullable Statistic stat, String type);
 
     protected String tags(@Nullable Statistic stat, @Nullable String otherTags, String keyValueSeparator, String preamble) {
@@ -72,4 +121,131 @@ public abstract class FlavorStatsdLineBuilder implements StatsdLineBuilder {
             tags = preamble + tags;
         return tags;
     }
+
+    /**
+     * The encoded text around the amount of a line is rendered once per statistic and type, and again only if the
+     * naming convention changes.
+     */
+    private EncodedLine encodedLine(@Nullable Statistic stat, int type) {
+        NamingConvention namingConvention = config.namingConvention();
+        EncodedLines lines = this.encodedLines;
+        if (lines == null || lines.namingConvention != namingConvention) {
+            lines = new EncodedLines(namingConvention);
+            this.encodedLines = lines;
+        }
+
+        int index = (stat == null ? STATISTICS.length : stat.ordinal()) * TYPES.length + type;
+        EncodedLine line = lines.lines.get(index);
+        if (line == null) {
+            String rendered = line(AMOUNT_PLACEHOLDER, stat, TYPES[type]);
+            int amountIndex = rendered.indexOf(AMOUNT_PLACEHOLDER);
+            line = new EncodedLine(rendered.substring(0, amountIndex).getBytes(StandardCharsets.UTF_8),
+                    rendered.substring(amountIndex + 1).getBytes(StandardCharsets.UTF_8));
+            lines.lines.set(index, line);
+        }
+        return line;
+    }
+
+    /**
+     * Writes the same characters as {@link Long#toString(long)}.
+     */
+    static void putLong(ByteBuffer buffer, long l) {
+        if (l == Long.MIN_VALUE) {
+            buffer.put(Long.toString(l).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (l < 0) {
+            buffer.put((byte) '-');
+            l = -l;
+        }
+
+        int digits = 1;
+        for (long rest = l / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        if (buffer.remaining() < digits) {
+            throw new BufferOverflowException();
+        }
+
+        int position = buffer.position();
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer.put(position + i, (byte) ('0' + l % 10));
+            l /= 10;
+        }
+        buffer.position(position + digits);
+    }
+
+    /**
+     * Writes the same characters as {@link DoubleFormat#decimalOrNan(double)}. Values that can be rounded to six
+     * fraction digits exactly with long arithmetic are written without allocating, any others are formatted by
+     * {@link DoubleFormat}.
+     */
+    static void putDecimalOrNan(ByteBuffer buffer, double d) {
+        if (Double.isNaN(d)) {
+            buffer.put((byte) 'N').put((byte) 'a').put((byte) 'N');
+            return;
+        }
+
+        double abs = Math.abs(d);
+        if (abs < 1e7) {
+            double scaled = abs * 1e6;
+            double fraction = scaled - Math.floor(scaled);
+
+            // stay clear of ties, where the rounding of the scaled product can differ from DecimalFormat's exact
+            // half-even rounding, and of negative values that are formatted as "-0"
+            long micros = (long) Math.rint(scaled);
+            if (Math.abs(fraction - 0.5) > 0.01 && (micros != 0 || Double.doubleToRawLongBits(d) >= 0)) {
+                if (d < 0) {
+                    buffer.put((byte) '-');
+                }
+                putLong(buffer, micros / 1_000_000);
+
+                int fractionDigits = (int) (micros % 1_000_000);
+                if (fractionDigits != 0) {
+                    int length = 6;
+                    while (fractionDigits % 10 == 0) {
+                        fractionDigits /= 10;
+                        length--;
+                    }
+                    buffer.put((byte) '.');
+                    for (int divisor = pow10(length - 1); divisor > 0; divisor /= 10) {
+                        buffer.put((byte) ('0' + fractionDigits / divisor % 10));
+                    }
+                }
+                return;
+            }
+        } else if (abs < 1e15 && d == (long) d) {
+            putLong(buffer, (long) d);
+            return;
+        }
+
+        buffer.put(DoubleFormat.decimalOrNan(d).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int pow10(int exponent) {
+        int pow = 1;
+        for (int i = 0; i < exponent; i++) {
+            pow *= 10;
+        }
+        return pow;
+    }
+
+    private static class EncodedLines {
+        final NamingConvention namingConvention;
+        final AtomicReferenceArray<EncodedLine> lines = new AtomicReferenceArray<>((STATISTICS.length + 1) * TYPES.length);
+
+        EncodedLines(NamingConvention namingConvention) {
+            this.namingConvention = namingConvention;
+        }
+    }
+
+    private static class EncodedLine {
+        final byte[] prefix;
+        final byte[] suffix;
+
+        EncodedLine(byte[] prefix, byte[] suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
 }
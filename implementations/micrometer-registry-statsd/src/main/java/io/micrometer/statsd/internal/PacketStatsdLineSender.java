@@ -0,0 +1,199 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
+import io.micrometer.statsd.StatsdLineBuilder;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes lines straight into a direct buffer and sends them to the agent in packets, without rendering a string
+ * per line. Lines are separated by a line feed and packed into packets of up to {@code maxPacketLength} bytes when
+ * buffering, or sent one per packet otherwise.
+ */
+public abstract class PacketStatsdLineSender implements StatsdLineSender {
+    private static final WarnThenDebugLogger warnThenDebugLogger = new WarnThenDebugLogger(PacketStatsdLineSender.class);
+
+    /**
+     * Largest payload of a UDP datagram over IPv4, which bounds packets on every transport, so that even a line
+     * longer than {@code maxPacketLength} can be sent on its own.
+     */
+    private static final int MAX_PACKET_LENGTH = 65507;
+
+    private final int maxPacketLength;
+    private final boolean buffered;
+    /**
+     * Lines are written up to the limit of a packet, and one more byte past the limit always leaves room for the
+     * line feed after a line.
+     */
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(MAX_PACKET_LENGTH + 1);
+
+    /**
+     * @param maxPacketLength The length up to which lines are packed into a packet.
+     * @param buffered        Whether to pack lines into packets until {@link #flush()}, rather than send each line
+     *                        on its own.
+     */
+    protected PacketStatsdLineSender(int maxPacketLength, boolean buffered) {
+        this.maxPacketLength = Math.min(maxPacketLength, MAX_PACKET_LENGTH);
+        this.buffered = buffered;
+        this.packet.limit(MAX_PACKET_LENGTH);
+    }
+
+    @Override
+    public void count(StatsdLineBuilder lineBuilder, long amount, Statistic stat) {
+        synchronized (packet) {
+            int start = packet.position();
+            try {
+                lineBuilder.count(amount, stat, packet);
+            } catch (BufferOverflowException e) {
+                if (!retry(start)) {
+                    return;
+                }
+                lineBuilder.count(amount, stat, packet);
+            }
+            endLine(start);
+        }
+    }
+
+    @Override
+    public void gauge(StatsdLineBuilder lineBuilder, double amount, Statistic stat) {
+        synchronized (packet) {
+            int start = packet.position();
+            try {
+                lineBuilder.gauge(amount, stat, packet);
+            } catch (BufferOverflowException e) {
+                if (!retry(start)) {
+                    return;
+                }
+                lineBuilder.gauge(amount, stat, packet);
+            }
+            endLine(start);
+        }
+    }
+
+    @Override
+    public void histogram(StatsdLineBuilder lineBuilder, double amount) {
+        synchronized (packet) {
+            int start = packet.position();
+            try {
+                lineBuilder.histogram(amount, packet);
+            } catch (BufferOverflowException e) {
+                if (!retry(start)) {
+                    return;
+                }
+                lineBuilder.histogram(amount, packet);
+            }
+            endLine(start);
+        }
+    }
+
+    @Override
+    public void timing(StatsdLineBuilder lineBuilder, double timeMs) {
+        synchronized (packet) {
+            int start = packet.position();
+            try {
+                lineBuilder.timing(timeMs, packet);
+            } catch (BufferOverflowException e) {
+                if (!retry(start)) {
+                    return;
+                }
+                lineBuilder.timing(timeMs, packet);
+            }
+            endLine(start);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (packet) {
+            if (packet.position() > 0) {
+                send(packet.position());
+            }
+        }
+    }
+
+    /**
+     * Discards a partially written line, and makes room for it by sending the lines before it.
+     *
+     * @return {@code false} if there are no lines to send, so the line can't fit in any packet and is dropped.
+     */
+    private boolean retry(int start) {
+        packet.position(start);
+        if (start == 0) {
+            warnThenDebugLogger.log("Dropped a StatsD line longer than the largest packet.");
+            return false;
+        }
+        send(start);
+        return true;
+    }
+
+    private void endLine(int start) {
+        packet.limit(MAX_PACKET_LENGTH + 1);
+        packet.put((byte) '\n');
+
+        if (!buffered) {
+            send(packet.position());
+        } else if (packet.position() > maxPacketLength) {
+            // the line doesn't fit in this packet, unless it's the first line
+            send(start == 0 ? packet.position() : start);
+        } else if (packet.position() == maxPacketLength) {
+            send(packet.position());
+        }
+        packet.limit(MAX_PACKET_LENGTH);
+    }
+
+    /**
+     * Sends the first {@code length} bytes as a packet and moves any bytes after them to the start of the buffer.
+     */
+    private void send(int length) {
+        int end = packet.position();
+        packet.position(0);
+        packet.limit(length);
+        IOException failure = null;
+        try {
+            write(packet);
+        } catch (IOException e) {
+            // e.g. PortUnreachableException when the agent isn't listening yet
+            failure = e;
+        }
+        packet.limit(end);
+        packet.position(length);
+        packet.compact();
+        packet.limit(MAX_PACKET_LENGTH);
+
+        if (failure != null) {
+            // only log once the packet is consistent again, since logging may record metrics of its own
+            warnThenDebugLogger.log("Failed to send StatsD lines.", failure);
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a packet to the agent.
+     *
+     * @param packet A packet of one or more lines, each ending with a line feed.
+     * @throws IOException if the packet can't be written
+     */
+    protected abstract void write(ByteBuffer packet) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
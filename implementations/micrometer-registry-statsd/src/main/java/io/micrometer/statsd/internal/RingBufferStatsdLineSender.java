@@ -0,0 +1,322 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
+import io.micrometer.statsd.StatsdLineBuilder;
+import io.micrometer.statsd.StatsdOverflowPolicy;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues lines in a bounded ring buffer that any number of threads record into, and hands them to another sender on
+ * a single sender thread. Recording a line claims a slot of preallocated arrays with a compare-and-swap and allocates
+ * nothing, and the delegate never sees more than one thread, so it can pack lines into datagrams without contention.
+ * <p>
+ * The ring buffer is the bounded multi-producer multi-consumer queue by Dmitry Vyukov, where each slot carries a
+ * sequence number that tells producers and consumers whether it's free or filled. Lines are only ever consumed by the
+ * sender thread, except when {@link StatsdOverflowPolicy#DROP_OLDEST} drops the oldest line on a recording thread.
+ * <p>
+ * When buffering, the sender thread is woken each time a quarter of the queue has filled up and on {@link #flush()},
+ * so that a steady trickle of lines doesn't wake it for every line. Otherwise, it's woken for every line it isn't
+ * already awake for.
+ */
+public class RingBufferStatsdLineSender implements StatsdLineSender {
+    private static final WarnThenDebugLogger warnThenDebugLogger = new WarnThenDebugLogger(RingBufferStatsdLineSender.class);
+
+    private static final int COUNT = 0;
+    private static final int GAUGE = 1;
+    private static final int HISTOGRAM = 2;
+    private static final int TIMING = 3;
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final StatsdLineSender delegate;
+    private final StatsdOverflowPolicy overflowPolicy;
+    private final boolean buffered;
+
+    private final int capacity;
+    private final int mask;
+    private final int wakeUpMask;
+
+    private final AtomicLongArray sequences;
+    private final StatsdLineBuilder[] lineBuilders;
+    private final Statistic[] statistics;
+    private final int[] types;
+    private final long[] amounts;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread senderThread;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private volatile boolean flushRequested;
+
+    /**
+     * @param delegate       The sender that lines are handed to on the sender thread.
+     * @param capacity       The number of lines that can wait to be sent, rounded up to a power of two.
+     * @param overflowPolicy What to do with lines recorded while the queue is full.
+     * @param buffered       Whether lines may wait in the queue until it fills up or is flushed.
+     */
+    public RingBufferStatsdLineSender(StatsdLineSender delegate, int capacity, StatsdOverflowPolicy overflowPolicy,
+                                      boolean buffered) {
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.buffered = buffered;
+
+        this.capacity = capacity <= 4 ? 4 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.wakeUpMask = this.capacity / 4 - 1;
+
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.lineBuilders = new StatsdLineBuilder[this.capacity];
+        this.statistics = new Statistic[this.capacity];
+        this.types = new int[this.capacity];
+        this.amounts = new long[this.capacity];
+
+        this.senderThread = new NamedThreadFactory("statsd-line-sender").newThread(this::run);
+        this.senderThread.start();
+    }
+
+    @Override
+    public void count(StatsdLineBuilder lineBuilder, long amount, Statistic stat) {
+        record(lineBuilder, COUNT, amount, stat);
+    }
+
+    @Override
+    public void gauge(StatsdLineBuilder lineBuilder, double amount, Statistic stat) {
+        record(lineBuilder, GAUGE, Double.doubleToRawLongBits(amount), stat);
+    }
+
+    @Override
+    public void histogram(StatsdLineBuilder lineBuilder, double amount) {
+        record(lineBuilder, HISTOGRAM, Double.doubleToRawLongBits(amount), null);
+    }
+
+    @Override
+    public void timing(StatsdLineBuilder lineBuilder, double timeMs) {
+        record(lineBuilder, TIMING, Double.doubleToRawLongBits(timeMs), null);
+    }
+
+    /**
+     * Wakes the sender thread to send every line that is queued, and then any lines the delegate is buffering.
+     */
+    @Override
+    public void flush() {
+        flushRequested = true;
+        LockSupport.unpark(senderThread);
+    }
+
+    /**
+     * @return The number of lines waiting to be sent.
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    /**
+     * @return The number of lines that can wait to be sent.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of lines dropped because the queue was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the sender thread once it has sent every queued line, and closes the delegate. Lines recorded afterwards
+     * are discarded.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(senderThread);
+        try {
+            senderThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    private void record(StatsdLineBuilder lineBuilder, int type, long amount, @Nullable Statistic stat) {
+        if (!running) {
+            return;
+        }
+
+        long position;
+        while ((position = offer(lineBuilder, type, amount, stat)) < 0) {
+            LockSupport.unpark(senderThread);
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    if (poll(false)) {
+                        dropped.incrementAndGet();
+                    }
+                    break;
+                case BLOCK:
+                    // the sender thread can't wait for itself, e.g. when logging records metrics while it sends
+                    if (running && Thread.currentThread() != senderThread) {
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                        break;
+                    }
+                    // fall through
+                default:
+                    dropped.incrementAndGet();
+                    return;
+            }
+        }
+
+        if (parked && (!buffered || (position & wakeUpMask) == wakeUpMask)) {
+            parked = false;
+            LockSupport.unpark(senderThread);
+        }
+    }
+
+    /**
+     * @return The position of the slot the line was written to, or {@code -1} if the queue is full.
+     */
+    private long offer(StatsdLineBuilder lineBuilder, int type, long amount, @Nullable Statistic stat) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    lineBuilders[index] = lineBuilder;
+                    statistics[index] = stat;
+                    types[index] = type;
+                    amounts[index] = amount;
+                    sequences.lazySet(index, position + 1);
+                    return position;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the line from a lap ago
+                return -1;
+            } else {
+                // another producer claimed the slot first
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest line off the queue.
+     *
+     * @param send Whether to hand the line to the delegate, rather than drop it.
+     * @return {@code false} if the queue is empty.
+     */
+    private boolean poll(boolean send) {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    StatsdLineBuilder lineBuilder = lineBuilders[index];
+                    Statistic stat = statistics[index];
+                    int type = types[index];
+                    long amount = amounts[index];
+                    lineBuilders[index] = null;
+                    statistics[index] = null;
+                    sequences.lazySet(index, position + capacity);
+
+                    if (send) {
+                        send(lineBuilder, type, amount, stat);
+                    }
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // the slot hasn't been filled yet
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private void send(StatsdLineBuilder lineBuilder, int type, long amount, @Nullable Statistic stat) {
+        try {
+            switch (type) {
+                case COUNT:
+                    delegate.count(lineBuilder, amount, stat);
+                    break;
+                case GAUGE:
+                    delegate.gauge(lineBuilder, Double.longBitsToDouble(amount), stat);
+                    break;
+                case HISTOGRAM:
+                    delegate.histogram(lineBuilder, Double.longBitsToDouble(amount));
+                    break;
+                default:
+                    delegate.timing(lineBuilder, Double.longBitsToDouble(amount));
+            }
+        } catch (RuntimeException e) {
+            warnThenDebugLogger.log("Failed to send a StatsD line.", e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            while (poll(true)) {
+                // keep sending
+            }
+
+            if (flushRequested) {
+                flushRequested = false;
+                flush(delegate);
+            }
+
+            parked = true;
+            // a line recorded since the queue was found empty is either seen here or wakes the thread
+            if (running && !flushRequested && (buffered || tail.get() == head.get())) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+
+        while (poll(true)) {
+            // send every line recorded before closing
+        }
+        flush(delegate);
+    }
+
+    private static void flush(StatsdLineSender sender) {
+        try {
+            sender.flush();
+        } catch (RuntimeException e) {
+            warnThenDebugLogger.log("Failed to send StatsD lines.", e);
+        }
+    }
+}
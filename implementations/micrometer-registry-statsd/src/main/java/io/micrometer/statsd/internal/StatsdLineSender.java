@@ -0,0 +1,57 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.statsd.StatsdLineBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where meters send their lines. Lines are described by the {@link StatsdLineBuilder} of a meter and an amount, so
+ * that a sender can either render them as strings or encode them straight into the buffers it sends.
+ */
+public interface StatsdLineSender extends Closeable {
+    void count(StatsdLineBuilder lineBuilder, long amount, Statistic stat);
+
+    default void count(StatsdLineBuilder lineBuilder, long amount) {
+        count(lineBuilder, amount, Statistic.COUNT);
+    }
+
+    void gauge(StatsdLineBuilder lineBuilder, double amount, Statistic stat);
+
+    default void gauge(StatsdLineBuilder lineBuilder, double amount) {
+        gauge(lineBuilder, amount, Statistic.VALUE);
+    }
+
+    void histogram(StatsdLineBuilder lineBuilder, double amount);
+
+    void timing(StatsdLineBuilder lineBuilder, double timeMs);
+
+    /**
+     * Sends any lines that are being buffered.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Sends any lines that are being buffered and releases the resources of the sender.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
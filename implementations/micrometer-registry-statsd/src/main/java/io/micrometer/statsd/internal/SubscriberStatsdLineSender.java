@@ -0,0 +1,51 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.statsd.StatsdLineBuilder;
+import org.reactivestreams.Subscriber;
+
+/**
+ * Renders each line as a string for a subscriber, such as the processor of a reactive pipeline to the agent.
+ */
+public class SubscriberStatsdLineSender implements StatsdLineSender {
+    private final Subscriber<String> subscriber;
+
+    public SubscriberStatsdLineSender(Subscriber<String> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    @Override
+    public void count(StatsdLineBuilder lineBuilder, long amount, Statistic stat) {
+        subscriber.onNext(lineBuilder.count(amount, stat));
+    }
+
+    @Override
+    public void gauge(StatsdLineBuilder lineBuilder, double amount, Statistic stat) {
+        subscriber.onNext(lineBuilder.gauge(amount, stat));
+    }
+
+    @Override
+    public void histogram(StatsdLineBuilder lineBuilder, double amount) {
+        subscriber.onNext(lineBuilder.histogram(amount));
+    }
+
+    @Override
+    public void timing(StatsdLineBuilder lineBuilder, double timeMs) {
+        subscriber.onNext(lineBuilder.timing(timeMs));
+    }
+}
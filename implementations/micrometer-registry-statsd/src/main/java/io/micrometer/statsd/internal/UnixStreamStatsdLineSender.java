@@ -0,0 +1,155 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Sends packets of lines to the agent through a Unix domain stream socket, each preceded by its length as a 4-byte
+ * little-endian integer, as DogStatsD expects on its stream socket. The socket is connected on the first packet, and
+ * again on the packet after a failed write, since a stream socket doesn't survive a restart of the agent.
+ * <p>
+ * Unix domain sockets are only supported by the JDK from Java 16 on, so they are opened reflectively.
+ */
+public class UnixStreamStatsdLineSender extends PacketStatsdLineSender {
+    @Nullable
+    private static final Method ADDRESS_OF;
+
+    @Nullable
+    private static final Method OPEN;
+
+    @Nullable
+    private static final ProtocolFamily UNIX;
+
+    static {
+        Method addressOf = null;
+        Method open = null;
+        ProtocolFamily unix = null;
+        try {
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+            open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            unix = StandardProtocolFamily.valueOf("UNIX");
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalArgumentException ignored) {
+            // before Java 16
+        }
+        ADDRESS_OF = addressOf;
+        OPEN = open;
+        UNIX = unix;
+    }
+
+    private final String path;
+    private final ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer[] buffers = new ByteBuffer[2];
+
+    @Nullable
+    private volatile SocketChannel channel;
+
+    /**
+     * @param path            The path of the agent's socket.
+     * @param maxPacketLength The length up to which lines are packed into a packet.
+     * @param buffered        Whether to pack lines into packets until {@link #flush()}, rather than send each line
+     *                        on its own.
+     */
+    public UnixStreamStatsdLineSender(String path, int maxPacketLength, boolean buffered) {
+        super(maxPacketLength, buffered);
+        this.path = path;
+    }
+
+    /**
+     * @return {@code true} if the JDK supports Unix domain sockets.
+     */
+    public static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * @param path The path of the socket.
+     * @return A channel connected to the socket.
+     * @throws IOException if the channel can't be opened or connected, or if the JDK doesn't support Unix domain
+     *                     sockets
+     */
+    public static SocketChannel connect(String path) throws IOException {
+        if (ADDRESS_OF == null || OPEN == null) {
+            throw new IOException("Unix domain sockets require Java 16 or later");
+        }
+
+        SocketAddress address;
+        SocketChannel channel;
+        try {
+            address = (SocketAddress) ADDRESS_OF.invoke(null, path);
+            channel = (SocketChannel) OPEN.invoke(null, UNIX);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+
+        try {
+            channel.connect(address);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void write(ByteBuffer packet) throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null) {
+            channel = connect(path);
+            this.channel = channel;
+        }
+
+        header.clear();
+        header.putInt(packet.remaining());
+        header.flip();
+        buffers[0] = header;
+        buffers[1] = packet;
+        try {
+            while (packet.hasRemaining()) {
+                channel.write(buffers);
+            }
+        } catch (IOException e) {
+            this.channel = null;
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        SocketChannel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+            this.channel = null;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.binder.logging.LogbackMetrics;
 import io.micrometer.core.instrument.config.NamingConvention;
 import io.micrometer.core.lang.Nullable;
+import io.micrometer.statsd.internal.UnixStreamStatsdLineSender;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -34,9 +35,24 @@ import reactor.core.publisher.UnicastProcessor;
 import reactor.test.StepVerifier;
 import reactor.util.concurrent.Queues;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -45,7 +61,10 @@ import java.util.function.Consumer;
 import static java.util.Collections.singletonList;
 import static java.util.stream.IntStream.range;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Tests for {@link StatsdMeterRegistry}.
@@ -64,7 +83,9 @@ class StatsdMeterRegistryTest {
 
     @AfterEach
     void cleanUp() {
-        registry.close();
+        if (registry != null) {
+            registry.close();
+        }
     }
 
     private static StatsdConfig configWithFlavor(StatsdFlavor flavor) {
@@ -543,6 +564,230 @@ class StatsdMeterRegistryTest {
         assertThat(lines.get("functioncounter")).isEqualTo(1);
     }
 
+    @Test
+    void nioSenderPacksEncodedLinesIntoDatagrams() throws IOException {
+        try (DatagramChannel server = DatagramChannel.open().bind(new InetSocketAddress("localhost", 0))) {
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            registry = new StatsdMeterRegistry(new StatsdConfig() {
+                @Override
+                @Nullable
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public int port() {
+                    return port;
+                }
+
+                @Override
+                public int maxPacketLength() {
+                    return 64;
+                }
+
+                @Override
+                public boolean nioSender() {
+                    return true;
+                }
+            }, clock);
+
+            assertThat(registry.queueCapacity()).isEqualTo(16384);
+            assertThat(registry.get("statsd.lines.dropped").functionCounter().count()).isZero();
+
+            Counter counter = registry.counter("my.counter", "my.tag", "val");
+            for (int i = 0; i < 3; i++) {
+                counter.increment();
+            }
+            registry.timer("my.timer").record(1500, TimeUnit.MICROSECONDS);
+            registry.lineSender.flush();
+
+            ByteBuffer datagram = ByteBuffer.allocate(1024);
+            server.receive(datagram);
+            assertThat(new String(datagram.array(), 0, datagram.position(), StandardCharsets.UTF_8))
+                    .isEqualTo("my.counter:1|c|#statistic:count,my.tag:val\n");
+
+            StringBuilder received = new StringBuilder();
+            for (int i = 0; i < 2; i++) {
+                datagram.clear();
+                server.receive(datagram);
+                assertThat(datagram.position()).isLessThanOrEqualTo(64);
+                received.append(new String(datagram.array(), 0, datagram.position(), StandardCharsets.UTF_8));
+            }
+            assertThat(received.toString()).isEqualTo(
+                    "my.counter:1|c|#statistic:count,my.tag:val\n" +
+                    "my.counter:1|c|#statistic:count,my.tag:val\n" +
+                    "my.timer:1.5|ms\n");
+        }
+    }
+
+    @Test
+    void udsStreamFailsToStartWithoutUnixDomainSockets() {
+        assumeFalse(UnixStreamStatsdLineSender.isSupported(), "Unix domain sockets are supported on Java 16 or later");
+
+        StatsdConfig config = new StatsdConfig() {
+            @Override
+            @Nullable
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public StatsdProtocol protocol() {
+                return StatsdProtocol.UDS_STREAM;
+            }
+        };
+
+        assertThatThrownBy(() -> new StatsdMeterRegistry(config, clock))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 16");
+    }
+
+    @Test
+    void udsStreamSendsLengthPrefixedPackets() throws Exception {
+        assumeTrue(UnixStreamStatsdLineSender.isSupported(), "Unix domain sockets require Java 16 or later");
+
+        Path directory = Files.createTempDirectory("statsd");
+        Path socket = directory.resolve("dsd.socket");
+
+        // opened reflectively since the tests are compiled for Java 8
+        Object address = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class).invoke(null, socket);
+        ServerSocketChannel server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        try {
+            server.bind((SocketAddress) address);
+
+            StatsdConfig config = new StatsdConfig() {
+                @Override
+                @Nullable
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public String host() {
+                    return socket.toString();
+                }
+
+                @Override
+                public StatsdProtocol protocol() {
+                    return StatsdProtocol.UDS_STREAM;
+                }
+            };
+            assertThat(config.maxPacketLength()).isEqualTo(8192);
+
+            registry = new StatsdMeterRegistry(config, clock);
+            registry.counter("my.counter", "my.tag", "val").increment();
+            registry.timer("my.timer").record(1500, TimeUnit.MICROSECONDS);
+            registry.lineSender.flush();
+
+            try (SocketChannel agent = server.accept()) {
+                ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining()) {
+                    agent.read(header);
+                }
+                ByteBuffer packet = ByteBuffer.allocate(header.getInt(0));
+                while (packet.hasRemaining()) {
+                    agent.read(packet);
+                }
+
+                assertThat(new String(packet.array(), StandardCharsets.UTF_8)).isEqualTo(
+                        "my.counter:1|c|#statistic:count,my.tag:val\n" +
+                        "my.timer:1.5|ms\n");
+            }
+        } finally {
+            registry.stop();
+            server.close();
+            Files.deleteIfExists(socket);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void clientSideAggregationSendsOncePerPoll() {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        registry = StatsdMeterRegistry.builder(new StatsdConfig() {
+            @Override
+            @Nullable
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public boolean clientSideAggregation() {
+                return true;
+            }
+        })
+                .clock(clock)
+                .lineSink(lines::add)
+                .build();
+
+        Counter counter = registry.counter("my.counter");
+        Timer timer = registry.timer("my.timer");
+        DistributionSummary summary = registry.summary("my.summary");
+        for (int i = 1; i <= 1000; i++) {
+            counter.increment(0.5);
+            timer.record(i, TimeUnit.MILLISECONDS);
+            summary.record(i * 0.25);
+        }
+        assertThat(lines).isEmpty();
+
+        registry.poll();
+        assertThat(lines).containsExactlyInAnyOrder(
+                "my.counter:500|c|#statistic:count",
+                "my.timer:1000|c|#statistic:count",
+                "my.timer:500500|c|#statistic:total",
+                "my.timer:1000|g|#statistic:max",
+                "my.summary:1000|c|#statistic:count",
+                "my.summary:125125|c|#statistic:total",
+                "my.summary:250|g|#statistic:max");
+
+        lines.clear();
+        registry.poll();
+        assertThat(lines).isEmpty();
+
+        counter.increment(0.5);
+        registry.poll();
+        assertThat(lines).isEmpty();
+
+        counter.increment(0.5);
+        timer.record(2, TimeUnit.MILLISECONDS);
+        registry.poll();
+        assertThat(lines).containsExactlyInAnyOrder(
+                "my.counter:1|c|#statistic:count",
+                "my.timer:1|c|#statistic:count",
+                "my.timer:2|c|#statistic:total",
+                "my.timer:2|g|#statistic:max");
+    }
+
+    @Test
+    void clientSideAggregationSendsCountAndTotalTimeOfFunctionTimers() {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        registry = StatsdMeterRegistry.builder(new StatsdConfig() {
+            @Override
+            @Nullable
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public boolean clientSideAggregation() {
+                return true;
+            }
+        })
+                .clock(clock)
+                .lineSink(lines::add)
+                .build();
+
+        AtomicInteger count = new AtomicInteger(10_000);
+        registry.more().timer("my.function.timer", Tags.empty(), count, AtomicInteger::get, c -> c.get() * 1.5,
+                TimeUnit.MILLISECONDS);
+        registry.poll();
+
+        assertThat(lines).containsExactlyInAnyOrder(
+                "my.function.timer:10000|c|#statistic:count",
+                "my.function.timer:15000|c|#statistic:total");
+    }
+
     private UnicastProcessor<String> lineProcessor() {
         return UnicastProcessor.create(Queues.<String>unboundedMultiproducer().get());
     }
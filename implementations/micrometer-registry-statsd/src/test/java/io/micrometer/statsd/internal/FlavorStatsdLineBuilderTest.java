@@ -0,0 +1,116 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.core.instrument.util.DoubleFormat;
+import io.micrometer.core.instrument.util.HierarchicalNameMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlavorStatsdLineBuilderTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    @Test
+    void encodedLinesMatchStringLines() {
+        Counter c = registry.counter("my.counter", "my.tag", "välue", "other", "a=b c");
+        List<FlavorStatsdLineBuilder> lineBuilders = Arrays.asList(
+                new DatadogStatsdLineBuilder(c.getId(), registry.config()),
+                new EtsyStatsdLineBuilder(c.getId(), registry.config(), HierarchicalNameMapper.DEFAULT),
+                new TelegrafStatsdLineBuilder(c.getId(), registry.config()),
+                new SysdigStatsdLineBuilder(c.getId(), registry.config()));
+
+        for (FlavorStatsdLineBuilder lb : lineBuilders) {
+            for (double amount : new double[]{0, 1, 2.5, -3.25, 1234567.891, 1e20, Double.NaN}) {
+                assertThat(encoded(b -> lb.count((long) amount, Statistic.TOTAL, b))).isEqualTo(lb.count((long) amount, Statistic.TOTAL));
+                assertThat(encoded(b -> lb.gauge(amount, Statistic.VALUE, b))).isEqualTo(lb.gauge(amount, Statistic.VALUE));
+                assertThat(encoded(b -> lb.histogram(amount, b))).isEqualTo(lb.histogram(amount));
+                assertThat(encoded(b -> lb.timing(amount, b))).isEqualTo(lb.timing(amount));
+            }
+        }
+    }
+
+    @Test
+    void encodedLinesFollowNamingConventionChanges() {
+        Counter c = registry.counter("my.counter", "my.tag", "value");
+        DatadogStatsdLineBuilder lb = new DatadogStatsdLineBuilder(c.getId(), registry.config());
+
+        registry.config().namingConvention(NamingConvention.dot);
+        assertThat(encoded(b -> lb.count(1, Statistic.COUNT, b))).isEqualTo("my.counter:1|c|#statistic:count,my.tag:value");
+
+        registry.config().namingConvention(NamingConvention.camelCase);
+        assertThat(encoded(b -> lb.count(1, Statistic.COUNT, b))).isEqualTo("myCounter:1|c|#statistic:count,myTag:value");
+    }
+
+    @Test
+    void putDecimalOrNanMatchesDoubleFormat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            double d;
+            switch (i % 4) {
+                case 0:
+                    d = random.nextDouble();
+                    break;
+                case 1:
+                    d = random.nextGaussian() * 1000;
+                    break;
+                case 2:
+                    d = Math.round(random.nextDouble() * 1e9) / 1e3;
+                    break;
+                default:
+                    d = Double.longBitsToDouble(random.nextLong());
+            }
+            assertDecimalOrNan(d);
+        }
+
+        for (double d : new double[]{0, -0.0, -1e-9, 1e-7, 0.0000005, 0.0000015, 2.5e-7, 9999999.9999995, 1e7, 1e14 + 1, 1e15 + 1, 1e18,
+                Double.MAX_VALUE, Double.MIN_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN}) {
+            assertDecimalOrNan(d);
+        }
+    }
+
+    @Test
+    void putLongMatchesToString() {
+        for (long l : new long[]{0, 7, -7, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertThat(encoded(b -> FlavorStatsdLineBuilder.putLong(b, l))).isEqualTo(Long.toString(l));
+        }
+    }
+
+    private void assertDecimalOrNan(double d) {
+        assertThat(encoded(b -> FlavorStatsdLineBuilder.putDecimalOrNan(b, d)))
+                .as("%s", d)
+                .isEqualTo(DoubleFormat.decimalOrNan(d));
+    }
+
+    private String encoded(Consumer<ByteBuffer> write) {
+        buffer.clear();
+        write.accept(buffer);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.statsd.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.statsd.StatsdLineBuilder;
+import io.micrometer.statsd.StatsdOverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBufferStatsdLineSenderTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StatsdLineBuilder lineBuilder = new DatadogStatsdLineBuilder(registry.counter("my.counter").getId(), registry.config());
+
+    private final BlockingSender delegate = new BlockingSender();
+    private RingBufferStatsdLineSender sender;
+
+    @AfterEach
+    void close() throws IOException {
+        delegate.release.countDown();
+        sender.close();
+    }
+
+    @Test
+    void sendsLinesInOrderOnFlush() throws InterruptedException {
+        delegate.release.countDown();
+        sender = new RingBufferStatsdLineSender(delegate, 16, StatsdOverflowPolicy.DROP_NEWEST, true);
+
+        sender.count(lineBuilder, 1, Statistic.COUNT);
+        sender.gauge(lineBuilder, 2.5, Statistic.VALUE);
+        sender.timing(lineBuilder, 3);
+        sender.flush();
+
+        awaitUntil(() -> delegate.flushes > 0);
+        assertThat(delegate.lines).containsExactly(
+                "my_counter:1|c|#statistic:count",
+                "my_counter:2.5|g|#statistic:value",
+                "my_counter:3|ms");
+    }
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        sender = new RingBufferStatsdLineSender(delegate, 1000, StatsdOverflowPolicy.DROP_NEWEST, true);
+        assertThat(sender.capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void dropNewestKeepsTheQueuedLines() throws InterruptedException {
+        sender = fullQueue(StatsdOverflowPolicy.DROP_NEWEST);
+
+        sender.count(lineBuilder, 5, Statistic.COUNT);
+        sender.count(lineBuilder, 6, Statistic.COUNT);
+        assertThat(sender.dropped()).isEqualTo(2);
+
+        delegate.release.countDown();
+        awaitUntil(() -> delegate.lines.size() == 5);
+        assertThat(delegate.lines).extracting(line -> line.split("[:|]")[1]).containsExactly("0", "1", "2", "3", "4");
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestLines() throws InterruptedException {
+        sender = fullQueue(StatsdOverflowPolicy.DROP_OLDEST);
+
+        sender.count(lineBuilder, 5, Statistic.COUNT);
+        sender.count(lineBuilder, 6, Statistic.COUNT);
+        assertThat(sender.dropped()).isEqualTo(2);
+
+        delegate.release.countDown();
+        awaitUntil(() -> delegate.lines.size() == 5);
+        assertThat(delegate.lines).extracting(line -> line.split("[:|]")[1]).containsExactly("0", "3", "4", "5", "6");
+    }
+
+    @Test
+    void blockWaitsForRoomInTheQueue() throws InterruptedException {
+        sender = fullQueue(StatsdOverflowPolicy.BLOCK);
+
+        Thread recorder = new Thread(() -> sender.count(lineBuilder, 5, Statistic.COUNT));
+        recorder.start();
+        recorder.join(100);
+        assertThat(recorder.isAlive()).isTrue();
+
+        delegate.release.countDown();
+        recorder.join(5000);
+        assertThat(recorder.isAlive()).isFalse();
+
+        awaitUntil(() -> delegate.lines.size() == 6);
+        assertThat(sender.dropped()).isZero();
+    }
+
+    @Test
+    void closeSendsQueuedLines() throws IOException {
+        delegate.release.countDown();
+        sender = new RingBufferStatsdLineSender(delegate, 16, StatsdOverflowPolicy.DROP_NEWEST, true);
+
+        for (int i = 0; i < 10; i++) {
+            sender.count(lineBuilder, i, Statistic.COUNT);
+        }
+        sender.close();
+
+        assertThat(delegate.lines).hasSize(10);
+        assertThat(delegate.closed).isTrue();
+
+        sender.count(lineBuilder, 10, Statistic.COUNT);
+        assertThat(sender.size()).isZero();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * @return A sender with a queue of 4 lines that is full, with one more line held up by the delegate.
+     */
+    private RingBufferStatsdLineSender fullQueue(StatsdOverflowPolicy overflowPolicy) throws InterruptedException {
+        RingBufferStatsdLineSender sender = new RingBufferStatsdLineSender(delegate, 4, overflowPolicy, false);
+        sender.count(lineBuilder, 0, Statistic.COUNT);
+        assertThat(delegate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 1; i <= 4; i++) {
+            sender.count(lineBuilder, i, Statistic.COUNT);
+        }
+        assertThat(sender.size()).isEqualTo(4);
+        return sender;
+    }
+
+    private static class BlockingSender implements StatsdLineSender {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        volatile int flushes;
+        volatile boolean closed;
+
+        @Override
+        public void count(StatsdLineBuilder lineBuilder, long amount, Statistic stat) {
+            add(lineBuilder.count(amount, stat));
+        }
+
+        @Override
+        public void gauge(StatsdLineBuilder lineBuilder, double amount, Statistic stat) {
+            add(lineBuilder.gauge(amount, stat));
+        }
+
+        @Override
+        public void histogram(StatsdLineBuilder lineBuilder, double amount) {
+            add(lineBuilder.histogram(amount));
+        }
+
+        @Override
+        public void timing(StatsdLineBuilder lineBuilder, double timeMs) {
+            add(lineBuilder.timing(timeMs));
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void add(String line) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lines.add(line);
+        }
+    }
+}
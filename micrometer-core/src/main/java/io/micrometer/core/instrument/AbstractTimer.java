@@ -81,8 +81,13 @@ public abstract class AbstractTimer extends AbstractMeter implements Timer {
         initPauseDetector(pauseDetector);
 
         if (distributionStatisticConfig.isPublishingPercentiles()) {
-            // hdr-based histogram
-            this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            if (Boolean.TRUE.equals(distributionStatisticConfig.isPercentileSketch())) {
+                // log-linear sketch, allocated only for the range of recorded values
+                this.histogram = new TimeWindowSketchHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            } else {
+                // hdr-based histogram
+                this.histogram = new TimeWindowPercentileHistogram(clock, distributionStatisticConfig, supportsAggregablePercentiles);
+            }
         } else if (distributionStatisticConfig.isPublishingHistogram()) {
             // fixed boundary histograms, which have a slightly better memory footprint
             // when we don't need Micrometer-computed percentiles
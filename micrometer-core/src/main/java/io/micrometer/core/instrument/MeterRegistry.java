@@ -29,13 +29,12 @@ import io.micrometer.core.instrument.search.RequiredSearch;
 import io.micrometer.core.instrument.search.Search;
 import io.micrometer.core.instrument.util.TimeUtils;
 import io.micrometer.core.lang.Nullable;
-import org.pcollections.HashTreePMap;
-import org.pcollections.HashTreePSet;
-import org.pcollections.PMap;
-import org.pcollections.PSet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.*;
@@ -58,22 +57,49 @@ import static java.util.Objects.requireNonNull;
  * @author Johnny Lim
  */
 public abstract class MeterRegistry {
+    /**
+     * Bound on {@link #preFilterIdToMeterMap}. Once reached, further pre-filter ids are not cached, so
+     * registries with very high meter counts fall back to applying filters on every registration.
+     */
+    private static final int MAX_PRE_FILTER_ID_CACHE_SIZE = 10_000;
+
     protected final Clock clock;
-    private final Object meterMapLock = new Object();
     private volatile MeterFilter[] filters = new MeterFilter[0];
     private final List<Consumer<Meter>> meterAddedListeners = new CopyOnWriteArrayList<>();
     private final List<Consumer<Meter>> meterRemovedListeners = new CopyOnWriteArrayList<>();
     private final Config config = new Config();
     private final More more = new More();
 
-    private volatile PMap<Id, Meter> meterMap = HashTreePMap.empty();
+    private final ConcurrentMap<Id, Meter> meterMap = new ConcurrentHashMap<>();
+
+    /**
+     * Registrations that are currently building a meter, keyed by mapped id. A registering thread claims an id
+     * by inserting its {@link PendingRegistration} here, so that only one thread ever builds a given meter (and so
+     * that listeners and synthetic associations are applied exactly once) without serializing registrations of
+     * unrelated ids on a shared monitor.
+     */
+    private final ConcurrentMap<Id, PendingRegistration> pendingRegistrations = new ConcurrentHashMap<>();
 
     /**
      * Map of meter id whose associated meter contains synthetic counterparts to those synthetic ids.
      * We maintain these associations so that when we remove a meter with synthetics, they can removed
      * as well.
      */
-    private volatile PMap<Id, PSet<Id>> syntheticAssociations = HashTreePMap.empty();
+    private final ConcurrentMap<Id, Set<Id>> syntheticAssociations = new ConcurrentHashMap<>();
+
+    /**
+     * Registered meters keyed by the id they were registered with, before any {@link MeterFilter} was applied.
+     * Repeated registrations of an existing meter (e.g. builders called on a hot path) resolve through this
+     * map without running, and allocating through, the filter chain. Entries are dropped when the meter is
+     * removed, and the whole map is dropped when a filter is added, since mappings may change as a result.
+     */
+    private final ConcurrentMap<Id, Meter> preFilterIdToMeterMap = new ConcurrentHashMap<>();
+
+    /**
+     * Reverse index of {@link #preFilterIdToMeterMap}, from the id of a registered meter to the pre-filter ids it is
+     * cached under, so that removing a meter drops its cache entries without scanning the whole cache.
+     */
+    private final ConcurrentMap<Id, Set<Id>> preFilterIdsByMappedId = new ConcurrentHashMap<>();
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private PauseDetector pauseDetector = new NoPauseDetector();
@@ -525,8 +551,19 @@ public abstract class MeterRegistry {
     private <M extends Meter> M registerMeterIfNecessary(Class<M> meterClass, Meter.Id id,
                                                          @Nullable DistributionStatisticConfig config, BiFunction<Meter.Id, DistributionStatisticConfig, M> builder,
                                                          Function<Meter.Id, M> noopBuilder) {
-        Id mappedId = getMappedId(id);
-        Meter m = getOrCreateMeter(config, builder, id, mappedId, noopBuilder);
+        Meter cached = preFilterIdToMeterMap.get(id);
+        Meter m = cached;
+
+        // ids are equal regardless of their type, so a meter of another type registered with the same id may be
+        // cached, while filters that map by type map this registration to a different meter
+        if (m == null || m.getId().getType() != id.getType() || !meterClass.isInstance(m)) {
+            MeterFilter[] filtersAtRegistration = filters;
+            Id mappedId = getMappedId(id);
+            m = getOrCreateMeter(config, builder, id, mappedId, noopBuilder);
+            if (cached == null) {
+                cachePreFilterId(id, mappedId, m, filtersAtRegistration);
+            }
+        }
 
         if (!meterClass.isInstance(m)) {
             throw new IllegalArgumentException("There is already a registered meter of a different type with the same name");
@@ -534,6 +571,28 @@ public abstract class MeterRegistry {
         return meterClass.cast(m);
     }
 
+    private void cachePreFilterId(Id preFilterId, Id mappedId, Meter m, MeterFilter[] filtersAtRegistration) {
+        // denied and post-close registrations return noop meters that are never registered, so never cache them
+        if (meterMap.get(mappedId) != m || preFilterIdToMeterMap.size() >= MAX_PRE_FILTER_ID_CACHE_SIZE) {
+            return;
+        }
+
+        // indexed before the entry is cached, so that a concurrent removal of the meter that misses the entry
+        // is seen by the check below
+        preFilterIdsByMappedId.computeIfAbsent(mappedId, id -> ConcurrentHashMap.newKeySet()).add(preFilterId);
+        preFilterIdToMeterMap.put(preFilterId, m);
+
+        // a filter added or the meter removed concurrently may have invalidated the cache before this put,
+        // in which case the entry we just cached may be stale
+        if (filters != filtersAtRegistration || meterMap.get(mappedId) != m) {
+            preFilterIdToMeterMap.remove(preFilterId, m);
+            preFilterIdsByMappedId.computeIfPresent(mappedId, (id, preFilterIds) -> {
+                preFilterIds.remove(preFilterId);
+                return preFilterIds.isEmpty() ? null : preFilterIds;
+            });
+        }
+    }
+
     private Id getMappedId(Id id) {
         if (id.syntheticAssociation() != null) {
             return id;
@@ -548,46 +607,82 @@ public abstract class MeterRegistry {
     private Meter getOrCreateMeter(@Nullable DistributionStatisticConfig config,
                                    BiFunction<Id, /*Nullable Generic*/ DistributionStatisticConfig, ? extends Meter> builder,
                                    Id originalId, Id mappedId, Function<Meter.Id, ? extends Meter> noopBuilder) {
-        Meter m = meterMap.get(mappedId);
+        while (true) {
+            Meter m = meterMap.get(mappedId);
+            if (m != null) {
+                return m;
+            }
 
-        if (m == null) {
             if (isClosed()) {
                 return noopBuilder.apply(mappedId);
             }
 
-            synchronized (meterMapLock) {
-                m = meterMap.get(mappedId);
+            PendingRegistration registration = new PendingRegistration();
+            PendingRegistration inFlight = pendingRegistrations.putIfAbsent(mappedId, registration);
+            if (inFlight != null) {
+                if (inFlight.owner == Thread.currentThread()) {
+                    // a builder is registering the meter it is building; don't wait on ourselves
+                    return createMeter(config, builder, mappedId, noopBuilder);
+                }
 
-                if (m == null) {
-                    if (!accept(mappedId)) {
-                        return noopBuilder.apply(mappedId);
-                    }
+                // another thread is building this meter, so wait for it rather than building it a second time
+                m = inFlight.await();
+                if (m != null) {
+                    return m;
+                }
+                // the other registration was denied or failed, so evaluate this one on its own terms
+                continue;
+            }
 
-                    if (config != null) {
-                        for (MeterFilter filter : filters) {
-                            DistributionStatisticConfig filteredConfig = filter.configure(mappedId, config);
-                            if (filteredConfig != null) {
-                                config = filteredConfig;
-                            }
-                        }
-                    }
+            try {
+                m = createMeter(config, builder, mappedId, noopBuilder);
+                registration.complete(meterMap.get(mappedId));
+                return m;
+            } finally {
+                // no-op if the registration already completed, but releases waiters if the builder threw
+                registration.complete(null);
+                pendingRegistrations.remove(mappedId, registration);
+            }
+        }
+    }
 
-                    m = builder.apply(mappedId, config);
+    /**
+     * Must only be called by the thread that has claimed {@code mappedId} in {@link #pendingRegistrations}.
+     */
+    private Meter createMeter(@Nullable DistributionStatisticConfig config,
+                              BiFunction<Id, /*Nullable Generic*/ DistributionStatisticConfig, ? extends Meter> builder,
+                              Id mappedId, Function<Meter.Id, ? extends Meter> noopBuilder) {
+        // the meter may have been added between the caller's lookup and its claim on the id
+        Meter m = meterMap.get(mappedId);
+        if (m != null) {
+            return m;
+        }
 
-                    Id synAssoc = mappedId.syntheticAssociation();
-                    if (synAssoc != null) {
-                        PSet<Id> existingSynthetics = syntheticAssociations.getOrDefault(synAssoc, HashTreePSet.empty());
-                        syntheticAssociations = syntheticAssociations.plus(synAssoc, existingSynthetics.plus(mappedId));
-                    }
+        if (!accept(mappedId)) {
+            return noopBuilder.apply(mappedId);
+        }
 
-                    for (Consumer<Meter> onAdd : meterAddedListeners) {
-                        onAdd.accept(m);
-                    }
-                    meterMap = meterMap.plus(mappedId, m);
+        if (config != null) {
+            for (MeterFilter filter : filters) {
+                DistributionStatisticConfig filteredConfig = filter.configure(mappedId, config);
+                if (filteredConfig != null) {
+                    config = filteredConfig;
                 }
             }
         }
 
+        m = builder.apply(mappedId, config);
+
+        Id synAssoc = mappedId.syntheticAssociation();
+        if (synAssoc != null) {
+            syntheticAssociations.computeIfAbsent(synAssoc, assoc -> ConcurrentHashMap.newKeySet()).add(mappedId);
+        }
+
+        for (Consumer<Meter> onAdd : meterAddedListeners) {
+            onAdd.accept(m);
+        }
+        meterMap.put(mappedId, m);
+
         return m;
     }
 
@@ -643,29 +738,29 @@ public abstract class MeterRegistry {
     @Incubating(since = "1.1.0")
     @Nullable
     public Meter remove(Meter.Id mappedId) {
-        Meter m = meterMap.get(mappedId);
+        Meter m = meterMap.remove(mappedId);
 
         if (m != null) {
-            synchronized (meterMapLock) {
-                m = meterMap.get(mappedId);
-                if (m != null) {
-                    meterMap = meterMap.minus(mappedId);
-
-                    for (Id synthetic : syntheticAssociations.getOrDefault(mappedId, HashTreePSet.empty())) {
-                        remove(synthetic);
-                    }
-                    syntheticAssociations = syntheticAssociations.minus(mappedId);
-
-                    for (Consumer<Meter> onRemove : meterRemovedListeners) {
-                        onRemove.accept(m);
-                    }
+            Set<Id> preFilterIds = preFilterIdsByMappedId.remove(mappedId);
+            if (preFilterIds != null) {
+                for (Id preFilterId : preFilterIds) {
+                    preFilterIdToMeterMap.remove(preFilterId, m);
+                }
+            }
 
-                    return m;
+            Set<Id> synthetics = syntheticAssociations.remove(mappedId);
+            if (synthetics != null) {
+                for (Id synthetic : synthetics) {
+                    remove(synthetic);
                 }
             }
+
+            for (Consumer<Meter> onRemove : meterRemovedListeners) {
+                onRemove.accept(m);
+            }
         }
 
-        return null;
+        return m;
     }
 
     /**
@@ -674,6 +769,8 @@ public abstract class MeterRegistry {
      */
     @Incubating(since = "1.2.0")
     public void clear() {
+        preFilterIdToMeterMap.clear();
+        preFilterIdsByMappedId.clear();
         meterMap.keySet().forEach(this::remove);
     }
 
@@ -713,6 +810,8 @@ public abstract class MeterRegistry {
             System.arraycopy(filters, 0, newFilters, 0, filters.length);
             newFilters[filters.length] = filter;
             filters = newFilters;
+            preFilterIdToMeterMap.clear();
+            preFilterIdsByMappedId.clear();
             return this;
         }
 
@@ -946,10 +1045,8 @@ public abstract class MeterRegistry {
      */
     public void close() {
         if (closed.compareAndSet(false, true)) {
-            synchronized (meterMapLock) {
-                for (Meter meter : meterMap.values()) {
-                    meter.close();
-                }
+            for (Meter meter : meterMap.values()) {
+                meter.close();
             }
         }
     }
@@ -962,4 +1059,45 @@ public abstract class MeterRegistry {
     public boolean isClosed() {
         return closed.get();
     }
+
+    /**
+     * Hand-off point between the thread building a meter and any other threads concurrently registering
+     * the same id.
+     */
+    private static final class PendingRegistration {
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch built = new CountDownLatch(1);
+
+        @Nullable
+        private volatile Meter meter;
+
+        void complete(@Nullable Meter meter) {
+            if (built.getCount() > 0) {
+                this.meter = meter;
+                built.countDown();
+            }
+        }
+
+        /**
+         * @return The registered meter, or {@code null} if the registration was denied or failed.
+         */
+        @Nullable
+        Meter await() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        built.await();
+                        return meter;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
 }
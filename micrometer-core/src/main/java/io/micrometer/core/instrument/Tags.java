@@ -15,9 +15,12 @@
  */
 package io.micrometer.core.instrument;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.lang.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -35,13 +38,48 @@ public final class Tags implements Iterable<Tag> {
 
     private static final Tags EMPTY = new Tags(new Tag[]{});
 
+    /**
+     * Upper bound on the number of distinct tag sets held by {@link #intern()}, so that interning
+     * high-cardinality tag sets can't grow the pool without limit.
+     */
+    private static final int MAX_INTERNED_TAGS = 4096;
+
+    private static final ConcurrentMap<Tags, Tags> INTERNED = new ConcurrentHashMap<>();
+
     private final Tag[] tags;
     private int last;
 
+    /**
+     * Cached hash code, lazily computed. Zero until first computed.
+     */
+    private int hash;
+
     private Tags(Tag[] tags) {
         this.tags = tags;
-        Arrays.sort(this.tags);
-        dedup();
+        if (isSortedAndDistinct(tags)) {
+            last = tags.length;
+        } else {
+            Arrays.sort(this.tags);
+            dedup();
+        }
+    }
+
+    /**
+     * @param tags Tags that are already sorted and deduplicated by key up to {@code last}.
+     * @param last The number of leading elements of {@code tags} that are in use.
+     */
+    private Tags(Tag[] tags, int last) {
+        this.tags = tags;
+        this.last = last;
+    }
+
+    private static boolean isSortedAndDistinct(Tag[] tags) {
+        for (int i = 1; i < tags.length; i++) {
+            if (tags[i - 1].compareTo(tags[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void dedup() {
@@ -71,7 +109,7 @@ public final class Tags implements Iterable<Tag> {
      * @return a new {@code Tags} instance
      */
     public Tags and(String key, String value) {
-        return and(Tag.of(key, value));
+        return merge(new Tag[]{Tag.of(key, value)}, 1);
     }
 
     /**
@@ -97,10 +135,11 @@ public final class Tags implements Iterable<Tag> {
         if (tags == null || tags.length == 0) {
             return this;
         }
-        Tag[] newTags = new Tag[last + tags.length];
-        System.arraycopy(this.tags, 0, newTags, 0, last);
-        System.arraycopy(tags, 0, newTags, last, tags.length);
-        return new Tags(newTags);
+        if (last == 0) {
+            return new Tags(tags.clone());
+        }
+        Tags other = new Tags(tags.clone());
+        return merge(other.tags, other.last);
     }
 
     /**
@@ -118,7 +157,66 @@ public final class Tags implements Iterable<Tag> {
             return Tags.of(tags);
         }
 
-        return and(Tags.of(tags).tags);
+        Tags other = Tags.of(tags);
+        return merge(other.tags, other.last);
+    }
+
+    /**
+     * Linear merge of this collection with other tags that are already sorted and deduplicated, avoiding
+     * a re-sort of the combined array. Where both contain the same key, the other tag wins.
+     *
+     * @param otherTags     Tags that are sorted and deduplicated by key up to {@code otherLast}.
+     * @param otherLast     The number of leading elements of {@code otherTags} that are in use.
+     * @return a new {@code Tags} instance
+     */
+    private Tags merge(Tag[] otherTags, int otherLast) {
+        if (otherLast == 0) {
+            return this;
+        }
+
+        Tag[] merged = new Tag[last + otherLast];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < last && j < otherLast) {
+            int cmp = tags[i].compareTo(otherTags[j]);
+            if (cmp < 0) {
+                merged[k++] = tags[i++];
+            } else if (cmp > 0) {
+                merged[k++] = otherTags[j++];
+            } else {
+                merged[k++] = otherTags[j++];
+                i++;
+            }
+        }
+        while (i < last) {
+            merged[k++] = tags[i++];
+        }
+        while (j < otherLast) {
+            merged[k++] = otherTags[j++];
+        }
+        return new Tags(merged, k);
+    }
+
+    /**
+     * Return a canonical instance equal to this one, so that identical tag sets built in different places (for
+     * example on every request) can share one instance and its cached hash code. The interning pool is bounded;
+     * once it is full, tag sets not already in it are returned as-is.
+     *
+     * @return an instance equal to this one, shared with other callers of this method
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    public Tags intern() {
+        Tags interned = INTERNED.get(this);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_INTERNED_TAGS) {
+            return this;
+        }
+        interned = INTERNED.putIfAbsent(this, this);
+        return interned == null ? this : interned;
     }
 
     @Override
@@ -157,9 +255,13 @@ public final class Tags implements Iterable<Tag> {
 
     @Override
     public int hashCode() {
-        int result = 1;
-        for (int i = 0; i < last; i++) {
-            result = 31 * result + tags[i].hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < last; i++) {
+                result = 31 * result + tags[i].hashCode();
+            }
+            hash = result;
         }
         return result;
     }
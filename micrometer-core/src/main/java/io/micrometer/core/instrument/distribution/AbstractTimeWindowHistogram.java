@@ -28,6 +28,11 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 /**
  * An abstract base class for histogram implementations who maintain samples in a ring buffer
  * to decay older samples and give greater weight to recent samples.
+ * <p>
+ * By default, every sample is written to every bucket of the ring buffer, so that the current bucket alone always
+ * holds the whole time window. With {@link DistributionStatisticConfig#isLazyBucketMerge()}, each sample is
+ * instead written only to the bucket for the current interval, and the buckets are merged when a snapshot is
+ * taken. This divides the recording cost by the buffer length at the expense of extra work per snapshot.
  *
  * @param <T> the type of the buckets in a ring buffer
  * @param <U> the type of accumulated histogram
@@ -45,6 +50,7 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
 
     private final Clock clock;
     private final boolean supportsAggregablePercentiles;
+    final boolean lazyBucketMerge;
 
     private final T[] ringBuffer;
     private short currentBucket;
@@ -65,6 +71,7 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
         this.clock = clock;
         this.distributionStatisticConfig = validateDistributionConfig(distributionStatisticConfig);
         this.supportsAggregablePercentiles = supportsAggregablePercentiles;
+        this.lazyBucketMerge = Boolean.TRUE.equals(distributionStatisticConfig.isLazyBucketMerge());
 
         final int ageBuckets = distributionStatisticConfig.getBufferLength();
         if (ageBuckets <= 0) {
@@ -210,8 +217,12 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     public void recordLong(long value) {
         rotate();
         try {
-            for (T bucket : ringBuffer) {
-                recordLong(bucket, value);
+            if (lazyBucketMerge) {
+                recordLong(ringBuffer[currentBucket], value);
+            } else {
+                for (T bucket : ringBuffer) {
+                    recordLong(bucket, value);
+                }
             }
         } catch (IndexOutOfBoundsException ignored) {
             // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
@@ -223,8 +234,12 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     public void recordDouble(double value) {
         rotate();
         try {
-            for (T bucket : ringBuffer) {
-                recordDouble(bucket, value);
+            if (lazyBucketMerge) {
+                recordDouble(ringBuffer[currentBucket], value);
+            } else {
+                for (T bucket : ringBuffer) {
+                    recordDouble(bucket, value);
+                }
             }
         } catch (IndexOutOfBoundsException ignored) {
             // the value is so large (or small) that the dynamic range of the histogram cannot be extended to include it
@@ -249,9 +264,19 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
             int iterations = 0;
             synchronized (this) {
                 do {
-                    resetBucket(ringBuffer[currentBucket]);
-                    if (++currentBucket >= ringBuffer.length) {
-                        currentBucket = 0;
+                    if (lazyBucketMerge) {
+                        // each bucket holds a single interval, so the oldest one is cleared to hold the new interval
+                        if (++currentBucket >= ringBuffer.length) {
+                            currentBucket = 0;
+                        }
+                        resetBucket(ringBuffer[currentBucket]);
+                    } else {
+                        // the current bucket holds the whole window, so it is cleared to start accumulating a
+                        // fresh window and the next bucket, holding the most history, takes over
+                        resetBucket(ringBuffer[currentBucket]);
+                        if (++currentBucket >= ringBuffer.length) {
+                            currentBucket = 0;
+                        }
                     }
                     timeSinceLastRotateMillis -= durationBetweenRotatesMillis;
                     lastRotateTimestampMillis += durationBetweenRotatesMillis;
@@ -272,4 +297,8 @@ abstract class AbstractTimeWindowHistogram<T, U> implements Histogram {
     protected T currentHistogram() {
         return ringBuffer[currentBucket];
     }
+
+    protected T[] ringBuffer() {
+        return ringBuffer;
+    }
 }
@@ -72,6 +72,15 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
     @Nullable
     private Integer bufferLength;
 
+    @Nullable
+    private Boolean lazyBucketMerge;
+
+    @Nullable
+    private Boolean stripedHistogramBuckets;
+
+    @Nullable
+    private Boolean percentileSketch;
+
     public static Builder builder() {
         return new Builder();
     }
@@ -94,6 +103,9 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
                 .maximumExpectedValue(this.maximumExpectedValue == null ? parent.maximumExpectedValue : this.maximumExpectedValue)
                 .expiry(this.expiry == null ? parent.expiry : this.expiry)
                 .bufferLength(this.bufferLength == null ? parent.bufferLength : this.bufferLength)
+                .lazyBucketMerge(this.lazyBucketMerge == null ? parent.lazyBucketMerge : this.lazyBucketMerge)
+                .stripedHistogramBuckets(this.stripedHistogramBuckets == null ? parent.stripedHistogramBuckets : this.stripedHistogramBuckets)
+                .percentileSketch(this.percentileSketch == null ? parent.percentileSketch : this.percentileSketch)
                 .build();
     }
 
@@ -228,6 +240,48 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
         return bufferLength;
     }
 
+    /**
+     * Determines how samples are written to the ring buffer of {@link #bufferLength} histograms. By default,
+     * each sample is written to every histogram in the ring buffer. When enabled, each sample is written only to the
+     * histogram for the current interval, and the ring buffer is merged when distribution statistics are published.
+     * This divides the cost of recording a sample by the buffer length, moving that work to the publishing thread.
+     *
+     * @return Whether histograms in the ring buffer are merged when published rather than on every sample.
+     * @since 1.3.17
+     */
+    @Nullable
+    public Boolean isLazyBucketMerge() {
+        return lazyBucketMerge;
+    }
+
+    /**
+     * Fixed boundary histogram buckets are counted in a single array shared by every recording thread. When
+     * enabled, each bucket is instead counted in per-thread stripes that are summed when the histogram is published,
+     * trading memory for less contention between threads recording to the same meter.
+     *
+     * @return Whether fixed boundary histogram bucket counts are striped across recording threads.
+     * @since 1.3.17
+     */
+    @Nullable
+    public Boolean isStripedHistogramBuckets() {
+        return stripedHistogramBuckets;
+    }
+
+    /**
+     * Percentiles computed by Micrometer are by default approximated with HdrHistogram, which preallocates enough
+     * counts for the whole dynamic range of a histogram. When enabled, they are instead approximated with a compact
+     * log-linear sketch with the same {@link #percentilePrecision}, whose counts are allocated only for the
+     * ranges of values that are actually recorded. This considerably reduces the footprint of each meter
+     * publishing percentiles, which matters when there are many of them.
+     *
+     * @return Whether percentiles are approximated with a compact sketch rather than HdrHistogram.
+     * @since 1.3.17
+     */
+    @Nullable
+    public Boolean isPercentileSketch() {
+        return percentileSketch;
+    }
+
     /**
      * Publish at a minimum a histogram containing your defined SLA boundaries. When used in conjunction with
      * {@link #percentileHistogram}, the boundaries defined here are included alongside other buckets used to
@@ -386,6 +440,52 @@ public class DistributionStatisticConfig implements Mergeable<DistributionStatis
             return this;
         }
 
+        /**
+         * Determines how samples are written to the ring buffer of {@link #bufferLength} histograms. By default,
+         * each sample is written to every histogram in the ring buffer. When enabled, each sample is written only to
+         * the histogram for the current interval, and the ring buffer is merged when distribution statistics are
+         * published. This divides the cost of recording a sample by the buffer length, moving that work to the
+         * publishing thread.
+         *
+         * @param enabled Whether to merge histograms in the ring buffer when published rather than on every sample.
+         * @return This builder.
+         * @since 1.3.17
+         */
+        public Builder lazyBucketMerge(@Nullable Boolean enabled) {
+            config.lazyBucketMerge = enabled;
+            return this;
+        }
+
+        /**
+         * Fixed boundary histogram buckets are counted in a single array shared by every recording thread. When
+         * enabled, each bucket is instead counted in per-thread stripes that are summed when the histogram is
+         * published, trading memory for less contention between threads recording to the same meter.
+         *
+         * @param enabled Whether to stripe fixed boundary histogram bucket counts across recording threads.
+         * @return This builder.
+         * @since 1.3.17
+         */
+        public Builder stripedHistogramBuckets(@Nullable Boolean enabled) {
+            config.stripedHistogramBuckets = enabled;
+            return this;
+        }
+
+        /**
+         * Percentiles computed by Micrometer are by default approximated with HdrHistogram, which preallocates enough
+         * counts for the whole dynamic range of a histogram. When enabled, they are instead approximated with a
+         * compact log-linear sketch with the same {@link #percentilePrecision}, whose counts are allocated only for
+         * the ranges of values that are actually recorded. This considerably reduces the footprint of each meter
+         * publishing percentiles, which matters when there are many of them.
+         *
+         * @param enabled Whether to approximate percentiles with a compact sketch rather than HdrHistogram.
+         * @return This builder.
+         * @since 1.3.17
+         */
+        public Builder percentileSketch(@Nullable Boolean enabled) {
+            config.percentileSketch = enabled;
+            return this;
+        }
+
         /**
          * @return A new immutable distribution configuration.
          */
@@ -29,6 +29,15 @@ public class PercentileHistogramBuckets {
     // Bucket values to use, see static block for initialization.
     private static final NavigableSet<Long> PERCENTILE_BUCKETS;
 
+    // The same bucket values in ascending order, indexed by bucketIndex.
+    private static final long[] PERCENTILE_BUCKET_VALUES;
+
+    // Index of the first bucket generated from each power of 4, starting at 4^1.
+    private static final int[] POWER_OF_4_FIRST_INDEX = new int[32];
+
+    // Number of buckets generated from each power of 4, starting at 4^1.
+    private static final int[] POWER_OF_4_BUCKET_COUNT = new int[32];
+
     // The set of buckets is generated by using powers of 4 and incrementing by one-third of the
     // previous power of 4 in between as long as the value is less than the next power of 4 minus
     // the delta.
@@ -57,13 +66,17 @@ public class PercentileHistogramBuckets {
             long delta = current / 3;
             long next = (current << DIGITS) - delta;
 
+            POWER_OF_4_FIRST_INDEX[exp / DIGITS - 1] = PERCENTILE_BUCKETS.size();
             while (current < next) {
                 PERCENTILE_BUCKETS.add(current);
                 current += delta;
             }
+            POWER_OF_4_BUCKET_COUNT[exp / DIGITS - 1] = PERCENTILE_BUCKETS.size() - POWER_OF_4_FIRST_INDEX[exp / DIGITS - 1];
             exp += DIGITS;
         }
         PERCENTILE_BUCKETS.add(Long.MAX_VALUE);
+
+        PERCENTILE_BUCKET_VALUES = PERCENTILE_BUCKETS.stream().mapToLong(Long::longValue).toArray();
     }
 
     /**
@@ -80,4 +93,34 @@ public class PercentileHistogramBuckets {
         return PERCENTILE_BUCKETS.subSet(distributionStatisticConfig.getMinimumExpectedValue(), true,
                 distributionStatisticConfig.getMaximumExpectedValue(), true);
     }
+
+    /**
+     * Computes in constant time the index of the least percentile bucket that is greater than or equal to a value,
+     * i.e. the bucket the value is counted in. Rather than searching the buckets, the power of 4 a value falls in is
+     * found from its highest set bit, and the offset within that power of 4 from its evenly spaced increments.
+     *
+     * @param value A sample.
+     * @return The index of the bucket a sample falls in, in the ascending order of all percentile buckets.
+     */
+    static int bucketIndex(long value) {
+        if (value <= 3) {
+            return value <= 1 ? 0 : (int) value - 1;
+        }
+
+        int exp = (63 - Long.numberOfLeadingZeros(value)) & -DIGITS;
+        long current = 1L << exp;
+        long delta = current / 3;
+
+        int power = exp / DIGITS - 1;
+        long offset = (value - current + delta - 1) / delta;
+        return POWER_OF_4_FIRST_INDEX[power] + (int) Math.min(offset, POWER_OF_4_BUCKET_COUNT[power]);
+    }
+
+    /**
+     * @param index An index in the ascending order of all percentile buckets.
+     * @return The percentile bucket at this index.
+     */
+    static long bucket(int index) {
+        return PERCENTILE_BUCKET_VALUES[index];
+    }
 }
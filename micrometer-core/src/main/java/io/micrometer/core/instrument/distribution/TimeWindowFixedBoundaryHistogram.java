@@ -16,13 +16,16 @@
 package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
 
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A histogram implementation that does not support precomputed percentiles but supports
@@ -33,8 +36,38 @@ import java.util.concurrent.atomic.AtomicLongArray;
  * @since 1.0.3
  */
 public class TimeWindowFixedBoundaryHistogram
-        extends AbstractTimeWindowHistogram<TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram, Void> {
+        extends AbstractTimeWindowHistogram<TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram, TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram> {
+    /**
+     * Upper bound on the number of stripes used when {@link DistributionStatisticConfig#isStripedHistogramBuckets()}
+     * is enabled, which bounds the memory a striped histogram can grow to.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Per-thread hash that selects the stripe a thread records into, which is moved to another stripe whenever the
+     * thread finds its stripe contended, in the way {@link java.util.concurrent.atomic.LongAdder} spreads threads
+     * over its cells. It is shared by all striped histograms, so a thread is only seeded once.
+     */
+    private static final ThreadLocal<int[]> STRIPE_PROBE = ThreadLocal.withInitial(
+            () -> new int[]{ThreadLocalRandom.current().nextInt() | 1});
+
+    /**
+     * Marks a percentile bucket whose range contains more than one of this histogram's buckets, so a sample
+     * falling in it has to be binary searched.
+     */
+    private static final int SEARCH_BUCKETS = -2;
+
     private final long[] buckets;
+    private final boolean striped;
+
+    /**
+     * When this histogram includes percentile histogram buckets, maps the index of the percentile bucket a sample
+     * falls in (offset by {@link #firstPercentileBucketIndex}) to the index of this histogram's bucket, so most
+     * samples are counted without a binary search.
+     */
+    @Nullable
+    private final int[] percentileBucketToBucketIndex;
+    private final int firstPercentileBucketIndex;
 
     public TimeWindowFixedBoundaryHistogram(Clock clock, DistributionStatisticConfig config, boolean supportsAggregablePercentiles) {
         super(clock, config, FixedBoundaryHistogram.class, supportsAggregablePercentiles);
@@ -47,12 +80,29 @@ public class TimeWindowFixedBoundaryHistogram
         }
 
         this.buckets = histogramBuckets.stream().filter(Objects::nonNull).mapToLong(Long::longValue).toArray();
+
+        if (percentileHistogram != null && percentileHistogram && buckets.length > 0) {
+            this.firstPercentileBucketIndex = PercentileHistogramBuckets.bucketIndex(buckets[0]);
+            int lastPercentileBucketIndex = PercentileHistogramBuckets.bucketIndex(buckets[buckets.length - 1]);
+            this.percentileBucketToBucketIndex = new int[lastPercentileBucketIndex - firstPercentileBucketIndex + 1];
+            for (int i = firstPercentileBucketIndex; i <= lastPercentileBucketIndex; i++) {
+                long lowerExclusive = i == 0 ? Long.MIN_VALUE : PercentileHistogramBuckets.bucket(i - 1);
+                int index = binarySearchBucketIndex(PercentileHistogramBuckets.bucket(i));
+                percentileBucketToBucketIndex[i - firstPercentileBucketIndex] =
+                        binarySearchBucketIndex(lowerExclusive + 1) == index ? index : SEARCH_BUCKETS;
+            }
+        } else {
+            this.firstPercentileBucketIndex = 0;
+            this.percentileBucketToBucketIndex = null;
+        }
+
+        this.striped = Boolean.TRUE.equals(distributionStatisticConfig.isStripedHistogramBuckets());
         initRingBuffer();
     }
 
     @Override
     FixedBoundaryHistogram newBucket() {
-        return new FixedBoundaryHistogram();
+        return striped ? new StripedFixedBoundaryHistogram() : new FixedBoundaryHistogram();
     }
 
     @Override
@@ -65,19 +115,69 @@ public class TimeWindowFixedBoundaryHistogram
         recordLong(bucket, (long) Math.ceil(value));
     }
 
+    /**
+     * @param value A sample.
+     * @return The index of the least bucket that is greater than or equal to the sample, or -1 if the sample
+     * exceeds every bucket.
+     */
+    int bucketIndex(long value) {
+        if (percentileBucketToBucketIndex != null) {
+            int i = PercentileHistogramBuckets.bucketIndex(value) - firstPercentileBucketIndex;
+            if (i < 0) {
+                return 0;
+            }
+            if (i >= percentileBucketToBucketIndex.length) {
+                return -1;
+            }
+            int index = percentileBucketToBucketIndex[i];
+            if (index != SEARCH_BUCKETS) {
+                return index;
+            }
+        }
+        return binarySearchBucketIndex(value);
+    }
+
+    private int binarySearchBucketIndex(long key) {
+        int low = 0;
+        int high = buckets.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (buckets[mid] < key)
+                low = mid + 1;
+            else if (buckets[mid] > key)
+                high = mid - 1;
+            else
+                return mid; // exact match
+        }
+
+        return low < buckets.length ? low : -1;
+    }
+
     @Override
     void resetBucket(FixedBoundaryHistogram bucket) {
         bucket.reset();
     }
 
     @Override
-    Void newAccumulatedHistogram(FixedBoundaryHistogram[] ringBuffer) {
-        return null;
+    @Nullable
+    FixedBoundaryHistogram newAccumulatedHistogram(FixedBoundaryHistogram[] ringBuffer) {
+        // when every sample is written to every bucket, the current bucket already holds the whole window
+        return lazyBucketMerge ? new FixedBoundaryHistogram() : null;
     }
 
     @Override
     void accumulate() {
-        // do nothing -- we aren't using swaps for source and accumulated
+        if (lazyBucketMerge) {
+            FixedBoundaryHistogram accumulated = accumulatedHistogram();
+            for (int i = 0; i < buckets.length; i++) {
+                long count = 0;
+                for (FixedBoundaryHistogram bucket : ringBuffer()) {
+                    count += bucket.count(i);
+                }
+                accumulated.values.set(i, count);
+            }
+        }
     }
 
     @Override
@@ -91,7 +191,14 @@ public class TimeWindowFixedBoundaryHistogram
 
     @Override
     double countAtValue(long value) {
-        return currentHistogram().countAtValue(value);
+        return windowHistogram().countAtValue(value);
+    }
+
+    /**
+     * @return The histogram holding the counts for the whole time window.
+     */
+    private FixedBoundaryHistogram windowHistogram() {
+        return lazyBucketMerge ? accumulatedHistogram() : currentHistogram();
     }
 
     @Override
@@ -103,7 +210,7 @@ public class TimeWindowFixedBoundaryHistogram
         for (int i = 0; i < buckets.length; i++) {
             printStream.format(Locale.US, bucketFormatString,
                     buckets[i] / bucketScaling,
-                    currentHistogram().values.get(i));
+                    windowHistogram().count(i));
         }
 
         printStream.write('\n');
@@ -126,10 +233,17 @@ public class TimeWindowFixedBoundaryHistogram
                 return 0;
             long count = 0;
             for (int i = 0; i <= index; i++)
-                count += values.get(i);
+                count += count(i);
             return count;
         }
 
+        /**
+         * @return The non-cumulative count of the bucket at this index.
+         */
+        long count(int index) {
+            return values.get(index);
+        }
+
         void reset() {
             for (int i = 0; i < values.length(); i++) {
                values.set(i, 0);
@@ -138,29 +252,120 @@ public class TimeWindowFixedBoundaryHistogram
         }
 
         void record(long value) {
-            int index = leastLessThanOrEqualTo(value);
+            int index = bucketIndex(value);
             if (index > -1)
-                values.incrementAndGet(index);
+                increment(index);
+        }
+
+        void increment(int index) {
+            values.incrementAndGet(index);
         }
 
         /**
          * The least bucket that is less than or equal to a sample.
          */
         int leastLessThanOrEqualTo(long key) {
-            int low = 0;
-            int high = buckets.length - 1;
-
-            while (low <= high) {
-                int mid = (low + high) >>> 1;
-                if (buckets[mid] < key)
-                    low = mid + 1;
-                else if (buckets[mid] > key)
-                    high = mid - 1;
-                else
-                    return mid; // exact match
+            return binarySearchBucketIndex(key);
+        }
+    }
+
+    /**
+     * Spreads increments over stripes of bucket counts, so that threads recording into the same or neighbouring
+     * buckets of a hot histogram don't contend on the same cache lines. Like {@link java.util.concurrent.atomic.LongAdder},
+     * all threads record into the first stripe until one of them loses a race there. From then on each thread records
+     * into the stripe selected by its probe, and is moved to another stripe whenever it loses a race again. Stripes
+     * beyond the first are only allocated once a thread is moved to them.
+     */
+    class StripedFixedBoundaryHistogram extends FixedBoundaryHistogram {
+        /**
+         * Unused longs at either end of each stripe so that the counts of two stripes never share a cache line.
+         */
+        private static final int PADDING = 8;
+
+        private final int stripeMask;
+
+        /**
+         * Stripe 0 is {@link #values} itself.
+         */
+        private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+        private volatile boolean contended;
+
+        StripedFixedBoundaryHistogram() {
+            int stripeCount = 1;
+            while (stripeCount < Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES)) {
+                stripeCount <<= 1;
             }
+            this.stripeMask = stripeCount - 1;
+            this.stripes = new AtomicReferenceArray<>(stripeCount);
+            this.stripes.set(0, values);
+        }
 
-            return low < buckets.length ? low : -1;
+        @Override
+        void increment(int index) {
+            if (stripeMask == 0) {
+                values.incrementAndGet(index);
+                return;
+            }
+
+            if (!contended) {
+                long count = values.get(index);
+                if (values.compareAndSet(index, count, count + 1)) {
+                    return;
+                }
+                contended = true;
+            }
+
+            int[] probe = STRIPE_PROBE.get();
+            int stripe = probe[0] & stripeMask;
+            AtomicLongArray counts;
+            if (stripe == 0) {
+                counts = values;
+            } else {
+                counts = stripes.get(stripe);
+                if (counts == null) {
+                    stripes.compareAndSet(stripe, null, new AtomicLongArray(buckets.length + 2 * PADDING));
+                    counts = stripes.get(stripe);
+                }
+                index += PADDING;
+            }
+
+            long count = counts.get(index);
+            if (!counts.compareAndSet(index, count, count + 1)) {
+                // another thread is recording into this stripe, so move this thread to another stripe (by an
+                // xorshift of its probe) for its next samples
+                int h = probe[0];
+                h ^= h << 13;
+                h ^= h >>> 17;
+                h ^= h << 5;
+                probe[0] = h;
+                counts.incrementAndGet(index);
+            }
+        }
+
+        @Override
+        long count(int index) {
+            long count = values.get(index);
+            for (int stripe = 1; stripe < stripes.length(); stripe++) {
+                AtomicLongArray counts = stripes.get(stripe);
+                if (counts != null) {
+                    count += counts.get(index + PADDING);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            for (int stripe = 1; stripe < stripes.length(); stripe++) {
+                AtomicLongArray counts = stripes.get(stripe);
+                if (counts != null) {
+                    for (int i = PADDING; i < PADDING + buckets.length; i++) {
+                        counts.set(i, 0);
+                    }
+                }
+            }
         }
     }
 }
@@ -20,12 +20,15 @@ import io.micrometer.core.instrument.util.TimeUtils;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.function.DoubleSupplier;
-import java.util.function.LongSupplier;
 
 /**
  * An implementation of a decaying maximum for a distribution based on a configurable ring buffer.
+ * <p>
+ * Each bucket of the ring buffer is a {@link LongAccumulator}, which updates a single value while uncontended
+ * and only spreads updates over striped cells when many threads record into the same max at once. This keeps
+ * a hot timer's max from becoming a point of cache line contention between all recording threads.
  *
  * @author Jon Schneider
  */
@@ -36,7 +39,7 @@ public class TimeWindowMax {
 
     private final Clock clock;
     private final long durationBetweenRotatesMillis;
-    private AtomicLong[] ringBuffer;
+    private LongAccumulator[] ringBuffer;
     private int currentBucket;
     private volatile long lastRotateTimestampMillis;
 
@@ -54,9 +57,9 @@ public class TimeWindowMax {
         this.lastRotateTimestampMillis = clock.wallTime();
         this.currentBucket = 0;
 
-        this.ringBuffer = new AtomicLong[bufferLength];
+        this.ringBuffer = new LongAccumulator[bufferLength];
         for (int i = 0; i < bufferLength; i++) {
-            this.ringBuffer[i] = new AtomicLong();
+            this.ringBuffer[i] = new LongAccumulator(Math::max, 0);
         }
     }
 
@@ -67,14 +70,13 @@ public class TimeWindowMax {
      * @param timeUnit The unit of time of the incoming sample.
      */
     public void record(double sample, TimeUnit timeUnit) {
-        record(() -> (long) TimeUtils.convert(sample, timeUnit, TimeUnit.NANOSECONDS));
+        rotate();
+        record((long) TimeUtils.convert(sample, timeUnit, TimeUnit.NANOSECONDS));
     }
 
-    private void record(LongSupplier sampleSupplier) {
-        rotate();
-        long sample = sampleSupplier.getAsLong();
-        for (AtomicLong max : ringBuffer) {
-            updateMax(max, sample);
+    private void record(long sample) {
+        for (LongAccumulator max : ringBuffer) {
+            max.accumulate(sample);
         }
     }
 
@@ -106,14 +108,8 @@ public class TimeWindowMax {
      * @param sample The value to record.
      */
     public void record(double sample) {
-        record(() -> Double.doubleToLongBits(sample));
-    }
-
-    private void updateMax(AtomicLong max, long sample) {
-        long curMax;
-        do {
-            curMax = max.get();
-        } while (curMax < sample && !max.compareAndSet(curMax, sample));
+        rotate();
+        record(Double.doubleToLongBits(sample));
     }
 
     private void rotate() {
@@ -132,7 +128,9 @@ public class TimeWindowMax {
             int iterations = 0;
             synchronized (this) {
                 do {
-                    ringBuffer[currentBucket].set(0);
+                    // a sample racing with this reset may be lost from this bucket only, which at this point
+                    // starts accumulating a fresh window and won't be polled for another bufferLength rotations
+                    ringBuffer[currentBucket].reset();
                     if (++currentBucket >= ringBuffer.length) {
                         currentBucket = 0;
                     }
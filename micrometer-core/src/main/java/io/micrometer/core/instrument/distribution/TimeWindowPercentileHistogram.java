@@ -16,58 +16,79 @@
 package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.lang.Nullable;
+import org.HdrHistogram.ConcurrentDoubleHistogram;
 import org.HdrHistogram.DoubleHistogram;
 import org.HdrHistogram.DoubleRecorder;
+import org.HdrHistogram.DoubleValueRecorder;
 
 import java.io.PrintStream;
 
 /**
  * A histogram implementation that supports the computation of percentiles by Micrometer for
  * publishing to a monitoring system.
+ * <p>
+ * Buckets are {@link DoubleRecorder DoubleRecorders} whose interval histograms are drained into the accumulated
+ * histogram, or with {@link DistributionStatisticConfig#isLazyBucketMerge()}, {@link ConcurrentDoubleHistogram
+ * ConcurrentDoubleHistograms} that each hold one interval and are summed into the accumulated histogram on snapshot.
  *
  * @author Jon Schneider
  * @author Trustin Heuiseung Lee
  */
-public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<DoubleRecorder, DoubleHistogram> {
+public class TimeWindowPercentileHistogram extends AbstractTimeWindowHistogram<DoubleValueRecorder, DoubleHistogram> {
 
+    /**
+     * Only used to drain recorders, so not needed when merging buckets lazily.
+     */
+    @Nullable
     private final DoubleHistogram intervalHistogram;
 
     public TimeWindowPercentileHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
                                          boolean supportsAggregablePercentiles) {
-        super(clock, distributionStatisticConfig, DoubleRecorder.class, supportsAggregablePercentiles);
-        intervalHistogram = new DoubleHistogram(percentilePrecision(distributionStatisticConfig));
+        super(clock, distributionStatisticConfig, DoubleValueRecorder.class, supportsAggregablePercentiles);
+        intervalHistogram = lazyBucketMerge ? null : new DoubleHistogram(percentilePrecision(distributionStatisticConfig));
         initRingBuffer();
     }
 
     @Override
-    DoubleRecorder newBucket() {
-        return new DoubleRecorder(percentilePrecision(distributionStatisticConfig));
+    DoubleValueRecorder newBucket() {
+        return lazyBucketMerge ?
+                new ConcurrentDoubleHistogram(percentilePrecision(distributionStatisticConfig)) :
+                new DoubleRecorder(percentilePrecision(distributionStatisticConfig));
     }
 
     @Override
-    void recordDouble(DoubleRecorder bucket, double value) {
+    void recordDouble(DoubleValueRecorder bucket, double value) {
         bucket.recordValue(value);
     }
 
     @Override
-    void recordLong(DoubleRecorder bucket, long value) {
+    void recordLong(DoubleValueRecorder bucket, long value) {
         bucket.recordValue(value);
     }
 
     @Override
-    void resetBucket(DoubleRecorder bucket) {
+    void resetBucket(DoubleValueRecorder bucket) {
         bucket.reset();
     }
 
     @Override
-    DoubleHistogram newAccumulatedHistogram(DoubleRecorder[] ringBuffer) {
+    DoubleHistogram newAccumulatedHistogram(DoubleValueRecorder[] ringBuffer) {
         return new DoubleHistogram(percentilePrecision(distributionStatisticConfig));
     }
 
     @Override
     void accumulate() {
-        currentHistogram().getIntervalHistogramInto(intervalHistogram);
-        accumulatedHistogram().add(intervalHistogram);
+        if (lazyBucketMerge) {
+            DoubleHistogram accumulated = accumulatedHistogram();
+            accumulated.reset();
+            for (DoubleValueRecorder bucket : ringBuffer()) {
+                accumulated.add((DoubleHistogram) bucket);
+            }
+        } else {
+            ((DoubleRecorder) currentHistogram()).getIntervalHistogramInto(intervalHistogram);
+            accumulatedHistogram().add(intervalHistogram);
+        }
     }
 
     @Override
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Clock;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram implementation that supports the computation of percentiles by Micrometer for
+ * publishing to a monitoring system, using much less memory than {@link TimeWindowPercentileHistogram}.
+ * <p>
+ * Samples are counted in a log-linear sketch: bucket {@code i} counts the samples in {@code (γ^(i-1), γ^i]}, so
+ * that any percentile is approximated within a relative error {@code α = (γ - 1) / (γ + 1)}, which is derived
+ * from {@link DistributionStatisticConfig#getPercentilePrecision()}. Bucket counts are allocated in chunks only for
+ * the ranges of values that are actually recorded, so a sketch's footprint grows with the spread of its samples
+ * rather than being preallocated for the whole dynamic range.
+ *
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public class TimeWindowSketchHistogram extends AbstractTimeWindowHistogram<TimeWindowSketchHistogram.Sketch, TimeWindowSketchHistogram.Sketch> {
+    /**
+     * Smallest positive value to be distinguished from zero, smaller samples are counted in the lowest bucket.
+     */
+    private static final double MIN_INDEXABLE_VALUE = 0x1.0p-32;
+
+    /**
+     * Largest value to be distinguished from larger samples, which are counted in the highest bucket.
+     */
+    private static final double MAX_INDEXABLE_VALUE = 0x1.0p64;
+
+    /**
+     * Bucket counts are split into this many chunks that are allocated on first use.
+     */
+    private static final int CHUNKS = 64;
+
+    private final double gamma;
+    private final double inverseLogGamma;
+    private final int minIndex;
+    private final int bucketCount;
+    private final int chunkLength;
+
+    /**
+     * Cumulative counts of the accumulated sketch, computed once per accumulation so that a snapshot looks up the
+     * count at each of its buckets in constant time: the count of all buckets before each chunk, and the count up to
+     * each bucket within the chunks that are in use.
+     */
+    private final long[] countBeforeChunk = new long[CHUNKS + 1];
+    private final long[][] cumulativeCounts = new long[CHUNKS][];
+
+    public TimeWindowSketchHistogram(Clock clock, DistributionStatisticConfig distributionStatisticConfig,
+                                     boolean supportsAggregablePercentiles) {
+        super(clock, distributionStatisticConfig, Sketch.class, supportsAggregablePercentiles);
+
+        Integer percentilePrecision = distributionStatisticConfig.getPercentilePrecision();
+        double relativeAccuracy = 0.5 * Math.pow(10, -(percentilePrecision == null ? 1 : percentilePrecision));
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.inverseLogGamma = 1 / Math.log(gamma);
+        this.minIndex = (int) Math.ceil(Math.log(MIN_INDEXABLE_VALUE) * inverseLogGamma);
+        this.bucketCount = (int) Math.ceil(Math.log(MAX_INDEXABLE_VALUE) * inverseLogGamma) - minIndex + 1;
+        this.chunkLength = (bucketCount + CHUNKS - 1) / CHUNKS;
+
+        initRingBuffer();
+    }
+
+    @Override
+    Sketch newBucket() {
+        return new Sketch();
+    }
+
+    @Override
+    void recordLong(Sketch bucket, long value) {
+        bucket.record(value);
+    }
+
+    @Override
+    void recordDouble(Sketch bucket, double value) {
+        bucket.record(value);
+    }
+
+    @Override
+    void resetBucket(Sketch bucket) {
+        bucket.reset();
+    }
+
+    @Override
+    Sketch newAccumulatedHistogram(Sketch[] ringBuffer) {
+        return new Sketch();
+    }
+
+    @Override
+    void accumulate() {
+        Sketch accumulated = accumulatedHistogram();
+        accumulated.reset();
+        if (lazyBucketMerge) {
+            for (Sketch bucket : ringBuffer()) {
+                accumulated.add(bucket);
+            }
+        } else {
+            accumulated.add(currentHistogram());
+        }
+
+        long count = 0;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            countBeforeChunk[chunk] = count;
+            AtomicLongArray counts = accumulated.chunks.get(chunk);
+            if (counts != null) {
+                long[] cumulative = cumulativeCounts[chunk];
+                if (cumulative == null) {
+                    cumulative = cumulativeCounts[chunk] = new long[chunkLength];
+                }
+                for (int i = 0; i < chunkLength; i++) {
+                    count += counts.get(i);
+                    cumulative[i] = count;
+                }
+            }
+        }
+        countBeforeChunk[CHUNKS] = count;
+    }
+
+    @Override
+    void resetAccumulatedHistogram() {
+        accumulatedHistogram().reset();
+        Arrays.fill(countBeforeChunk, 0);
+        for (long[] cumulative : cumulativeCounts) {
+            if (cumulative != null) {
+                Arrays.fill(cumulative, 0);
+            }
+        }
+    }
+
+    @Override
+    double valueAtPercentile(double percentile) {
+        long totalCount = countBeforeChunk[CHUNKS];
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            if (countBeforeChunk[chunk + 1] >= rank) {
+                // the chunk is in use, since its count is positive
+                long[] cumulative = cumulativeCounts[chunk];
+                for (int i = 0; i < chunkLength; i++) {
+                    if (cumulative[i] >= rank) {
+                        return value(Math.min(chunk * chunkLength + i, bucketCount - 1));
+                    }
+                }
+            }
+        }
+        return value(bucketCount - 1);
+    }
+
+    @Override
+    double countAtValue(long value) {
+        int index = index(value);
+        int chunk = index / chunkLength;
+        long[] cumulative = cumulativeCounts[chunk];
+        return cumulative == null ? countBeforeChunk[chunk] : cumulative[index - chunk * chunkLength];
+    }
+
+    @Override
+    void outputSummary(PrintStream out, double bucketScaling) {
+        Sketch accumulated = accumulatedHistogram();
+        long totalCount = accumulated.totalCount();
+
+        out.format(Locale.US, "%14s %10s %14s\n\n", "Value", "Percentile", "TotalCount");
+
+        long count = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long countInBucket = accumulated.count(i);
+            if (countInBucket > 0) {
+                count += countInBucket;
+                out.format(Locale.US, "%14.4f %10.6f %14d\n", value(i) / bucketScaling,
+                        (double) count / totalCount, count);
+            }
+        }
+
+        out.write('\n');
+    }
+
+    /**
+     * @param value A sample.
+     * @return The index of the bucket the sample is counted in.
+     */
+    int index(double value) {
+        if (value <= MIN_INDEXABLE_VALUE) {
+            return 0;
+        }
+        int index = (int) Math.ceil(Math.log(value) * inverseLogGamma) - minIndex;
+        return Math.min(index, bucketCount - 1);
+    }
+
+    /**
+     * @param index The index of a bucket.
+     * @return The value that minimizes the relative error of any sample counted in this bucket.
+     */
+    double value(int index) {
+        return index == 0 ? 0 : 2 * Math.pow(gamma, index + minIndex) / (gamma + 1);
+    }
+
+    class Sketch {
+        final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(CHUNKS);
+
+        void record(double value) {
+            int index = index(value);
+            int chunk = index / chunkLength;
+
+            AtomicLongArray counts = chunks.get(chunk);
+            if (counts == null) {
+                chunks.compareAndSet(chunk, null, new AtomicLongArray(chunkLength));
+                counts = chunks.get(chunk);
+            }
+            counts.incrementAndGet(index - chunk * chunkLength);
+        }
+
+        long count(int index) {
+            AtomicLongArray counts = chunks.get(index / chunkLength);
+            return counts == null ? 0 : counts.get(index % chunkLength);
+        }
+
+        long totalCount() {
+            long totalCount = 0;
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                AtomicLongArray counts = chunks.get(chunk);
+                if (counts != null) {
+                    for (int i = 0; i < chunkLength; i++) {
+                        totalCount += counts.get(i);
+                    }
+                }
+            }
+            return totalCount;
+        }
+
+        /**
+         * Adds the counts of another sketch to this one, allocating only the chunks the other sketch has used.
+         */
+        void add(Sketch other) {
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                AtomicLongArray otherCounts = other.chunks.get(chunk);
+                if (otherCounts != null) {
+                    AtomicLongArray counts = chunks.get(chunk);
+                    if (counts == null) {
+                        chunks.compareAndSet(chunk, null, new AtomicLongArray(chunkLength));
+                        counts = chunks.get(chunk);
+                    }
+                    for (int i = 0; i < chunkLength; i++) {
+                        counts.addAndGet(i, otherCounts.get(i));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Clears counts without releasing chunks, which are likely to be used again in the next interval.
+         */
+        void reset() {
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                AtomicLongArray counts = chunks.get(chunk);
+                if (counts != null) {
+                    for (int i = 0; i < chunkLength; i++) {
+                        counts.set(i, 0);
+                    }
+                }
+            }
+        }
+    }
+}
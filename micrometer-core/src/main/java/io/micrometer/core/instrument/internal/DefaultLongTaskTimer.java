@@ -15,65 +15,371 @@
  */
 package io.micrometer.core.instrument.internal;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.AbstractMeter;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.LongTaskTimer;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
 import io.micrometer.core.instrument.util.MeterEquivalence;
 import io.micrometer.core.instrument.util.TimeUtils;
+import io.micrometer.core.lang.Nullable;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * A {@link LongTaskTimer} that keeps its active tasks in a ring of slots, indexed by task id, so that starting and
+ * stopping a task doesn't allocate and doesn't take a lock. A task that finds its slot still taken by an older task
+ * that hasn't stopped yet is kept in a map instead. The ring is allocated when the first task starts, so timers that
+ * are registered but never used stay small.
+ * <p>
+ * Task ids are handed out in order, so the oldest active task in the ring is found by moving a head past the tasks
+ * that have stopped, which makes {@link #max(TimeUnit)} constant time in the amortized sense.
+ */
 public class DefaultLongTaskTimer extends AbstractMeter implements LongTaskTimer {
-    private final ConcurrentMap<Long, Long> tasks = new ConcurrentHashMap<>();
+    private static final int DEFAULT_CAPACITY = 256;
+
+    // the state of a slot is kept in its two lowest bits, and the task id that last used it in the rest
+    private static final long FREE = 0;
+    private static final long ACTIVE = 1;
+    private static final long CLAIMING = 2;
+    private static final long STOPPED = 3;
+
+    private static final AtomicReferenceFieldUpdater<DefaultLongTaskTimer, Ring> ringUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultLongTaskTimer.class, Ring.class, "ring");
+
+    /**
+     * Null until the first task starts.
+     */
+    @Nullable
+    private volatile Ring ring;
+
+    private final int mask;
+    private final ConcurrentMap<Long, Long> overflow = new ConcurrentHashMap<>();
+
     private final AtomicLong nextTask = new AtomicLong(0L);
+
+    /**
+     * No task older than this one is active in the ring.
+     */
+    private final AtomicLong head = new AtomicLong(0L);
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
     private final Clock clock;
 
     public DefaultLongTaskTimer(Meter.Id id, Clock clock) {
+        this(id, clock, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param id       The identifier for this long task timer.
+     * @param clock    The clock used to time tasks.
+     * @param capacity The number of tasks that can be active at once without allocating, rounded up to a power of
+     *                 two.
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    public DefaultLongTaskTimer(Meter.Id id, Clock clock, int capacity) {
         super(id);
         this.clock = clock;
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+    }
+
+    private Ring ring() {
+        Ring ring = this.ring;
+        if (ring == null) {
+            ringUpdater.compareAndSet(this, null, new Ring(mask + 1));
+            ring = this.ring;
+        }
+        return ring;
     }
 
     @Override
     public Sample start() {
+        activeTasks.incrementAndGet();
+
+        // allocated before the task id is handed out, so that every task that has been handed out has a ring
+        Ring ring = ring();
         long task = nextTask.getAndIncrement();
-        tasks.put(task, clock.monotonicTime());
+        int slot = (int) (task & mask);
+
+        long state = ring.slots.get(slot);
+        boolean free = stateOf(state) == FREE || (stateOf(state) == STOPPED && taskOf(state) < task);
+        if (free && ring.slots.compareAndSet(slot, state, state(task, CLAIMING))) {
+            ring.startTimes.set(slot, clock.monotonicTime());
+            ring.slots.set(slot, state(task, ACTIVE));
+        } else {
+            overflow.put(task, clock.monotonicTime());
+            ring.overflowed.accumulateAndGet(slot, task, Math::max);
+        }
+
         return new Sample(this, task);
     }
 
     @Override
     public long stop(long task) {
-        Long startTime = tasks.get(task);
-        if (startTime != null) {
-            tasks.remove(task);
-            return clock.monotonicTime() - startTime;
-        } else {
+        Ring ring = this.ring;
+        if (ring == null) {
             return -1L;
         }
+
+        int slot = (int) (task & mask);
+        long active = state(task, ACTIVE);
+
+        long startTime;
+        if (ring.slots.get(slot) == active) {
+            startTime = ring.startTimes.get(slot);
+            if (!ring.slots.compareAndSet(slot, active, state(task, STOPPED))) {
+                return -1L;
+            }
+        } else {
+            Long overflowStartTime = overflow.remove(task);
+            if (overflowStartTime == null) {
+                return -1L;
+            }
+            startTime = overflowStartTime;
+        }
+
+        activeTasks.decrementAndGet();
+        return clock.monotonicTime() - startTime;
     }
 
     @Override
     public double duration(long task, TimeUnit unit) {
-        Long startTime = tasks.get(task);
-        return (startTime != null) ? TimeUtils.nanosToUnit(clock.monotonicTime() - startTime, unit) : -1L;
+        long startTime = startTime(task);
+        return startTime != -1L ? TimeUtils.nanosToUnit(clock.monotonicTime() - startTime, unit) : -1L;
     }
 
     @Override
     public double duration(TimeUnit unit) {
         long now = clock.monotonicTime();
-        long sum = 0L;
-        for (long startTime : tasks.values()) {
-            sum += now - startTime;
+        long[] sum = new long[1];
+        forEachStartTime(startTime -> sum[0] += now - startTime);
+        return TimeUtils.nanosToUnit(sum[0], unit);
+    }
+
+    /**
+     * @param unit The time unit to scale the duration to.
+     * @return The duration of the oldest active task, or 0 if there are no active tasks.
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    public double max(TimeUnit unit) {
+        long now = clock.monotonicTime();
+        long oldest = oldestStartTime(now);
+        for (long startTime : overflow.values()) {
+            oldest = Math.min(oldest, startTime);
+        }
+        return TimeUtils.nanosToUnit(now - oldest, unit);
+    }
+
+    /**
+     * Takes a snapshot of the durations of the tasks that are active right now.
+     *
+     * @param percentiles The percentiles of the active durations to compute, in the range {@code [0, 1]}.
+     * @param buckets     The bucket boundaries to count the active tasks that have been running for at most as long.
+     * @return A snapshot in which the count is the number of active tasks, and the total, max, percentile values and
+     * bucket boundaries are in nanoseconds.
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    public HistogramSnapshot takeSnapshot(double[] percentiles, Duration... buckets) {
+        long now = clock.monotonicTime();
+
+        long[][] durations = {new long[Math.max(activeTasks(), 16)]};
+        int[] count = new int[1];
+        forEachStartTime(startTime -> {
+            if (count[0] == durations[0].length) {
+                durations[0] = Arrays.copyOf(durations[0], count[0] * 2);
+            }
+            durations[0][count[0]++] = now - startTime;
+        });
+
+        long[] sorted = durations[0];
+        int n = count[0];
+        Arrays.sort(sorted, 0, n);
+
+        long total = 0L;
+        for (int i = 0; i < n; i++) {
+            total += sorted[i];
+        }
+
+        ValueAtPercentile[] percentileValues = new ValueAtPercentile[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double percentile = percentiles[i];
+            double value = 0;
+            if (n > 0) {
+                int rank = (int) Math.ceil(percentile * n);
+                value = sorted[Math.min(Math.max(rank - 1, 0), n - 1)];
+            }
+            percentileValues[i] = new ValueAtPercentile(percentile, value);
+        }
+
+        CountAtBucket[] bucketCounts = new CountAtBucket[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            long bucket = buckets[i].toNanos();
+            int below = 0;
+            while (below < n && sorted[below] <= bucket) {
+                below++;
+            }
+            bucketCounts[i] = new CountAtBucket(bucket, below);
         }
-        return TimeUtils.nanosToUnit(sum, unit);
+
+        return new HistogramSnapshot(n, total, n == 0 ? 0 : sorted[n - 1], percentileValues, bucketCounts, null);
     }
 
     @Override
     public int activeTasks() {
-        return tasks.size();
+        return activeTasks.get();
+    }
+
+    private long startTime(long task) {
+        Ring ring = this.ring;
+        if (ring == null) {
+            return -1L;
+        }
+
+        int slot = (int) (task & mask);
+        long active = state(task, ACTIVE);
+        if (ring.slots.get(slot) == active) {
+            long startTime = ring.startTimes.get(slot);
+            // the slot can only be reused once the task has stopped
+            if (ring.slots.get(slot) == active) {
+                return startTime;
+            }
+        }
+        Long startTime = overflow.get(task);
+        return startTime == null ? -1L : startTime;
+    }
+
+    private void forEachStartTime(StartTimeConsumer consumer) {
+        Ring ring = this.ring;
+        if (ring == null) {
+            return;
+        }
+
+        long from = head.get();
+        long to = nextTask.get();
+        if (to - from > mask + 1) {
+            // every slot may hold an active task, and not necessarily one of the most recent ones
+            for (int slot = 0; slot <= mask; slot++) {
+                long state = ring.slots.get(slot);
+                if (stateOf(state) == ACTIVE) {
+                    acceptStartTime(ring, slot, state, consumer);
+                }
+            }
+        } else {
+            for (long task = from; task < to; task++) {
+                int slot = (int) (task & mask);
+                long active = state(task, ACTIVE);
+                if (ring.slots.get(slot) == active) {
+                    acceptStartTime(ring, slot, active, consumer);
+                }
+            }
+        }
+        for (Map.Entry<Long, Long> task : overflow.entrySet()) {
+            consumer.accept(task.getValue());
+        }
+    }
+
+    private static void acceptStartTime(Ring ring, int slot, long state, StartTimeConsumer consumer) {
+        long startTime = ring.startTimes.get(slot);
+        // the slot can only be reused once the task has stopped
+        if (ring.slots.get(slot) == state) {
+            consumer.accept(startTime);
+        }
+    }
+
+    /**
+     * Moves the head past the tasks that have stopped or were kept in the overflow map, and returns the start time of
+     * the task it stops at.
+     */
+    private long oldestStartTime(long now) {
+        Ring ring = this.ring;
+        if (ring == null) {
+            return now;
+        }
+
+        long task;
+        while ((task = head.get()) < nextTask.get()) {
+            int slot = (int) (task & mask);
+            long state = ring.slots.get(slot);
+            long slotTask = taskOf(state);
+
+            if (slotTask == task && stateOf(state) != FREE) {
+                if (stateOf(state) == ACTIVE) {
+                    long startTime = ring.startTimes.get(slot);
+                    if (ring.slots.get(slot) == state) {
+                        return startTime;
+                    }
+                    continue;
+                } else if (stateOf(state) == CLAIMING) {
+                    // started just now
+                    return now;
+                }
+            } else if (slotTask <= task && ring.overflowed.get(slot) < task) {
+                // the task has been handed out, but hasn't claimed its slot yet
+                return now;
+            }
+
+            head.compareAndSet(task, task + 1);
+        }
+        return now;
+    }
+
+    private static long state(long task, long state) {
+        return (task << 2) | state;
+    }
+
+    private static long taskOf(long state) {
+        return state >>> 2;
+    }
+
+    private static long stateOf(long state) {
+        return state & 3;
+    }
+
+    private static final class Ring {
+        final AtomicLongArray slots;
+        final AtomicLongArray startTimes;
+
+        /**
+         * The highest task id per slot that found the slot taken and was kept in {@link #overflow} instead.
+         */
+        final AtomicLongArray overflowed;
+
+        Ring(int size) {
+            this.slots = new AtomicLongArray(size);
+            this.startTimes = new AtomicLongArray(size);
+            this.overflowed = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                overflowed.set(i, -1L);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StartTimeConsumer {
+        void accept(long startTime);
     }
 
     @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
@@ -0,0 +1,292 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.push;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The readings of a batch of meters, taken once per publish and kept as primitives in arrays that are reused from
+ * one publish to the next. Exporters that write a batch with {@link PushMeterRegistry#forEachBatch} read the
+ * same values no matter when or on which thread they serialize it, without going back to the meters.
+ * <p>
+ * Times are in the base time unit of the registry. Readings that don't apply to the kind of a meter are
+ * {@link Double#NaN}. The histogram counts and percentile values of timers and distribution summaries are only read
+ * by batches that are created to read them, since taking a histogram snapshot computes them on every publish.
+ *
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public final class MeterReadings {
+    private static final CountAtBucket[] EMPTY_COUNTS = new CountAtBucket[0];
+    private static final ValueAtPercentile[] EMPTY_VALUES = new ValueAtPercentile[0];
+
+    /**
+     * The kinds of meters, one per argument of {@link Meter#match}.
+     */
+    public enum Kind {
+        GAUGE,
+        COUNTER,
+        TIMER,
+        DISTRIBUTION_SUMMARY,
+        LONG_TASK_TIMER,
+        TIME_GAUGE,
+        FUNCTION_COUNTER,
+        FUNCTION_TIMER,
+        OTHER
+    }
+
+    private final TimeUnit baseTimeUnit;
+    private final boolean readHistograms;
+
+    private int size;
+    private Meter[] meters;
+    private Kind[] kinds;
+    private double[] counts;
+    private double[] totals;
+    private double[] maxes;
+    private double[] values;
+    private HistogramSnapshot[] snapshots;
+
+    /**
+     * @param baseTimeUnit The time unit of the readings of times.
+     * @param capacity     The number of meters the batch can hold before it grows.
+     */
+    public MeterReadings(TimeUnit baseTimeUnit, int capacity) {
+        this(baseTimeUnit, capacity, false);
+    }
+
+    /**
+     * @param baseTimeUnit   The time unit of the readings of times.
+     * @param capacity       The number of meters the batch can hold before it grows.
+     * @param readHistograms Whether to read the histogram counts and percentile values of timers and distribution
+     *                       summaries, rather than just their count, total and max.
+     */
+    public MeterReadings(TimeUnit baseTimeUnit, int capacity, boolean readHistograms) {
+        this.baseTimeUnit = baseTimeUnit;
+        this.readHistograms = readHistograms;
+        int initialCapacity = Math.max(capacity, 1);
+        this.meters = new Meter[initialCapacity];
+        this.kinds = new Kind[initialCapacity];
+        this.counts = new double[initialCapacity];
+        this.totals = new double[initialCapacity];
+        this.maxes = new double[initialCapacity];
+        this.values = new double[initialCapacity];
+        this.snapshots = new HistogramSnapshot[initialCapacity];
+    }
+
+    /**
+     * Reads a meter into the next position of the batch.
+     *
+     * @param meter The meter to read.
+     */
+    public void read(Meter meter) {
+        if (size == meters.length) {
+            grow();
+        }
+
+        int i = size++;
+        meters[i] = meter;
+        counts[i] = Double.NaN;
+        totals[i] = Double.NaN;
+        maxes[i] = Double.NaN;
+        values[i] = Double.NaN;
+        snapshots[i] = null;
+
+        if (meter instanceof TimeGauge) {
+            kinds[i] = Kind.TIME_GAUGE;
+            values[i] = ((TimeGauge) meter).value(baseTimeUnit);
+        } else if (meter instanceof Gauge) {
+            kinds[i] = Kind.GAUGE;
+            values[i] = ((Gauge) meter).value();
+        } else if (meter instanceof Counter) {
+            kinds[i] = Kind.COUNTER;
+            counts[i] = ((Counter) meter).count();
+        } else if (meter instanceof Timer) {
+            Timer timer = (Timer) meter;
+            kinds[i] = Kind.TIMER;
+            if (readHistograms) {
+                // a snapshot reads the count, total and max of the timer together with its histogram
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                counts[i] = snapshot.count();
+                totals[i] = snapshot.total(baseTimeUnit);
+                maxes[i] = snapshot.max(baseTimeUnit);
+                snapshots[i] = snapshot;
+            } else {
+                counts[i] = timer.count();
+                totals[i] = timer.totalTime(baseTimeUnit);
+                maxes[i] = timer.max(baseTimeUnit);
+            }
+        } else if (meter instanceof DistributionSummary) {
+            DistributionSummary summary = (DistributionSummary) meter;
+            kinds[i] = Kind.DISTRIBUTION_SUMMARY;
+            if (readHistograms) {
+                HistogramSnapshot snapshot = summary.takeSnapshot();
+                counts[i] = snapshot.count();
+                totals[i] = snapshot.total();
+                maxes[i] = snapshot.max();
+                snapshots[i] = snapshot;
+            } else {
+                counts[i] = summary.count();
+                totals[i] = summary.totalAmount();
+                maxes[i] = summary.max();
+            }
+        } else if (meter instanceof LongTaskTimer) {
+            LongTaskTimer timer = (LongTaskTimer) meter;
+            kinds[i] = Kind.LONG_TASK_TIMER;
+            counts[i] = timer.activeTasks();
+            totals[i] = timer.duration(baseTimeUnit);
+        } else if (meter instanceof FunctionCounter) {
+            kinds[i] = Kind.FUNCTION_COUNTER;
+            counts[i] = ((FunctionCounter) meter).count();
+        } else if (meter instanceof FunctionTimer) {
+            FunctionTimer timer = (FunctionTimer) meter;
+            kinds[i] = Kind.FUNCTION_TIMER;
+            counts[i] = timer.count();
+            totals[i] = timer.totalTime(baseTimeUnit);
+        } else {
+            kinds[i] = Kind.OTHER;
+        }
+    }
+
+    /**
+     * Empties the batch, so that its arrays can be filled again.
+     */
+    public void clear() {
+        Arrays.fill(meters, 0, size, null);
+        Arrays.fill(snapshots, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return The number of meters in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The meter, to read anything else than its readings, like the measurements of a meter of kind
+     * {@link Kind#OTHER}.
+     */
+    public Meter meter(int i) {
+        return meters[checkIndex(i)];
+    }
+
+    public Meter.Id id(int i) {
+        return meters[checkIndex(i)].getId();
+    }
+
+    public Kind kind(int i) {
+        return kinds[checkIndex(i)];
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The count of a counter, function counter, timer, function timer or distribution summary, or the number
+     * of active tasks of a long task timer.
+     */
+    public double count(int i) {
+        return counts[checkIndex(i)];
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The total time of a timer or function timer, the total amount of a distribution summary, or the
+     * cumulative duration of the active tasks of a long task timer.
+     */
+    public double total(int i) {
+        return totals[checkIndex(i)];
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The max of a timer or distribution summary.
+     */
+    public double max(int i) {
+        return maxes[checkIndex(i)];
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The mean of a timer, function timer or distribution summary, which is 0 when the count is 0.
+     */
+    public double mean(int i) {
+        double count = count(i);
+        return count == 0 ? 0 : totals[i] / count;
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The value of a gauge or time gauge.
+     */
+    public double value(int i) {
+        return values[checkIndex(i)];
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The histogram counts of a timer or distribution summary, with bucket boundaries in nanoseconds for
+     * timers. Empty if the meter doesn't keep a histogram, or if the batch doesn't read histograms.
+     */
+    public CountAtBucket[] histogramCounts(int i) {
+        HistogramSnapshot snapshot = snapshots[checkIndex(i)];
+        return snapshot == null ? EMPTY_COUNTS : snapshot.histogramCounts();
+    }
+
+    /**
+     * @param i The position of a meter in the batch.
+     * @return The percentile values of a timer or distribution summary, in nanoseconds for timers. Empty if the meter
+     * doesn't compute percentiles, or if the batch doesn't read histograms.
+     */
+    public ValueAtPercentile[] percentileValues(int i) {
+        HistogramSnapshot snapshot = snapshots[checkIndex(i)];
+        return snapshot == null ? EMPTY_VALUES : snapshot.percentileValues();
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return i;
+    }
+
+    private void grow() {
+        int capacity = meters.length * 2;
+        meters = Arrays.copyOf(meters, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        maxes = Arrays.copyOf(maxes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        snapshots = Arrays.copyOf(snapshots, capacity);
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.push;
+
+/**
+ * What a {@link PushMeterRegistry} does when publishing takes so long that one or more step boundaries pass before
+ * it completes.
+ *
+ * @since 1.3.17
+ */
+public enum PublishOverrunPolicy {
+    /**
+     * Publish once more straight away, so that the step that completed while publishing is still published. Any
+     * earlier steps that completed while publishing are lost, rather than published back to back.
+     */
+    COALESCE,
+
+    /**
+     * Wait for the next step boundary, so that every publish stays aligned to the step. The steps that completed
+     * while publishing are lost.
+     */
+    SKIP
+}
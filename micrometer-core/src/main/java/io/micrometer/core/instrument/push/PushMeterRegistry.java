@@ -16,23 +16,61 @@
 package io.micrometer.core.instrument.push;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.lang.Nullable;
 import io.micrometer.core.util.internal.logging.InternalLogger;
 import io.micrometer.core.util.internal.logging.InternalLoggerFactory;
+import io.micrometer.core.util.internal.logging.WarnThenDebugLogger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * A registry that publishes its meters once per step. Publishes are scheduled just after each step boundary of the
+ * registry's clock, so that meters which report the previous step are read once that step has completed, and a
+ * publish is never started while the previous one is still running.
+ */
 public abstract class PushMeterRegistry extends MeterRegistry {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PushMeterRegistry.class);
+    private static final WarnThenDebugLogger overrunLogger = new WarnThenDebugLogger(PushMeterRegistry.class);
     private final PushRegistryConfig config;
 
     @Nullable
     private ScheduledExecutorService scheduledExecutorService;
 
+    @Nullable
+    private volatile ExecutorService publishExecutorService;
+
+    @Nullable
+    private Timer publishTimer;
+
+    @Nullable
+    private Counter batchCounter;
+
+    @Nullable
+    private Counter overrunCounter;
+
+    /**
+     * The batches of readings of the last publish, to be filled again by the next one. Empty while a publish is
+     * using them.
+     */
+    private final AtomicReference<List<MeterReadings>> readingsPool = new AtomicReference<>(new ArrayList<>());
+
     protected PushMeterRegistry(PushRegistryConfig config, Clock clock) {
         super(clock);
         this.config = config;
@@ -40,14 +78,158 @@ public abstract class PushMeterRegistry extends MeterRegistry {
 
     protected abstract void publish();
 
+    /**
+     * Counts a batch of meters sent by {@link #publish()} in the {@code push.publish.batches} counter.
+     *
+     * @since 1.3.17
+     */
+    protected void batchSent() {
+        Counter batchCounter = this.batchCounter;
+        if (batchCounter != null) {
+            batchCounter.increment();
+        }
+    }
+
+    /**
+     * Starts work of {@link #publish()} that can run at the same time as the rest of it, like serializing and sending
+     * one of its batches. The work runs on one of {@link PushRegistryConfig#publishParallelism()} threads, or on the
+     * calling thread when the parallelism is 1 or the registry isn't started.
+     *
+     * @param work Starts the work and returns its result once complete.
+     * @param <T>  The result of the work.
+     * @return The result of the work, completed exceptionally if starting it throws.
+     * @since 1.3.17
+     */
+    protected <T> CompletableFuture<T> publishAsync(Supplier<? extends CompletionStage<T>> work) {
+        ExecutorService publishExecutorService = this.publishExecutorService;
+        if (publishExecutorService == null) {
+            try {
+                return work.get().toCompletableFuture();
+            } catch (Throwable e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        return CompletableFuture.supplyAsync(work, publishExecutorService).thenCompose(result -> result);
+    }
+
+    /**
+     * Reads the meters to publish in batches, and hands each batch to a publisher as soon as it is full. Meters are
+     * read straight from the registry, without copying the list of its meters first, and their readings go into
+     * arrays that are reused from one publish to the next. Each batch is counted by {@link #batchSent()}.
+     * <p>
+     * A batch must not be read once the stage returned for it by the publisher has completed.
+     *
+     * @param batchSize      The number of meters in each batch but the last.
+     * @param batchPublisher Starts publishing a batch, and returns a stage that completes once done with it.
+     * @return A future that completes once the stages of all batches have completed, exceptionally if any of them
+     * did.
+     * @since 1.3.17
+     */
+    protected CompletableFuture<Void> forEachBatch(int batchSize, Function<? super MeterReadings, ? extends CompletionStage<?>> batchPublisher) {
+        List<MeterReadings> pooled = readingsPool.getAndSet(null);
+        // a publish that overlaps this one, like on close, has the pooled batches
+        List<MeterReadings> readings = pooled == null ? new ArrayList<>() : pooled;
+
+        List<CompletableFuture<?>> published = new ArrayList<>();
+        MeterReadings[] batch = new MeterReadings[1];
+        forEachMeter(meter -> {
+            if (!shouldPublish(meter)) {
+                return;
+            }
+            if (batch[0] == null) {
+                batch[0] = nextBatch(readings, published.size(), batchSize);
+            }
+            batch[0].read(meter);
+            if (batch[0].size() >= batchSize) {
+                published.add(publishBatch(batch[0], batchPublisher));
+                batch[0] = null;
+            }
+        });
+        if (batch[0] != null) {
+            published.add(publishBatch(batch[0], batchPublisher));
+        }
+
+        return CompletableFuture.allOf(published.toArray(new CompletableFuture[0]))
+                .whenComplete((result, e) -> {
+                    if (pooled != null) {
+                        readingsPool.set(pooled);
+                    }
+                });
+    }
+
+    private MeterReadings nextBatch(List<MeterReadings> readings, int index, int batchSize) {
+        if (index < readings.size()) {
+            MeterReadings batch = readings.get(index);
+            batch.clear();
+            return batch;
+        }
+        MeterReadings batch = new MeterReadings(getBaseTimeUnit(), batchSize, readsHistograms());
+        readings.add(batch);
+        return batch;
+    }
+
+    private CompletableFuture<?> publishBatch(MeterReadings batch, Function<? super MeterReadings, ? extends CompletionStage<?>> batchPublisher) {
+        batchSent();
+        try {
+            return batchPublisher.apply(batch).toCompletableFuture();
+        } catch (Throwable e) {
+            CompletableFuture<?> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * @return {@code true} if {@link #forEachBatch} should read the histogram counts and percentile values of timers
+     * and distribution summaries, which takes a histogram snapshot of each of them. Default is {@code false}, which
+     * reads only their count, total and max.
+     * @since 1.3.17
+     */
+    protected boolean readsHistograms() {
+        return false;
+    }
+
+    /**
+     * @param meter A meter of the registry.
+     * @return {@code true} if the meter should be read by {@link #forEachBatch}. Default is {@code true}.
+     * @since 1.3.17
+     */
+    protected boolean shouldPublish(Meter meter) {
+        return true;
+    }
+
+    /**
+     * Called after every call to {@link #publish()}, whether or not it threw.
+     *
+     * @param published {@code true} if {@link #publish()} returned normally, {@code false} if it threw. A publish
+     *                  that catches and logs its own send failures returns normally.
+     * @since 1.3.17
+     */
+    protected void afterPublish(boolean published) {
+    }
+
     /**
      * Catch uncaught exceptions thrown from {@link #publish()}.
      */
     private void publishSafely() {
+        long start = clock.monotonicTime();
+        boolean published = false;
         try {
             publish();
+            published = true;
         } catch (Throwable e) {
             logger.warn("Unexpected exception thrown while publishing metrics for " + this.getClass().getSimpleName(), e);
+        } finally {
+            afterPublish(published);
+            Timer publishTimer = this.publishTimer;
+            if (publishTimer != null) {
+                // step meters only roll over to a new step when they're read, so that what they record after a
+                // publish that took longer than a step would otherwise be counted towards a step long gone
+                publishTimer.count();
+                publishTimer.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+            }
         }
     }
 
@@ -64,17 +246,100 @@ public abstract class PushMeterRegistry extends MeterRegistry {
             stop();
 
         if (config.enabled()) {
-            scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
-            scheduledExecutorService.scheduleAtFixedRate(this::publishSafely, config.step()
-                    .toMillis(), config.step().toMillis(), TimeUnit.MILLISECONDS);
+            if (config.publishMetrics()) {
+                publishTimer = Timer.builder("push.publish")
+                        .description("Time spent publishing the meters of the registry")
+                        .register(this);
+                batchCounter = Counter.builder("push.publish.batches")
+                        .description("Batches of meters sent by publishing")
+                        .register(this);
+                overrunCounter = Counter.builder("push.publish.overruns")
+                        .description("Step boundaries that passed while publishing")
+                        .register(this);
+            }
+
+            int publishParallelism = config.publishParallelism();
+            if (publishParallelism > 1) {
+                publishExecutorService = Executors.newFixedThreadPool(publishParallelism, threadFactory);
+            }
+
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            scheduledExecutorService = executor;
+            long stepMillis = config.step().toMillis();
+            long now = clock.wallTime();
+            schedulePublish(executor, now - now % stepMillis + stepMillis, now);
         }
     }
 
+    /**
+     * Publishes once the given step boundary has passed, then schedules the publish for the next boundary. Each
+     * publish is scheduled only once the previous one has completed, so they never overlap or queue up.
+     */
+    private void schedulePublish(ScheduledExecutorService executor, long boundary, long now) {
+        // the step has rolled over a little after its boundary even if the clock of the scheduler runs a little fast
+        long delay = Math.max(0, boundary - now) + 1 + jitterMillis();
+        try {
+            executor.schedule(() -> publishAndReschedule(executor, boundary), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // stopped while publishing
+        }
+    }
+
+    private void publishAndReschedule(ScheduledExecutorService executor, long boundary) {
+        long start = clock.wallTime();
+        publishSafely();
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        // meters that report the previous step read some of their values from each step when publishing spans a
+        // boundary
+        long stepMillis = config.step().toMillis();
+        long now = clock.wallTime();
+        long overruns = now / stepMillis - start / stepMillis;
+        if (overruns <= 0) {
+            schedulePublish(executor, boundary + stepMillis, now);
+            return;
+        }
+
+        Counter overrunCounter = this.overrunCounter;
+        if (overrunCounter != null) {
+            overrunCounter.count();
+            overrunCounter.increment(overruns);
+        }
+
+        PublishOverrunPolicy overrunPolicy = config.overrunPolicy();
+        overrunLogger.log("Publishing metrics for " + this.getClass().getSimpleName() + " took longer than the step of " +
+                config.step() + ", " + (overrunPolicy == PublishOverrunPolicy.SKIP ? "skipping" : "coalescing") + " " +
+                overruns + " publish(es).");
+
+        long lastBoundary = now - now % stepMillis;
+        if (overrunPolicy == PublishOverrunPolicy.SKIP) {
+            schedulePublish(executor, lastBoundary + stepMillis, now);
+        } else {
+            try {
+                executor.execute(() -> publishAndReschedule(executor, lastBoundary));
+            } catch (RejectedExecutionException ignored) {
+                // stopped while publishing
+            }
+        }
+    }
+
+    private long jitterMillis() {
+        long jitterMillis = Math.min(config.publishJitter().toMillis(), config.step().toMillis() - 1);
+        return jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+    }
+
     public void stop() {
         if (scheduledExecutorService != null) {
             scheduledExecutorService.shutdown();
             scheduledExecutorService = null;
         }
+        ExecutorService publishExecutorService = this.publishExecutorService;
+        if (publishExecutorService != null) {
+            publishExecutorService.shutdown();
+            this.publishExecutorService = null;
+        }
     }
 
     @Override
@@ -91,4 +91,69 @@ public interface PushRegistryConfig extends MeterRegistryConfig {
         String v = get(prefix() + ".batchSize");
         return v == null ? 10000 : Integer.parseInt(v);
     }
+
+    /**
+     * @return The number of batches that may be in flight at once. Batches are only sent in parallel by an
+     * {@link HttpSender} that sends requests asynchronously, like {@code OkHttpSender} and {@code ReactorNettySender}.
+     * The default is 1, so that each batch is sent once the previous one has been answered.
+     * @since 1.3.17
+     */
+    default int maxInFlightRequests() {
+        String v = get(prefix() + ".maxInFlightRequests");
+        return v == null ? 1 : Integer.parseInt(v);
+    }
+
+    /**
+     * @return The number of threads on which to serialize and send different batches at once. Batches are sent
+     * through the {@link HttpSender} of a registry on these threads, and up to {@link #maxInFlightRequests()} of them
+     * are in flight at once, so a sender that sends requests synchronously, like {@code HttpUrlConnectionSender},
+     * sends batches in parallel when both are greater than 1. The default is 1, so that batches are serialized and
+     * sent on the publishing thread.
+     * @since 1.3.17
+     */
+    default int publishParallelism() {
+        String v = get(prefix() + ".publishParallelism");
+        return v == null ? 1 : Integer.parseInt(v);
+    }
+
+    /**
+     * @return The most time by which to delay each publish past its step boundary, chosen at random for every
+     * publish so that many instances don't all publish at once. Clamped to less than the step. The default is no
+     * delay.
+     * @since 1.3.17
+     */
+    default Duration publishJitter() {
+        String v = get(prefix() + ".publishJitter");
+        return v == null ? Duration.ZERO : Duration.parse(v);
+    }
+
+    /**
+     * @return What to do when publishing takes longer than the step. The default is
+     * {@link PublishOverrunPolicy#COALESCE}.
+     * @since 1.3.17
+     */
+    default PublishOverrunPolicy overrunPolicy() {
+        String v = get(prefix() + ".overrunPolicy");
+
+        if (v == null)
+            return PublishOverrunPolicy.COALESCE;
+
+        for (PublishOverrunPolicy policy : PublishOverrunPolicy.values()) {
+            if (policy.toString().equalsIgnoreCase(v))
+                return policy;
+        }
+
+        throw new IllegalArgumentException("Unrecognized overrun policy '" + v + "' (check property " + prefix() + ".overrunPolicy)");
+    }
+
+    /**
+     * @return {@code true} if the registry should record its own publishing in the {@code push.publish} timer and
+     * the {@code push.publish.batches} and {@code push.publish.overruns} counters, which it publishes along with
+     * every other meter. The default is {@code false}.
+     * @since 1.3.17
+     */
+    default boolean publishMetrics() {
+        String v = get(prefix() + ".publishMetrics");
+        return v != null && Boolean.valueOf(v);
+    }
 }
@@ -22,12 +22,23 @@ import io.micrometer.core.instrument.distribution.pause.PauseDetector;
 import io.micrometer.core.instrument.internal.DefaultGauge;
 import io.micrometer.core.instrument.internal.DefaultLongTaskTimer;
 import io.micrometer.core.instrument.internal.DefaultMeter;
+import io.micrometer.core.instrument.push.MeterReadings;
 import io.micrometer.core.instrument.push.PushMeterRegistry;
 import io.micrometer.core.lang.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToLongFunction;
+import java.util.stream.StreamSupport;
 
 /**
  * Registry that step-normalizes counts and sums to a rate/second over the publishing interval.
@@ -37,9 +48,111 @@ import java.util.function.ToLongFunction;
 public abstract class StepMeterRegistry extends PushMeterRegistry {
     private final StepRegistryConfig config;
 
+    /**
+     * The values of meters that are idle when their values don't change, as they were last published.
+     */
+    private final Map<Meter.Id, double[]> publishedValues = new ConcurrentHashMap<>();
+
+    /**
+     * The values of such meters that the publish in progress found changed. They only become their published values
+     * once the publish completes without a failure being reported, which is when the batches of
+     * {@link #forEachBatch} all complete normally, or when {@link #publish()} returns normally. Registries that catch
+     * and log their own send failures report success, in which case the values are recorded even though they weren't
+     * received, and an unchanged meter isn't sent again until its value changes.
+     */
+    private final AtomicReference<Map<Meter.Id, double[]>> pendingValues = new AtomicReference<>(new ConcurrentHashMap<>());
+
     public StepMeterRegistry(StepRegistryConfig config, Clock clock) {
         super(config, clock);
         this.config = config;
+        config().onMeterRemoved(meter -> {
+            publishedValues.remove(meter.getId());
+            pendingValues.get().remove(meter.getId());
+        });
+    }
+
+    /**
+     * @return The meters to publish, which are all of the meters of the registry unless
+     * {@link StepRegistryConfig#skipIdleMeters()} is enabled. Meters are then only returned if they had activity in
+     * the last step, or if their values changed since they were last published. A publish that catches its own send
+     * failures rather than throwing them counts as successful, so the meters it failed to send are only returned
+     * again once their values change.
+     * @since 1.3.17
+     */
+    protected List<Meter> getMetersToPublish() {
+        List<Meter> meters = getMeters();
+        if (!config.skipIdleMeters()) {
+            return meters;
+        }
+
+        List<Meter> active = new ArrayList<>(meters.size());
+        for (Meter meter : meters) {
+            if (!isIdle(meter)) {
+                active.add(meter);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return {@code true} unless {@link StepRegistryConfig#skipIdleMeters()} is enabled and the meter had no
+     * activity in the last step, as for {@link #getMetersToPublish()}.
+     */
+    @Override
+    protected boolean shouldPublish(Meter meter) {
+        return !config.skipIdleMeters() || !isIdle(meter);
+    }
+
+    private boolean isIdle(Meter meter) {
+        return meter.match(
+                gauge -> unchanged(gauge.getId(), gauge.value()),
+                counter -> counter.count() == 0,
+                timer -> timer.count() == 0,
+                summary -> summary.count() == 0,
+                longTaskTimer -> unchanged(longTaskTimer.getId(), longTaskTimer.activeTasks(), longTaskTimer.duration(getBaseTimeUnit())),
+                timeGauge -> unchanged(timeGauge.getId(), timeGauge.value(getBaseTimeUnit())),
+                counter -> counter.count() == 0,
+                timer -> timer.count() == 0,
+                m -> unchanged(m.getId(), StreamSupport.stream(m.measure().spliterator(), false)
+                        .mapToDouble(Measurement::getValue)
+                        .toArray()));
+    }
+
+    private boolean unchanged(Meter.Id id, double... values) {
+        if (Arrays.equals(publishedValues.get(id), values)) {
+            return true;
+        }
+        pendingValues.get().put(id, values);
+        return false;
+    }
+
+    @Override
+    protected CompletableFuture<Void> forEachBatch(int batchSize, Function<? super MeterReadings, ? extends CompletionStage<?>> batchPublisher) {
+        CompletableFuture<Void> published = super.forEachBatch(batchSize, batchPublisher);
+        // every meter has been read by now, so the pending values are those of these batches
+        Map<Meter.Id, double[]> values = takePendingValues();
+        return published.whenComplete((result, e) -> {
+            if (e == null) {
+                publishedValues.putAll(values);
+            }
+        });
+    }
+
+    /**
+     * Records the values of the meters returned by {@link #getMetersToPublish()} as published, unless
+     * {@link #publish()} threw.
+     */
+    @Override
+    protected void afterPublish(boolean published) {
+        Map<Meter.Id, double[]> values = takePendingValues();
+        if (published) {
+            publishedValues.putAll(values);
+        }
+    }
+
+    private Map<Meter.Id, double[]> takePendingValues() {
+        Map<Meter.Id, double[]> values = pendingValues.get();
+        return values.isEmpty() ? values : pendingValues.getAndSet(new ConcurrentHashMap<>());
     }
 
     @Override
@@ -19,4 +19,18 @@ import io.micrometer.core.instrument.push.PushRegistryConfig;
 
 
 public interface StepRegistryConfig extends PushRegistryConfig {
+    /**
+     * @return {@code true} if meters without activity in the last step should not be published. Counters, timers,
+     * distribution summaries and their function-tracking counterparts are idle when nothing was counted in the step.
+     * Gauges, long task timers and other meters are idle when their values haven't changed since they were last
+     * published. This cuts the size of publishes with many rarely used meters, but backends see a gap rather than a
+     * zero for an idle meter. When a registry logs a failed send rather than reporting it, an unchanged gauge it
+     * failed to send isn't sent again until its value changes. Default is {@code false}.
+     * @see StepMeterRegistry#getMetersToPublish()
+     * @since 1.3.17
+     */
+    default boolean skipIdleMeters() {
+        String v = get(prefix() + ".skipIdleMeters");
+        return v != null && Boolean.valueOf(v);
+    }
 }
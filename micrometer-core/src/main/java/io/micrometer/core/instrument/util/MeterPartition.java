@@ -31,8 +31,27 @@ public class MeterPartition extends AbstractPartition<Meter> {
         super(registry.getMeters(), partitionSize);
     }
 
+    /**
+     * @param meters        The meters to partition.
+     * @param partitionSize The number of meters in each partition but the last.
+     * @since 1.3.17
+     */
+    public MeterPartition(List<Meter> meters, int partitionSize) {
+        super(meters, partitionSize);
+    }
+
     public static List<List<Meter>> partition(MeterRegistry registry, int partitionSize) {
         return new MeterPartition(registry, partitionSize);
     }
 
+    /**
+     * @param meters        The meters to partition.
+     * @param partitionSize The number of meters in each partition but the last.
+     * @return The meters in partitions of {@code partitionSize}.
+     * @since 1.3.17
+     */
+    public static List<List<Meter>> partition(List<Meter> meters, int partitionSize) {
+        return new MeterPartition(meters, partitionSize);
+    }
+
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.util;
+
+import io.micrometer.core.annotation.Incubating;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.NamingConvention;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Keeps what a registry renders from the id of each of its meters, like the name and tags of the meter in the
+ * protocol of a monitoring system, so that it is only rendered once rather than on every publish. Renderings are
+ * dropped when their meter is removed from the registry, and all of them when the naming convention of the registry
+ * changes.
+ *
+ * @param <T> The rendering of an id.
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public final class RenderedIdCache<T> {
+    private final MeterRegistry registry;
+    private final Function<Meter.Id, ? extends T> renderer;
+
+    private volatile Renderings<T> renderings;
+
+    /**
+     * @param registry The registry whose meter ids are rendered.
+     * @param renderer Renders an id, with the naming convention the registry has at the time.
+     */
+    public RenderedIdCache(MeterRegistry registry, Function<Meter.Id, ? extends T> renderer) {
+        this.registry = registry;
+        this.renderer = renderer;
+        this.renderings = new Renderings<>(registry.config().namingConvention());
+        registry.config().onMeterRemoved(meter -> renderings.byId.remove(meter.getId()));
+    }
+
+    /**
+     * @param id The id of a meter of the registry. Ids derived from it, like with another name or more tags, should
+     *           be rendered as part of the rendering of the id of the meter, as they wouldn't be dropped when the
+     *           meter is removed.
+     * @return The rendering of the id, rendered on the first call for the id and the current naming convention.
+     */
+    public T get(Meter.Id id) {
+        NamingConvention namingConvention = registry.config().namingConvention();
+        Renderings<T> renderings = this.renderings;
+        if (renderings.namingConvention != namingConvention) {
+            renderings = new Renderings<>(namingConvention);
+            this.renderings = renderings;
+        }
+
+        T rendered = renderings.byId.get(id);
+        if (rendered == null) {
+            rendered = renderer.apply(id);
+            T existing = renderings.byId.putIfAbsent(id, rendered);
+            if (existing != null) {
+                rendered = existing;
+            }
+        }
+        return rendered;
+    }
+
+    private static class Renderings<T> {
+        final NamingConvention namingConvention;
+        final ConcurrentMap<Meter.Id, T> byId = new ConcurrentHashMap<>();
+
+        Renderings(NamingConvention namingConvention) {
+            this.namingConvention = namingConvention;
+        }
+    }
+}
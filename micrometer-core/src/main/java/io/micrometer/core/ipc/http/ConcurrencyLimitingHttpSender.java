@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import io.micrometer.core.annotation.Incubating;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of requests that another {@link HttpSender} has in flight at once. Sending a request while the
+ * limit is reached waits, on the calling thread, until an earlier request completes, so that a registry publishing
+ * many batches through {@link #sendAsync(Request)} never has more than the limit outstanding.
+ *
+ * @since 1.3.17
+ */
+@Incubating(since = "1.3.17")
+public class ConcurrencyLimitingHttpSender implements HttpSender {
+    private final HttpSender delegate;
+    private final Semaphore inFlight;
+
+    /**
+     * @param delegate    The sender that sends the requests.
+     * @param maxInFlight The most requests to have in flight at once.
+     */
+    public ConcurrencyLimitingHttpSender(HttpSender delegate, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.delegate = delegate;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public Response send(Request request) throws Throwable {
+        inFlight.acquire();
+        try {
+            return delegate.send(request);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request) {
+        CompletableFuture<Response> response;
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        try {
+            response = delegate.sendAsync(request);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        return response.whenComplete((r, e) -> inFlight.release());
+    }
+}
@@ -15,22 +15,31 @@
  */
 package io.micrometer.core.ipc.http;
 
+import io.micrometer.core.annotation.Incubating;
 import io.micrometer.core.instrument.util.JsonUtils;
 import io.micrometer.core.instrument.util.StringUtils;
 import io.micrometer.core.lang.Nullable;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -44,6 +53,25 @@ import java.util.zip.GZIPOutputStream;
 public interface HttpSender {
     Response send(Request request) throws Throwable;
 
+    /**
+     * Sends a request without waiting for its response, if the sender supports it. The default implementation
+     * sends the request on the calling thread and returns a future that is already complete.
+     *
+     * @param request The request to send.
+     * @return A future of the response, completed exceptionally if the request can't be sent.
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    default CompletableFuture<Response> sendAsync(Request request) {
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        try {
+            response.complete(send(request));
+        } catch (Throwable e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+
     default Request.Builder post(String uri) {
         return newRequest(uri).withMethod(Method.POST);
     }
@@ -75,12 +103,31 @@ public interface HttpSender {
     class Request {
         private final URL url;
         private final byte[] entity;
+        @Nullable
+        private final EntityWriter entityWriter;
         private final Method method;
         private final Map<String, String> requestHeaders;
 
         public Request(URL url, byte[] entity, Method method, Map<String, String> requestHeaders) {
+            this(url, entity, null, method, requestHeaders);
+        }
+
+        /**
+         * @param url            The URL to send the request to.
+         * @param entityWriter   Writes the request body each time the request is sent.
+         * @param method         The request method.
+         * @param requestHeaders The request headers.
+         * @since 1.3.17
+         */
+        @Incubating(since = "1.3.17")
+        public Request(URL url, EntityWriter entityWriter, Method method, Map<String, String> requestHeaders) {
+            this(url, new byte[0], entityWriter, method, requestHeaders);
+        }
+
+        private Request(URL url, byte[] entity, @Nullable EntityWriter entityWriter, Method method, Map<String, String> requestHeaders) {
             this.url = url;
             this.entity = entity;
+            this.entityWriter = entityWriter;
             this.method = method;
             this.requestHeaders = requestHeaders;
         }
@@ -89,8 +136,48 @@ public interface HttpSender {
             return url;
         }
 
+        /**
+         * @return The request body. A {@link #isStreaming() streaming} body is written to a new array on every call,
+         * so senders that can should {@link #writeEntity(OutputStream) write it} to their connection instead.
+         */
         public byte[] getEntity() {
-            return entity;
+            if (entityWriter == null) {
+                return entity;
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try {
+                entityWriter.writeTo(bos);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bos.toByteArray();
+        }
+
+        /**
+         * @return {@code true} if the request body is written by an {@link EntityWriter} when the request is sent,
+         * rather than held in memory.
+         * @since 1.3.17
+         */
+        @Incubating(since = "1.3.17")
+        public boolean isStreaming() {
+            return entityWriter != null;
+        }
+
+        /**
+         * Writes the request body to a stream, without holding all of it in memory when it is
+         * {@link #isStreaming() streaming}. The stream is not closed.
+         *
+         * @param out The stream to write the request body to.
+         * @throws IOException If the request body can't be written.
+         * @since 1.3.17
+         */
+        @Incubating(since = "1.3.17")
+        public void writeEntity(OutputStream out) throws IOException {
+            if (entityWriter == null) {
+                out.write(entity);
+            } else {
+                entityWriter.writeTo(out);
+            }
         }
 
         public Method getMethod() {
@@ -109,6 +196,7 @@ public interface HttpSender {
         public String toString() {
             StringBuilder printed = new StringBuilder(method.toString()).append(" ")
                     .append(url.toString()).append("\n");
+            byte[] entity = getEntity();
             if (entity.length == 0) {
                 printed.append("<no request body>");
             } else if ("application/json".equals(requestHeaders.get("Content-Type"))) {
@@ -127,6 +215,8 @@ public interface HttpSender {
             private final HttpSender sender;
 
             private byte[] entity = new byte[0];
+            @Nullable
+            private EntityWriter entityWriter;
             private Method method;
             private Map<String, String> requestHeaders = new LinkedHashMap<>();
 
@@ -177,6 +267,18 @@ public interface HttpSender {
                 return withContent(APPLICATION_JSON, content);
             }
 
+            /**
+             * Set the request body as JSON content type, written as the request is sent.
+             *
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.3.17
+             */
+            @Incubating(since = "1.3.17")
+            public final Builder withJsonContent(EntityWriter content) {
+                return withContent(APPLICATION_JSON, content);
+            }
+
             /**
              * Set the request body as plain text content type.
              *
@@ -187,6 +289,18 @@ public interface HttpSender {
                 return withContent(TEXT_PLAIN, content);
             }
 
+            /**
+             * Set the request body as plain text content type, written as the request is sent.
+             *
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.3.17
+             */
+            @Incubating(since = "1.3.17")
+            public final Builder withPlainText(EntityWriter content) {
+                return withContent(TEXT_PLAIN, content);
+            }
+
             /**
              * Set the request body.
              *
@@ -208,6 +322,24 @@ public interface HttpSender {
             public final Builder withContent(String type, byte[] content) {
                 withHeader("Content-Type", type);
                 entity = content;
+                entityWriter = null;
+                return this;
+            }
+
+            /**
+             * Set a request body that is written, and compressed if requested, straight to the connection as the
+             * request is sent, rather than held in memory. The writer is called again each time the request is sent.
+             *
+             * @param type    The value of the "Content-Type" header to add.
+             * @param content Writes the request body.
+             * @return This request builder.
+             * @since 1.3.17
+             */
+            @Incubating(since = "1.3.17")
+            public final Builder withContent(String type, EntityWriter content) {
+                withHeader("Content-Type", type);
+                entity = new byte[0];
+                entityWriter = content;
                 return this;
             }
 
@@ -249,7 +381,11 @@ public interface HttpSender {
              */
             public final Builder compress() throws IOException {
                 withHeader("Content-Encoding", "gzip");
-                this.entity = gzip(entity);
+                if (entityWriter != null) {
+                    this.entityWriter = gzip(entityWriter);
+                } else {
+                    this.entity = gzip(entity);
+                }
                 return this;
             }
 
@@ -275,14 +411,108 @@ public interface HttpSender {
                 return bos.toByteArray();
             }
 
+            private static EntityWriter gzip(EntityWriter writer) {
+                return out -> {
+                    // closing the gzip stream releases its deflater, but the stream it writes to belongs to the sender
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(new UnclosedOutputStream(out), 8192)) {
+                        writer.writeTo(gzip);
+                    }
+                };
+            }
+
+            private Request request() {
+                return new Request(url, entity, entityWriter, method, requestHeaders);
+            }
+
             public final Builder print() {
-                System.out.println(new Request(url, entity, method, requestHeaders));
+                System.out.println(request());
                 return this;
             }
 
             public Response send() throws Throwable {
-                return sender.send(new Request(url, entity, method, requestHeaders));
+                return sender.send(request());
+            }
+
+            /**
+             * @return A future of the response.
+             * @see HttpSender#sendAsync(Request)
+             * @since 1.3.17
+             */
+            @Incubating(since = "1.3.17")
+            public CompletableFuture<Response> sendAsync() {
+                return sender.sendAsync(request());
             }
+
+            private static class UnclosedOutputStream extends FilterOutputStream {
+                UnclosedOutputStream(OutputStream out) {
+                    super(out);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a request body to the connection of a sender as the request is sent, so that it never has to be held
+     * in memory as a whole.
+     *
+     * @since 1.3.17
+     */
+    @Incubating(since = "1.3.17")
+    @FunctionalInterface
+    interface EntityWriter {
+        /**
+         * Writes the request body. May be called more than once for a request, and should write the same body each
+         * time.
+         *
+         * @param out The stream to write to, which should be left open.
+         * @throws IOException If the request body can't be written.
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+        /**
+         * @param lines     Supplies the lines to write, once for each time the request body is written.
+         * @param delimiter Written between lines.
+         * @return A writer of the lines encoded as UTF-8.
+         */
+        static EntityWriter joining(Supplier<? extends Stream<? extends CharSequence>> lines, CharSequence delimiter) {
+            return joining(lines, delimiter, "", "");
+        }
+
+        /**
+         * Writes the same text as {@link java.util.stream.Collectors#joining(CharSequence, CharSequence, CharSequence)}
+         * without building it as a string.
+         *
+         * @param lines     Supplies the lines to write, once for each time the request body is written.
+         * @param delimiter Written between lines.
+         * @param prefix    Written before the lines.
+         * @param suffix    Written after the lines.
+         * @return A writer of the lines encoded as UTF-8.
+         */
+        static EntityWriter joining(Supplier<? extends Stream<? extends CharSequence>> lines, CharSequence delimiter,
+                                    CharSequence prefix, CharSequence suffix) {
+            return out -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writer.append(prefix);
+                Iterator<? extends CharSequence> iterator = lines.get().iterator();
+                if (iterator.hasNext()) {
+                    writer.append(iterator.next());
+                    while (iterator.hasNext()) {
+                        writer.append(delimiter).append(iterator.next());
+                    }
+                }
+                writer.append(suffix);
+                writer.flush();
+            };
         }
     }
 
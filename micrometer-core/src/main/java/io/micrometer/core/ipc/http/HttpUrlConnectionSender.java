@@ -15,23 +15,43 @@
  */
 package io.micrometer.core.ipc.http;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.micrometer.core.instrument.util.IOUtils;
+import io.micrometer.core.lang.Nullable;
 
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * {@link HttpURLConnection}-based {@link HttpSender}.
+ * <p>
+ * By default, the connection is closed after every request. A sender created with a maximum number of connections
+ * instead reads every response to the end and leaves its connection open, so that the JDK can reuse it for the next
+ * request to the same host and the cost of a TCP and TLS handshake is paid once rather than per batch. Idle
+ * connections are kept by the JDK for as long as the server allows in its {@code Keep-Alive} response header, or 5
+ * seconds otherwise, and at most {@code http.maxConnections} (default 5) of them are kept per host.
+ * <p>
+ * Bind the sender to a registry to see the number of TLS handshakes and the latency of its requests.
  *
  * @author Jon Schneider
  * @author Johnny Lim
  * @since 1.1.0
  */
-public class HttpUrlConnectionSender implements HttpSender {
+public class HttpUrlConnectionSender implements HttpSender, MeterBinder {
 
     private static final int DEFAULT_CONNECT_TIMEOUT_MS = 1000;
     private static final int DEFAULT_READ_TIMEOUT_MS = 10000;
@@ -40,6 +60,20 @@ public class HttpUrlConnectionSender implements HttpSender {
     private final int readTimeoutMs;
     private final Proxy proxy;
 
+    @Nullable
+    private final Semaphore connections;
+
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestNanos = new LongAdder();
+
+    /**
+     * The JDK only reuses a TLS connection when it is requested with the same socket factory, so the factory that
+     * counts handshakes is created once for each factory it wraps.
+     */
+    @Nullable
+    private volatile HandshakeCountingSSLSocketFactory sslSocketFactory;
+
     /**
      * Creates a sender with the specified timeouts but uses the default proxy settings.
      *
@@ -62,6 +96,26 @@ public class HttpUrlConnectionSender implements HttpSender {
         this.connectTimeoutMs = (int) connectTimeout.toMillis();
         this.readTimeoutMs = (int) readTimeout.toMillis();
         this.proxy = proxy;
+        this.connections = null;
+    }
+
+    /**
+     * Creates a sender that keeps its connections alive to be reused by later requests.
+     *
+     * @param connectTimeout connect timeout when establishing a connection
+     * @param readTimeout read timeout when receiving a response
+     * @param proxy proxy to use when establishing a connection, if any
+     * @param maxConnections the most connections in use at once, further requests wait for one to be released
+     * @since 1.3.17
+     */
+    public HttpUrlConnectionSender(Duration connectTimeout, Duration readTimeout, @Nullable Proxy proxy, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        this.connectTimeoutMs = (int) connectTimeout.toMillis();
+        this.readTimeoutMs = (int) readTimeout.toMillis();
+        this.proxy = proxy;
+        this.connections = new Semaphore(maxConnections, true);
     }
 
     /**
@@ -71,17 +125,52 @@ public class HttpUrlConnectionSender implements HttpSender {
         this.connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
         this.readTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
         this.proxy = null;
+        this.connections = null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("http.sender.handshakes", handshakes, LongAdder::sum)
+                .description("TLS handshakes of connections opened by the sender")
+                .register(registry);
+        FunctionTimer.builder("http.sender.requests", this, s -> s.requests.sum(), s -> s.requestNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Requests sent, from opening the connection to reading the response")
+                .register(registry);
     }
 
     @Override
     public Response send(Request request) throws IOException {
+        if (connections == null) {
+            return send(request, false);
+        }
+
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a connection");
+        }
+        try {
+            return send(request, true);
+        } finally {
+            connections.release();
+        }
+    }
+
+    private Response send(Request request, boolean keepAlive) throws IOException {
+        long start = System.nanoTime();
         HttpURLConnection con = null;
+        boolean complete = false;
         try {
             if (proxy != null ) {
                 con = (HttpURLConnection) request.getUrl().openConnection(proxy);
             } else {
                 con = (HttpURLConnection) request.getUrl().openConnection();
             }
+            if (con instanceof HttpsURLConnection) {
+                HttpsURLConnection httpsCon = (HttpsURLConnection) con;
+                httpsCon.setSSLSocketFactory(sslSocketFactory(httpsCon.getSSLSocketFactory()));
+            }
             con.setConnectTimeout(connectTimeoutMs);
             con.setReadTimeout(readTimeoutMs);
             Method method = request.getMethod();
@@ -93,14 +182,19 @@ public class HttpUrlConnectionSender implements HttpSender {
 
             if (method != Method.GET) {
                 con.setDoOutput(true);
+                if (request.isStreaming()) {
+                    // otherwise the connection buffers the whole body to find its length
+                    con.setChunkedStreamingMode(0);
+                }
                 try (OutputStream os = con.getOutputStream()) {
-                    os.write(request.getEntity());
+                    request.writeEntity(os);
                     os.flush();
                 }
             }
 
             int status = con.getResponseCode();
 
+            // reading the body to the end and closing its stream leaves the connection to be reused
             String body = null;
             try {
                 if (con.getErrorStream() != null) {
@@ -108,17 +202,31 @@ public class HttpUrlConnectionSender implements HttpSender {
                 } else if (con.getInputStream() != null) {
                     body = IOUtils.toString(con.getInputStream());
                 }
-            } catch (IOException ignored) {
+                complete = true;
+            } catch (IOException | UncheckedIOException ignored) {
             }
 
             return new Response(status, body);
         } finally {
             try {
-                if (con != null) {
+                // disconnecting also closes an idle connection to the same host, so is only needed for a connection
+                // that may be left in an unknown state
+                if (con != null && (!keepAlive || !complete)) {
                     con.disconnect();
                 }
             } catch (Exception ignore) {
             }
+            requests.increment();
+            requestNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private SSLSocketFactory sslSocketFactory(SSLSocketFactory delegate) {
+        HandshakeCountingSSLSocketFactory factory = this.sslSocketFactory;
+        if (factory == null || factory.getDelegate() != delegate) {
+            factory = new HandshakeCountingSSLSocketFactory(delegate, handshakes);
+            this.sslSocketFactory = factory;
         }
+        return factory;
     }
 }
@@ -16,11 +16,15 @@
 package io.micrometer.core.ipc.http;
 
 import okhttp3.*;
+import okio.BufferedSink;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * OkHttp-based {@link HttpSender}.
+ * OkHttp-based {@link HttpSender}. Requests sent with {@link #sendAsync(Request)} are enqueued on the dispatcher of
+ * the client rather than sent on the calling thread.
  *
  * @author Jon Schneider
  * @since 1.1.0
@@ -42,20 +46,58 @@ public class OkHttpSender implements HttpSender {
 
     @Override
     public Response send(Request request) throws Throwable {
+        okhttp3.Response response = client.newCall(toOkHttpRequest(request)).execute();
+        return new Response(response.code(), response.body() == null ? null : response.body().string());
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        client.newCall(toOkHttpRequest(request)).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) {
+                try (ResponseBody body = response.body()) {
+                    future.complete(new Response(response.code(), body == null ? null : body.string()));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    private okhttp3.Request toOkHttpRequest(Request request) {
         okhttp3.Request.Builder requestBuilder = new okhttp3.Request.Builder().url(request.getUrl());
 
         for (Map.Entry<String, String> requestHeader : request.getRequestHeaders().entrySet()) {
             requestBuilder.addHeader(requestHeader.getKey(), requestHeader.getValue());
         }
 
-        byte[] entity = request.getEntity();
         String requestMethod = request.getMethod().toString();
+        if (request.isStreaming()) {
+            MediaType mediaType = mediaType(request);
+            requestBuilder.method(requestMethod, new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return mediaType;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    request.writeEntity(sink.outputStream());
+                }
+            });
+            return requestBuilder.build();
+        }
+
+        byte[] entity = request.getEntity();
         if (entity.length > 0) {
-            String contentType = request.getRequestHeaders().get("Content-Type");
-            MediaType mediaType = contentType != null
-                    ? MediaType.get(contentType + "; charset=utf-8")
-                    : MEDIA_TYPE_APPLICATION_JSON;
-            RequestBody body = RequestBody.create(mediaType, entity);
+            RequestBody body = RequestBody.create(mediaType(request), entity);
             requestBuilder.method(requestMethod, body);
         } else {
             if (okhttp3.internal.http.HttpMethod.requiresRequestBody(requestMethod)) {
@@ -66,7 +108,13 @@ public class OkHttpSender implements HttpSender {
             }
         }
 
-        okhttp3.Response response = client.newCall(requestBuilder.build()).execute();
-        return new Response(response.code(), response.body() == null ? null : response.body().string());
+        return requestBuilder.build();
+    }
+
+    private static MediaType mediaType(Request request) {
+        String contentType = request.getRequestHeaders().get("Content-Type");
+        return contentType != null
+                ? MediaType.get(contentType + "; charset=utf-8")
+                : MEDIA_TYPE_APPLICATION_JSON;
     }
 }
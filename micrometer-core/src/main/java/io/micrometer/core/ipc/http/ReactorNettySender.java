@@ -15,11 +15,15 @@
  */
 package io.micrometer.core.ipc.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.handler.codec.http.HttpMethod;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.util.function.Tuple2;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * {@link HttpSender} implementation based on the Reactor Netty {@link HttpClient}.
  *
@@ -39,17 +43,40 @@ public class ReactorNettySender implements HttpSender {
 
     @Override
     public Response send(Request request) {
-        Tuple2<Integer, String> response = httpClient
+        Tuple2<Integer, String> response = exchange(request).block();
+
+        return new Response(response.getT1(), response.getT2());
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request) {
+        return exchange(request)
+                .map(response -> new Response(response.getT1(), response.getT2()))
+                .toFuture();
+    }
+
+    private Mono<Tuple2<Integer, String>> exchange(Request request) {
+        return httpClient
                 .request(toNettyHttpMethod(request.getMethod()))
                 .uri(request.getUrl().toString())
                 .send((httpClientRequest, nettyOutbound) -> {
                     request.getRequestHeaders().forEach(httpClientRequest::addHeader);
+                    if (request.isStreaming()) {
+                        // written once into a buffer of the connection rather than into an array to be copied
+                        return nettyOutbound.send(Mono.fromCallable(() -> {
+                            ByteBuf buffer = nettyOutbound.alloc().buffer();
+                            try {
+                                request.writeEntity(new ByteBufOutputStream(buffer));
+                            } catch (Throwable e) {
+                                buffer.release();
+                                throw e;
+                            }
+                            return buffer;
+                        }));
+                    }
                     return nettyOutbound.sendByteArray(Mono.just(request.getEntity()));
                 })
-                .responseSingle((r, body) -> Mono.just(r.status().code()).zipWith(body.asString().defaultIfEmpty("")))
-                .block();
-
-        return new Response(response.getT1(), response.getT2());
+                .responseSingle((r, body) -> Mono.just(r.status().code()).zipWith(body.asString().defaultIfEmpty("")));
     }
 
     private HttpMethod toNettyHttpMethod(Method method) {
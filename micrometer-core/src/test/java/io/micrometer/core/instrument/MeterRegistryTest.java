@@ -25,6 +25,12 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -196,4 +202,109 @@ class MeterRegistryTest {
 
         assertThat(registry.get("my.gauge").gauge().value()).isEqualTo(1d);
     }
+
+    @Test
+    void concurrentRegistrationOfSameIdBuildsMeterOnce() throws InterruptedException {
+        AtomicInteger added = new AtomicInteger();
+        registry.config().onMeterAdded(m -> added.incrementAndGet());
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Timer>> timers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            timers.add(executor.submit(() -> {
+                start.await();
+                return Timer.builder("my.timer").publishPercentiles(0.95).register(registry);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        Set<Timer> distinct = timers.stream().map(f -> {
+            try {
+                return f.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).collect(Collectors.toSet());
+
+        assertThat(distinct).hasSize(1);
+        assertThat(added.get()).isEqualTo(2);
+        assertThat(registry.getMeters()).hasSize(2);
+
+        registry.remove(distinct.iterator().next());
+        assertThat(registry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void repeatedRegistrationSkipsMeterFilterMapping() {
+        AtomicInteger mapped = new AtomicInteger();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                mapped.incrementAndGet();
+                return id.withTag(Tag.of("common", "tag"));
+            }
+        });
+
+        Counter counter = registry.counter("my.counter", "k", "v");
+        assertThat(registry.counter("my.counter", "k", "v")).isSameAs(counter);
+        assertThat(mapped.get()).isEqualTo(1);
+    }
+
+    @Test
+    void addingMeterFilterInvalidatesPreFilterIdCache() {
+        Counter counter = registry.counter("my.counter");
+        registry.config().meterFilter(MeterFilter.commonTags(Tags.of("common", "tag")));
+
+        Counter filtered = registry.counter("my.counter");
+        assertThat(filtered).isNotSameAs(counter);
+        assertThat(filtered.getId().getTag("common")).isEqualTo("tag");
+    }
+
+    @Test
+    void removingMeterInvalidatesPreFilterIdCache() {
+        registry.config().commonTags("common", "tag");
+
+        Counter counter = registry.counter("my.counter");
+        registry.remove(counter);
+
+        Counter recreated = registry.counter("my.counter");
+        assertThat(recreated).isNotSameAs(counter);
+        assertThat(registry.get("my.counter").counter()).isSameAs(recreated);
+    }
+
+    @Test
+    void removingMeterInvalidatesEveryPreFilterIdMappedToIt() {
+        registry.config().meterFilter(MeterFilter.ignoreTags("k"));
+
+        Counter counter = registry.counter("my.counter", "k", "v1");
+        assertThat(registry.counter("my.counter", "k", "v2")).isSameAs(counter);
+        Counter other = registry.counter("my.other");
+        registry.remove(counter);
+
+        Counter recreated = registry.counter("my.counter", "k", "v1");
+        assertThat(recreated).isNotSameAs(counter);
+        assertThat(registry.counter("my.counter", "k", "v2")).isSameAs(recreated);
+        assertThat(registry.counter("my.other")).isSameAs(other);
+    }
+
+    @Test
+    void preFilterIdCacheDistinguishesMeterTypes() {
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                return id.withName(id.getName() + "." + id.getType().name().toLowerCase());
+            }
+        });
+
+        Counter counter = registry.counter("a");
+        Timer timer = registry.timer("a");
+
+        assertThat(timer.getId().getName()).isEqualTo("a.timer");
+        assertThat(registry.counter("a")).isSameAs(counter);
+        assertThat(registry.timer("a")).isSameAs(timer);
+    }
 }
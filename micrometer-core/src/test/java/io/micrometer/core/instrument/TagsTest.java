@@ -285,6 +285,28 @@ class TagsTest {
         assertThat(Tags.empty().iterator()).isExhausted();
     }
 
+    @Test
+    void andSortedTagsInterleavesAndReplacesExistingKeys() {
+        Tags tags = Tags.of("a", "1", "c", "3", "e", "5");
+        Tags merged = tags.and(Tags.of("b", "2", "c", "33", "f", "6"));
+        assertTags(merged, "a", "1", "b", "2", "c", "33", "e", "5", "f", "6");
+        assertThat(merged).isEqualTo(Tags.of("f", "6", "e", "5", "c", "33", "b", "2", "a", "1"));
+        assertThat(merged.hashCode()).isEqualTo(Tags.of("f", "6", "e", "5", "c", "33", "b", "2", "a", "1").hashCode());
+    }
+
+    @Test
+    void andKeyValueInsertsInSortedPosition() {
+        assertTags(Tags.of("a", "1", "c", "3").and("b", "2"), "a", "1", "b", "2", "c", "3");
+        assertTags(Tags.of("a", "1", "c", "3").and("c", "33"), "a", "1", "c", "33");
+    }
+
+    @Test
+    void internReturnsSharedInstanceForEqualTags() {
+        Tags tags = Tags.of("k1", "v1", "k2", "v2").intern();
+        assertThat(Tags.of("k2", "v2", "k1", "v1").intern()).isSameAs(tags);
+        assertThat(Tags.of("k1", "v1").intern()).isNotSameAs(tags);
+    }
+
     private void assertTags(Tags tags, String... keyValues) {
         Iterator<Tag> actual = tags.iterator();
         Iterator<String> expected = Arrays.asList(keyValues).iterator();
@@ -35,4 +35,31 @@ class DistributionStatisticConfigTest {
         assertThat(merged.getPercentiles()).containsExactly(0.90);
         assertThat(merged.getExpiry()).isEqualTo(Duration.ofMinutes(2));
     }
+
+    @Test
+    void mergeLazyBucketMerge() {
+        DistributionStatisticConfig lazy = DistributionStatisticConfig.builder().lazyBucketMerge(true).build();
+
+        assertThat(DistributionStatisticConfig.DEFAULT.isLazyBucketMerge()).isNull();
+        assertThat(DistributionStatisticConfig.builder().build().merge(lazy).isLazyBucketMerge()).isTrue();
+        assertThat(DistributionStatisticConfig.builder().lazyBucketMerge(false).build().merge(lazy).isLazyBucketMerge()).isFalse();
+    }
+
+    @Test
+    void mergeStripedHistogramBuckets() {
+        DistributionStatisticConfig striped = DistributionStatisticConfig.builder().stripedHistogramBuckets(true).build();
+
+        assertThat(DistributionStatisticConfig.DEFAULT.isStripedHistogramBuckets()).isNull();
+        assertThat(DistributionStatisticConfig.builder().build().merge(striped).isStripedHistogramBuckets()).isTrue();
+        assertThat(DistributionStatisticConfig.builder().stripedHistogramBuckets(false).build().merge(striped).isStripedHistogramBuckets()).isFalse();
+    }
+
+    @Test
+    void mergePercentileSketch() {
+        DistributionStatisticConfig sketch = DistributionStatisticConfig.builder().percentileSketch(true).build();
+
+        assertThat(DistributionStatisticConfig.DEFAULT.isPercentileSketch()).isNull();
+        assertThat(DistributionStatisticConfig.builder().build().merge(sketch).isPercentileSketch()).isTrue();
+        assertThat(DistributionStatisticConfig.builder().percentileSketch(false).build().merge(sketch).isPercentileSketch()).isFalse();
+    }
 }
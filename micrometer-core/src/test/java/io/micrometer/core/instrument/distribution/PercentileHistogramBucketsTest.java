@@ -0,0 +1,46 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NavigableSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PercentileHistogramBucketsTest {
+    @Test
+    void bucketIndexIsIndexOfCeilingBucket() {
+        NavigableSet<Long> buckets = PercentileHistogramBuckets.buckets(DistributionStatisticConfig.DEFAULT);
+
+        int index = 0;
+        for (long bucket : buckets) {
+            assertThat(PercentileHistogramBuckets.bucket(index)).isEqualTo(bucket);
+            assertThat(PercentileHistogramBuckets.bucketIndex(bucket)).isEqualTo(index);
+            if (bucket > 1) {
+                assertThat(PercentileHistogramBuckets.bucketIndex(bucket - 1))
+                        .isEqualTo(buckets.lower(bucket) == bucket - 1 ? index - 1 : index);
+            }
+            if (bucket < Long.MAX_VALUE) {
+                assertThat(PercentileHistogramBuckets.bucketIndex(bucket + 1)).isEqualTo(index + 1);
+            }
+            index++;
+        }
+
+        assertThat(PercentileHistogramBuckets.bucketIndex(0)).isEqualTo(0);
+        assertThat(PercentileHistogramBuckets.bucketIndex(Long.MIN_VALUE)).isEqualTo(0);
+    }
+}
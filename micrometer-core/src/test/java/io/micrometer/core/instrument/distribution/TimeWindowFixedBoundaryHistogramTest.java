@@ -18,6 +18,14 @@ package io.micrometer.core.instrument.distribution;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -69,4 +77,111 @@ class TimeWindowFixedBoundaryHistogramTest {
             );
         }
     }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void countsDecayWithRotation(boolean lazyBucketMerge) {
+        MockClock clock = new MockClock();
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .sla(3, 6, 7)
+                        .expiry(Duration.ofSeconds(3))
+                        .bufferLength(3)
+                        .lazyBucketMerge(lazyBucketMerge)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(3);
+            clock.add(1, TimeUnit.SECONDS);
+            histogram.recordDouble(6);
+            clock.add(1, TimeUnit.SECONDS);
+            histogram.recordDouble(7);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 1),
+                    new CountAtBucket(6, 2),
+                    new CountAtBucket(7, 3));
+
+            clock.add(1, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 0),
+                    new CountAtBucket(6, 1),
+                    new CountAtBucket(7, 2));
+
+            clock.add(2, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 0),
+                    new CountAtBucket(6, 0),
+                    new CountAtBucket(7, 0));
+        }
+    }
+
+    @Test
+    void stripedBucketsSumRecordingsOfAllThreads() throws InterruptedException {
+        MockClock clock = new MockClock();
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .sla(3, 6, 7)
+                        .expiry(Duration.ofSeconds(3))
+                        .bufferLength(3)
+                        .stripedHistogramBuckets(true)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            assertThat(histogram.newBucket()).isInstanceOf(TimeWindowFixedBoundaryHistogram.StripedFixedBoundaryHistogram.class);
+
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        histogram.recordDouble(3);
+                        histogram.recordDouble(7);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 8000),
+                    new CountAtBucket(6, 8000),
+                    new CountAtBucket(7, 16000));
+
+            clock.add(3, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 0),
+                    new CountAtBucket(6, 0),
+                    new CountAtBucket(7, 0));
+        }
+    }
+
+    @Test
+    void percentileBucketIndexMatchesBinarySearch() {
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .minimumExpectedValue(Duration.ofMillis(1).toNanos())
+                .maximumExpectedValue(Duration.ofSeconds(30).toNanos())
+                .sla(Duration.ofMillis(100).toNanos(), Duration.ofMillis(250).toNanos())
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+
+        try (TimeWindowFixedBoundaryHistogram histogram = new TimeWindowFixedBoundaryHistogram(Clock.SYSTEM, config, true)) {
+            TimeWindowFixedBoundaryHistogram.FixedBoundaryHistogram bucket = histogram.newBucket();
+
+            Random random = new Random(1234567891L);
+            for (int i = 0; i < 100_000; i++) {
+                long value = (long) Math.exp(random.nextDouble() * 40);
+                assertThat(histogram.bucketIndex(value)).isEqualTo(bucket.leastLessThanOrEqualTo(value));
+            }
+
+            for (long value : new long[]{Long.MIN_VALUE, -1, 0, 1, Duration.ofMillis(1).toNanos(),
+                    Duration.ofMillis(100).toNanos(), Duration.ofMillis(100).toNanos() + 1,
+                    Duration.ofSeconds(30).toNanos(), Duration.ofSeconds(30).toNanos() + 1, Long.MAX_VALUE}) {
+                assertThat(histogram.bucketIndex(value)).isEqualTo(bucket.leastLessThanOrEqualTo(value));
+            }
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.MockClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowMaxTest {
+    private final MockClock clock = new MockClock();
+
+    @Test
+    void decaysAfterBufferLengthRotations() {
+        TimeWindowMax max = new TimeWindowMax(clock, 1000, 3);
+
+        max.record(5, TimeUnit.SECONDS);
+        assertThat(max.poll(TimeUnit.SECONDS)).isEqualTo(5);
+
+        max.record(3, TimeUnit.SECONDS);
+        clock.add(1, TimeUnit.SECONDS);
+        clock.add(1, TimeUnit.SECONDS);
+        assertThat(max.poll(TimeUnit.SECONDS)).isEqualTo(5);
+
+        clock.add(1, TimeUnit.SECONDS);
+        assertThat(max.poll(TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void unscaledMax() {
+        TimeWindowMax max = new TimeWindowMax(clock, 1000, 3);
+
+        max.record(2.5);
+        max.record(1.5);
+        assertThat(max.poll()).isEqualTo(2.5);
+    }
+
+    @Test
+    void concurrentRecordingKeepsLargestSample() throws InterruptedException {
+        TimeWindowMax max = new TimeWindowMax(clock, 1000, 3);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    max.record(i * 8 + offset, TimeUnit.NANOSECONDS);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(max.poll(TimeUnit.NANOSECONDS)).isEqualTo(10_000 * 8 - 1);
+    }
+}
@@ -17,6 +17,8 @@ package io.micrometer.core.instrument.distribution;
 
 import io.micrometer.core.instrument.MockClock;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
@@ -148,6 +150,27 @@ class TimeWindowPercentileHistogramTest {
         }
     }
 
+    @Test
+    void lazyBucketMergeHistogramsAreCumulative() {
+        try (TimeWindowPercentileHistogram histogram = new TimeWindowPercentileHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .sla(3, 6, 7)
+                        .lazyBucketMerge(true)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(3);
+            histogram.takeSnapshot(0, 0, 0);
+            histogram.recordDouble(6);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 1),
+                    new CountAtBucket(6, 2),
+                    new CountAtBucket(7, 2)
+            );
+        }
+    }
+
     private boolean percentileValueIsApproximately(ValueAtPercentile vp, double percentile, double nanos) {
         if (vp.percentile() != percentile)
             return false;
@@ -155,13 +178,15 @@ class TimeWindowPercentileHistogramTest {
         return eps < 0.05;
     }
     
-    @Test
-    void timeBasedSlidingWindow() {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void timeBasedSlidingWindow(boolean lazyBucketMerge) {
         final DistributionStatisticConfig config =
                 DistributionStatisticConfig.builder()
                         .percentiles(0.0, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0)
                         .expiry(Duration.ofSeconds(4))
                         .bufferLength(4)
+                        .lazyBucketMerge(lazyBucketMerge)
                         .build()
                         .merge(DistributionStatisticConfig.DEFAULT);
 
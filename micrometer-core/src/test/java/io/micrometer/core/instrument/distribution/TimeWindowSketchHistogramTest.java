@@ -0,0 +1,152 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.distribution;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TimeWindowSketchHistogramTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void percentilesAreWithinRelativeAccuracy(int percentilePrecision) {
+        double relativeAccuracy = 0.5 * Math.pow(10, -percentilePrecision);
+
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.9, 0.99)
+                        .percentilePrecision(percentilePrecision)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            Random random = new Random(1234567891L);
+            double[] samples = new double[10_000];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = Math.exp(10 + 2 * random.nextGaussian());
+                histogram.recordDouble(samples[i]);
+            }
+            Arrays.sort(samples);
+
+            for (ValueAtPercentile valueAtPercentile : histogram.takeSnapshot(0, 0, 0).percentileValues()) {
+                double expected = samples[(int) Math.ceil(valueAtPercentile.percentile() * samples.length) - 1];
+                assertThat(valueAtPercentile.value()).isCloseTo(expected, within(expected * relativeAccuracy));
+            }
+        }
+    }
+
+    @Test
+    void histogramsAreCumulative() {
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentiles(0.5)
+                        .sla(3, 6, 7)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(3);
+            histogram.recordDouble(6);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).histogramCounts()).containsExactly(
+                    new CountAtBucket(3, 1),
+                    new CountAtBucket(6, 2),
+                    new CountAtBucket(7, 2));
+        }
+    }
+
+    @Test
+    void percentileHistogramCountsMatchSamples() {
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(new MockClock(),
+                DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentilePrecision(2)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), true)) {
+
+            Random random = new Random(1234567891L);
+            long[] samples = new long[10_000];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (long) Math.exp(10 + 4 * random.nextGaussian());
+                histogram.recordLong(samples[i]);
+            }
+
+            CountAtBucket[] counts = histogram.takeSnapshot(0, 0, 0).histogramCounts();
+            assertThat(counts).isNotEmpty();
+            for (CountAtBucket countAtBucket : counts) {
+                long bucket = countAtBucket.bucket();
+                int sketchIndex = histogram.index(bucket);
+                long expected = Arrays.stream(samples).filter(sample -> histogram.index(sample) <= sketchIndex).count();
+                assertThat(countAtBucket.count()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void percentilesDecayWithRotation(boolean lazyBucketMerge) {
+        MockClock clock = new MockClock();
+        try (TimeWindowSketchHistogram histogram = new TimeWindowSketchHistogram(clock,
+                DistributionStatisticConfig.builder()
+                        .percentiles(1.0)
+                        .expiry(Duration.ofSeconds(3))
+                        .bufferLength(3)
+                        .lazyBucketMerge(lazyBucketMerge)
+                        .build()
+                        .merge(DistributionStatisticConfig.DEFAULT), false)) {
+
+            histogram.recordDouble(100);
+            clock.add(1, TimeUnit.SECONDS);
+            histogram.recordDouble(10);
+
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isCloseTo(100, within(5.0));
+
+            clock.add(2, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isCloseTo(10, within(0.5));
+
+            clock.add(1, TimeUnit.SECONDS);
+            assertThat(histogram.takeSnapshot(0, 0, 0).percentileValues()[0].value()).isZero();
+        }
+    }
+
+    @Test
+    void selectedByDistributionStatisticConfig() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentileSketch(true).build().merge(config);
+            }
+        });
+
+        Timer timer = Timer.builder("my.timer").publishPercentiles(0.5).register(registry);
+        timer.record(10, TimeUnit.MILLISECONDS);
+
+        assertThat(timer.takeSnapshot().percentileValues()[0].value(TimeUnit.MILLISECONDS)).isCloseTo(10, within(0.5));
+    }
+}
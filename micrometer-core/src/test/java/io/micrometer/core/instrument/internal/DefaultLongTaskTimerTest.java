@@ -0,0 +1,173 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.internal;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefaultLongTaskTimerTest {
+    private final MockClock clock = new MockClock();
+    private final Meter.Id id = new Meter.Id("my.long.task", Tags.empty(), null, null, Meter.Type.LONG_TASK_TIMER);
+
+    @Test
+    void startAndStop() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock, 4);
+
+        LongTaskTimer.Sample first = timer.start();
+        clock.add(10, TimeUnit.SECONDS);
+        LongTaskTimer.Sample second = timer.start();
+        clock.add(5, TimeUnit.SECONDS);
+
+        assertThat(timer.activeTasks()).isEqualTo(2);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(20);
+        assertThat(first.duration(TimeUnit.SECONDS)).isEqualTo(15);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(15);
+
+        assertThat(first.stop()).isEqualTo(TimeUnit.SECONDS.toNanos(15));
+        assertThat(first.stop()).isEqualTo(-1);
+        assertThat(first.duration(TimeUnit.SECONDS)).isEqualTo(-1);
+
+        assertThat(timer.activeTasks()).isEqualTo(1);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(5);
+
+        second.stop();
+        assertThat(timer.activeTasks()).isZero();
+        assertThat(timer.duration(TimeUnit.SECONDS)).isZero();
+        assertThat(timer.max(TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void tasksBeyondCapacity() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock, 2);
+
+        List<LongTaskTimer.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(timer.start());
+            clock.add(1, TimeUnit.SECONDS);
+        }
+
+        assertThat(timer.activeTasks()).isEqualTo(10);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(55);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(10);
+
+        // stopping the oldest tasks frees their slots for new tasks
+        samples.get(0).stop();
+        samples.get(1).stop();
+        samples.add(timer.start());
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(8);
+
+        for (int i = 2; i < 10; i++) {
+            assertThat(samples.get(i).duration(TimeUnit.SECONDS)).isEqualTo(10 - i);
+            samples.get(i).stop();
+        }
+        assertThat(timer.activeTasks()).isEqualTo(1);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isZero();
+
+        clock.add(3, TimeUnit.SECONDS);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(3);
+    }
+
+    @Test
+    void oldestTaskKeepsItsSlot() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock, 2);
+
+        LongTaskTimer.Sample oldest = timer.start();
+        clock.add(1, TimeUnit.MINUTES);
+        for (int i = 0; i < 100; i++) {
+            timer.start().stop();
+        }
+
+        assertThat(timer.activeTasks()).isEqualTo(1);
+        assertThat(timer.duration(TimeUnit.SECONDS)).isEqualTo(60);
+        assertThat(timer.max(TimeUnit.SECONDS)).isEqualTo(60);
+        assertThat(oldest.stop()).isEqualTo(TimeUnit.MINUTES.toNanos(1));
+        assertThat(timer.max(TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void snapshotOfActiveDurations() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock, 4);
+
+        for (int i = 0; i < 10; i++) {
+            timer.start();
+            clock.add(1, TimeUnit.SECONDS);
+        }
+
+        HistogramSnapshot snapshot = timer.takeSnapshot(new double[]{0.5, 0.9}, Duration.ofSeconds(3), Duration.ofSeconds(20));
+        assertThat(snapshot.count()).isEqualTo(10);
+        assertThat(snapshot.total(TimeUnit.SECONDS)).isEqualTo(55);
+        assertThat(snapshot.max(TimeUnit.SECONDS)).isEqualTo(10);
+        assertThat(snapshot.percentileValues()[0].value(TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(snapshot.percentileValues()[1].value(TimeUnit.SECONDS)).isEqualTo(9);
+        assertThat(snapshot.histogramCounts()[0].count()).isEqualTo(3);
+        assertThat(snapshot.histogramCounts()[1].count()).isEqualTo(10);
+    }
+
+    @Test
+    void emptySnapshot() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock);
+
+        HistogramSnapshot snapshot = timer.takeSnapshot(new double[]{0.99});
+        assertThat(snapshot.count()).isZero();
+        assertThat(snapshot.max()).isZero();
+        assertThat(snapshot.percentileValues()[0].value()).isZero();
+    }
+
+    @Test
+    void timerThatNeverStartedATask() {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock);
+
+        assertThat(timer.activeTasks()).isZero();
+        assertThat(timer.duration(TimeUnit.SECONDS)).isZero();
+        assertThat(timer.max(TimeUnit.SECONDS)).isZero();
+        assertThat(timer.stop(0)).isEqualTo(-1);
+        assertThat(timer.duration(0, TimeUnit.SECONDS)).isEqualTo(-1);
+    }
+
+    @Test
+    void concurrentStartAndStop() throws InterruptedException {
+        DefaultLongTaskTimer timer = new DefaultLongTaskTimer(id, clock, 8);
+
+        CountDownLatch latch = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    LongTaskTimer.Sample sample = timer.start();
+                    assertThat(sample.stop()).isNotNegative();
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await(10, TimeUnit.SECONDS);
+
+        assertThat(timer.activeTasks()).isZero();
+        assertThat(timer.duration(TimeUnit.NANOSECONDS)).isZero();
+        assertThat(timer.max(TimeUnit.NANOSECONDS)).isZero();
+    }
+}
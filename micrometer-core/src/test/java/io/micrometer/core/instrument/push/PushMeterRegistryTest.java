@@ -15,7 +15,10 @@
  */
 package io.micrometer.core.instrument.push;
 
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.instrument.step.StepRegistryConfig;
 import io.micrometer.core.instrument.util.NamedThreadFactory;
@@ -23,6 +26,9 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +79,259 @@ class PushMeterRegistryTest {
         assertThatCode(() -> pushMeterRegistry.close()).doesNotThrowAnyException();
     }
 
+    @Test
+    void publishesAreAlignedToStep() throws InterruptedException {
+        SlowPushMeterRegistry registry = new SlowPushMeterRegistry(slowConfig(PublishOverrunPolicy.COALESCE), 0, 3);
+        try {
+            registry.start(threadFactory);
+            assertThat(registry.published.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            registry.stop();
+        }
+
+        assertThat(registry.publishStarts).allSatisfy(start -> assertThat(start % 100).isLessThan(50));
+        assertThat(registry.publishedPublishes).isEqualTo(2);
+        assertThat(registry.publishedOverruns).isZero();
+    }
+
+    @Test
+    void overrunIsCoalescedIntoOnePublish() throws InterruptedException {
+        SlowPushMeterRegistry registry = new SlowPushMeterRegistry(slowConfig(PublishOverrunPolicy.COALESCE), 250, 3);
+        try {
+            registry.start(threadFactory);
+            assertThat(registry.published.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            registry.stop();
+        }
+
+        // the first publish spans at least two boundaries, and the second starts as soon as it ends
+        assertThat(registry.publishedOverruns).isGreaterThanOrEqualTo(2);
+        assertThat(registry.publishStarts.get(1) - registry.publishStarts.get(0)).isBetween(250L, 300L);
+    }
+
+    @Test
+    void overrunIsSkippedUntilNextBoundary() throws InterruptedException {
+        SlowPushMeterRegistry registry = new SlowPushMeterRegistry(slowConfig(PublishOverrunPolicy.SKIP), 250, 3);
+        try {
+            registry.start(threadFactory);
+            assertThat(registry.published.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            registry.stop();
+        }
+
+        assertThat(registry.publishedOverruns).isGreaterThanOrEqualTo(2);
+        assertThat(registry.publishStarts.get(1) - registry.publishStarts.get(0)).isGreaterThanOrEqualTo(250L);
+        assertThat(registry.publishStarts).allSatisfy(start -> assertThat(start % 100).isLessThan(50));
+    }
+
+    @Test
+    void publishAsyncRunsOnPublishThreads() throws InterruptedException {
+        StepRegistryConfig parallelConfig = new StepRegistryConfig() {
+            @Override
+            public Duration step() {
+                return Duration.ofMillis(10);
+            }
+
+            @Override
+            public int publishParallelism() {
+                return 2;
+            }
+
+            @Override
+            public String prefix() {
+                return null;
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        };
+
+        // each of the two batches waits for the other to start, so they can only complete in parallel
+        CountDownLatch batchesStarted = new CountDownLatch(2);
+        List<Boolean> results = new CopyOnWriteArrayList<>();
+        CountDownLatch published = new CountDownLatch(1);
+        StepMeterRegistry registry = new StepMeterRegistry(parallelConfig, new MockClock()) {
+            @Override
+            protected void publish() {
+                if (published.getCount() == 0) {
+                    return;
+                }
+                CompletableFuture<?>[] batches = new CompletableFuture[2];
+                for (int i = 0; i < batches.length; i++) {
+                    batches[i] = publishAsync(() -> CompletableFuture.supplyAsync(() -> {
+                        batchesStarted.countDown();
+                        try {
+                            return batchesStarted.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            return false;
+                        }
+                    }, Runnable::run)).thenAccept(results::add);
+                }
+                CompletableFuture.allOf(batches).join();
+                published.countDown();
+            }
+
+            @Override
+            protected TimeUnit getBaseTimeUnit() {
+                return TimeUnit.MILLISECONDS;
+            }
+        };
+
+        try {
+            registry.start(threadFactory);
+            assertThat(published.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            registry.stop();
+        }
+        assertThat(results).containsExactly(true, true);
+    }
+
+    @Test
+    void publishAsyncRunsOnCallingThreadWithoutParallelism() {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        pushMeterRegistry.start(threadFactory);
+        pushMeterRegistry.publishAsync(() -> {
+            threads.add(Thread.currentThread());
+            return CompletableFuture.completedFuture(null);
+        }).join();
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    void forEachBatchReadsMetersIntoReusedBatches() {
+        MockClock clock = (MockClock) pushMeterRegistry.config().clock();
+        pushMeterRegistry.gauge("my.gauge", Tags.empty(), this, test -> 3.0);
+        pushMeterRegistry.counter("my.counter").increment(2);
+        pushMeterRegistry.timer("my.timer").record(1, TimeUnit.SECONDS);
+        clock.add(config.step());
+
+        List<MeterReadings> batches = new CopyOnWriteArrayList<>();
+        List<String> readings = new CopyOnWriteArrayList<>();
+        pushMeterRegistry.forEachBatch(2, batch -> {
+            batches.add(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                switch (batch.kind(i)) {
+                    case GAUGE:
+                        readings.add(batch.id(i).getName() + "=" + batch.value(i));
+                        break;
+                    case COUNTER:
+                        readings.add(batch.id(i).getName() + "=" + batch.count(i));
+                        break;
+                    case TIMER:
+                        readings.add(batch.id(i).getName() + "=" + batch.count(i) + "/" + batch.total(i) + "/" + batch.max(i));
+                        break;
+                    default:
+                        readings.add(batch.id(i).getName());
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }).join();
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0).size()).isEqualTo(2);
+        assertThat(batches.get(1).size()).isEqualTo(1);
+        assertThat(readings).containsExactlyInAnyOrder("my.gauge=3.0", "my.counter=2.0", "my.timer=1.0/1000000.0/1000000.0");
+
+        List<MeterReadings> nextBatches = new CopyOnWriteArrayList<>();
+        pushMeterRegistry.forEachBatch(2, batch -> {
+            nextBatches.add(batch);
+            return CompletableFuture.completedFuture(null);
+        }).join();
+        assertThat(nextBatches).hasSize(2);
+        assertThat(nextBatches.get(0)).isSameAs(batches.get(0));
+        assertThat(nextBatches.get(1)).isSameAs(batches.get(1));
+    }
+
+    @Test
+    void histogramsAreOnlyReadByBatchesThatReadThem() {
+        MockClock clock = (MockClock) pushMeterRegistry.config().clock();
+        Timer timer = Timer.builder("my.timer").publishPercentiles(0.5).register(pushMeterRegistry);
+        timer.record(1, TimeUnit.SECONDS);
+        clock.add(config.step());
+
+        MeterReadings readings = new MeterReadings(TimeUnit.SECONDS, 1);
+        readings.read(timer);
+        assertThat(readings.count(0)).isEqualTo(1);
+        assertThat(readings.total(0)).isEqualTo(1);
+        assertThat(readings.max(0)).isEqualTo(1);
+        assertThat(readings.percentileValues(0)).isEmpty();
+
+        MeterReadings histogramReadings = new MeterReadings(TimeUnit.SECONDS, 1, true);
+        histogramReadings.read(timer);
+        assertThat(histogramReadings.count(0)).isEqualTo(1);
+        assertThat(histogramReadings.total(0)).isEqualTo(1);
+        assertThat(histogramReadings.percentileValues(0)).hasSize(1);
+    }
+
+    private static StepRegistryConfig slowConfig(PublishOverrunPolicy overrunPolicy) {
+        return new StepRegistryConfig() {
+            @Override
+            public Duration step() {
+                return Duration.ofMillis(100);
+            }
+
+            @Override
+            public PublishOverrunPolicy overrunPolicy() {
+                return overrunPolicy;
+            }
+
+            @Override
+            public boolean publishMetrics() {
+                return true;
+            }
+
+            @Override
+            public String prefix() {
+                return null;
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Takes {@code firstPublishMillis} to publish the first time, and no time afterwards. Sums the values of its own
+     * publish metrics as they are published, each publish reporting the previous step.
+     */
+    static class SlowPushMeterRegistry extends StepMeterRegistry {
+        final List<Long> publishStarts = new CopyOnWriteArrayList<>();
+        final CountDownLatch published;
+        final long firstPublishMillis;
+        volatile long publishedPublishes;
+        volatile double publishedOverruns;
+
+        SlowPushMeterRegistry(StepRegistryConfig config, long firstPublishMillis, int publishes) {
+            super(config, Clock.SYSTEM);
+            this.firstPublishMillis = firstPublishMillis;
+            this.published = new CountDownLatch(publishes);
+        }
+
+        @Override
+        protected void publish() {
+            publishStarts.add(clock.wallTime());
+            publishedPublishes += get("push.publish").timer().count();
+            publishedOverruns += get("push.publish.overruns").counter().count();
+            if (publishStarts.size() == 1) {
+                try {
+                    Thread.sleep(firstPublishMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            published.countDown();
+        }
+
+        @Override
+        protected TimeUnit getBaseTimeUnit() {
+            return TimeUnit.MILLISECONDS;
+        }
+    }
+
     static class ThrowingPushMeterRegistry extends StepMeterRegistry {
 
         final CountDownLatch countDownLatch;
@@ -19,7 +19,9 @@ import io.micrometer.core.Issue;
 import io.micrometer.core.instrument.*;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -84,4 +86,98 @@ class StepMeterRegistryTest {
         registry.close();
         assertThat(publishes.get()).isEqualTo(1);
     }
+
+    @Test
+    void skipIdleMeters() {
+        StepMeterRegistry registry = skipIdleMetersRegistry();
+
+        AtomicInteger gaugeValue = new AtomicInteger(1);
+        Counter activeCounter = registry.counter("active.counter");
+        registry.counter("idle.counter");
+        Timer activeTimer = registry.timer("active.timer");
+        registry.timer("idle.timer");
+        registry.gauge("my.gauge", gaugeValue);
+
+        activeCounter.increment();
+        activeTimer.record(1, TimeUnit.SECONDS);
+        clock.add(config.step());
+        assertThat(registry.getMetersToPublish()).extracting(m -> m.getId().getName())
+                .containsExactlyInAnyOrder("active.counter", "active.timer", "my.gauge");
+        registry.afterPublish(true);
+
+        // the gauge is idle until its value changes
+        clock.add(config.step());
+        assertThat(registry.getMetersToPublish()).isEmpty();
+        registry.afterPublish(true);
+
+        gaugeValue.set(2);
+        assertThat(registry.getMetersToPublish()).extracting(m -> m.getId().getName())
+                .containsExactly("my.gauge");
+        registry.afterPublish(true);
+    }
+
+    @Test
+    void idleMetersAreSentAgainAfterFailedPublish() {
+        StepMeterRegistry registry = skipIdleMetersRegistry();
+
+        AtomicInteger gaugeValue = new AtomicInteger(1);
+        registry.gauge("my.gauge", gaugeValue);
+
+        assertThat(registry.getMetersToPublish()).hasSize(1);
+        registry.afterPublish(false);
+
+        assertThat(registry.getMetersToPublish()).hasSize(1);
+        registry.afterPublish(true);
+
+        assertThat(registry.getMetersToPublish()).isEmpty();
+    }
+
+    @Test
+    void idleMetersAreSentAgainAfterFailedBatch() {
+        StepMeterRegistry registry = skipIdleMetersRegistry();
+
+        AtomicInteger gaugeValue = new AtomicInteger(1);
+        registry.gauge("my.gauge", gaugeValue);
+
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("connection refused"));
+        assertThat(registry.forEachBatch(10, batch -> failed)).isCompletedExceptionally();
+
+        AtomicInteger sent = new AtomicInteger();
+        assertThat(registry.forEachBatch(10, batch -> {
+            sent.addAndGet(batch.size());
+            return CompletableFuture.completedFuture(null);
+        })).isCompleted();
+        assertThat(sent.get()).isEqualTo(1);
+
+        assertThat(registry.getMetersToPublish()).isEmpty();
+    }
+
+    private StepMeterRegistry skipIdleMetersRegistry() {
+        return new StepMeterRegistry(new StepRegistryConfig() {
+            @Override
+            public boolean skipIdleMeters() {
+                return true;
+            }
+
+            @Override
+            public String prefix() {
+                return "test";
+            }
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+        }, clock) {
+            @Override
+            protected void publish() {
+            }
+
+            @Override
+            protected TimeUnit getBaseTimeUnit() {
+                return TimeUnit.SECONDS;
+            }
+        };
+    }
 }
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.instrument.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.NamingConvention;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenderedIdCacheTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+    private final RenderedIdCache<String> cache = new RenderedIdCache<>(registry, id -> {
+        renders.incrementAndGet();
+        return id.getConventionName(registry.config().namingConvention());
+    });
+
+    @Test
+    void rendersOncePerId() {
+        Counter counter = registry.counter("my.counter");
+
+        assertThat(cache.get(counter.getId())).isEqualTo("my_counter");
+        assertThat(cache.get(counter.getId())).isEqualTo("my_counter");
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    void rendersAgainWhenNamingConventionChanges() {
+        Counter counter = registry.counter("my.counter");
+        cache.get(counter.getId());
+
+        registry.config().namingConvention(NamingConvention.dot);
+        assertThat(cache.get(counter.getId())).isEqualTo("my.counter");
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void rendersAgainWhenMeterIsRemovedAndRegisteredAgain() {
+        Counter counter = registry.counter("my.counter");
+        cache.get(counter.getId());
+
+        registry.remove(counter);
+        Counter registeredAgain = registry.counter("my.counter");
+        cache.get(registeredAgain.getId());
+        assertThat(renders).hasValue(2);
+    }
+}
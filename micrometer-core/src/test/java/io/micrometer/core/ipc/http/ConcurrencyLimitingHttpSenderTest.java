@@ -0,0 +1,78 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.core.ipc.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitingHttpSenderTest {
+    private final List<CompletableFuture<HttpSender.Response>> inFlight = new CopyOnWriteArrayList<>();
+
+    private final HttpSender delegate = new HttpSender() {
+        @Override
+        public Response send(Request request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Response> sendAsync(Request request) {
+            CompletableFuture<Response> response = new CompletableFuture<>();
+            inFlight.add(response);
+            return response;
+        }
+    };
+
+    @Test
+    void waitsForAnEarlierRequestWhenTheLimitIsReached() throws Throwable {
+        HttpSender sender = new ConcurrencyLimitingHttpSender(delegate, 2);
+        sender.post("http://localhost/metrics").sendAsync();
+        sender.post("http://localhost/metrics").sendAsync();
+
+        CompletableFuture<CompletableFuture<HttpSender.Response>> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return sender.post("http://localhost/metrics").sendAsync();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(third).isNotDone();
+        assertThat(inFlight).hasSize(2);
+
+        inFlight.get(0).complete(new HttpSender.Response(200, null));
+        third.get(5, TimeUnit.SECONDS);
+        assertThat(inFlight).hasSize(3);
+    }
+
+    @Test
+    void failedRequestsReleaseTheirPermit() throws Throwable {
+        HttpSender sender = new ConcurrencyLimitingHttpSender(delegate, 1);
+
+        CompletableFuture<HttpSender.Response> first = sender.post("http://localhost/metrics").sendAsync();
+        inFlight.get(0).completeExceptionally(new RuntimeException("connection refused"));
+        assertThat(first).isCompletedExceptionally();
+
+        sender.post("http://localhost/metrics").sendAsync();
+        assertThat(inFlight).hasSize(2);
+    }
+}
@@ -16,14 +16,26 @@
 package io.micrometer.core.ipc.http;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import ru.lanwen.wiremock.ext.WiremockResolver;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @ExtendWith(WiremockResolver.class)
@@ -38,4 +50,68 @@ class HttpUrlConnectionSenderTests {
         assertThatExceptionOfType(SocketTimeoutException.class)
                 .isThrownBy(() -> httpSender.post(server.baseUrl() + "/metrics").send());
     }
+
+    @Test
+    void streamingRequestBody(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok()));
+
+        httpSender.post(server.baseUrl() + "/metrics")
+                .withPlainText(HttpSender.EntityWriter.joining(() -> Stream.of("a", "b", "c"), "\n"))
+                .send();
+
+        server.verify(postRequestedFor(urlEqualTo("/metrics"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withRequestBody(equalTo("a\nb\nc")));
+    }
+
+    @Test
+    void keepAliveReusesConnections() throws Throwable {
+        assertThat(connectionsUsedBy(new HttpUrlConnectionSender(Duration.ofSeconds(1), Duration.ofSeconds(1), null, 2)))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void requestsAreTimed(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        HttpUrlConnectionSender sender = new HttpUrlConnectionSender();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        sender.bindTo(registry);
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok()));
+
+        sender.post(server.baseUrl() + "/metrics").withPlainText("a").send();
+        sender.post(server.baseUrl() + "/metrics").withPlainText("b").send();
+
+        assertThat(registry.get("http.sender.requests").functionTimer().count()).isEqualTo(2);
+        assertThat(registry.get("http.sender.requests").functionTimer().totalTime(TimeUnit.NANOSECONDS)).isPositive();
+        assertThat(registry.get("http.sender.handshakes").functionCounter().count()).isZero();
+    }
+
+    /**
+     * @return The number of connections a server sees for 5 requests from a sender.
+     */
+    private static int connectionsUsedBy(HttpSender sender) throws Throwable {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/metrics", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().close();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            } catch (IOException ignored) {
+            }
+        });
+        server.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertThat(sender.post("http://localhost:" + server.getAddress().getPort() + "/metrics")
+                        .withPlainText("line " + i)
+                        .send()
+                        .body()).isEqualTo("ok");
+            }
+        } finally {
+            server.stop(0);
+        }
+        return clientPorts.size();
+    }
 }
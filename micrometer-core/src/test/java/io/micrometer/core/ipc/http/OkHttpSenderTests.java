@@ -22,9 +22,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import ru.lanwen.wiremock.ext.WiremockResolver;
 
 import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @ExtendWith(WiremockResolver.class)
@@ -51,4 +54,29 @@ class OkHttpSenderTests {
         server.verify(postRequestedFor(urlEqualTo("/metrics"))
                 .withHeader("Content-Type", equalTo("application/xml; charset=utf-8")));
     }
+
+    @Test
+    void sendAsync(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok("accepted")));
+
+        CompletableFuture<HttpSender.Response> response = this.httpSender.post(server.baseUrl() + "/metrics")
+                .withPlainText("a")
+                .sendAsync();
+
+        assertThat(response.get(5, TimeUnit.SECONDS).body()).isEqualTo("accepted");
+        server.verify(postRequestedFor(urlEqualTo("/metrics")).withRequestBody(equalTo("a")));
+    }
+
+    @Test
+    void streamingRequestBody(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok()));
+
+        this.httpSender.post(server.baseUrl() + "/metrics")
+                .withJsonContent(HttpSender.EntityWriter.joining(() -> Stream.of("{}", "{}"), ",", "[", "]"))
+                .send();
+
+        server.verify(postRequestedFor(urlEqualTo("/metrics"))
+                .withHeader("Content-Type", containing("application/json"))
+                .withRequestBody(equalTo("[{},{}]")));
+    }
 }
@@ -24,9 +24,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import reactor.netty.http.client.HttpClient;
 import ru.lanwen.wiremock.ext.WiremockResolver;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @ExtendWith(WiremockResolver.class)
@@ -44,4 +47,27 @@ class ReactorNettySenderTests {
         assertThatExceptionOfType(ReadTimeoutException.class)
                 .isThrownBy(() -> httpSender.post(server.baseUrl() + "/metrics").send());
     }
+
+    @Test
+    void sendAsync(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok()));
+
+        CompletableFuture<HttpSender.Response> response = this.httpSender.post(server.baseUrl() + "/metrics")
+                .withPlainText("a")
+                .sendAsync();
+
+        assertThat(response.get(5, TimeUnit.SECONDS).code()).isEqualTo(200);
+        server.verify(postRequestedFor(urlEqualTo("/metrics")).withRequestBody(equalTo("a")));
+    }
+
+    @Test
+    void streamingRequestBody(@WiremockResolver.Wiremock WireMockServer server) throws Throwable {
+        server.stubFor(any(urlEqualTo("/metrics")).willReturn(ok()));
+
+        this.httpSender.post(server.baseUrl() + "/metrics")
+                .withPlainText(HttpSender.EntityWriter.joining(() -> Stream.of("a", "b", "c"), "\n"))
+                .send();
+
+        server.verify(postRequestedFor(urlEqualTo("/metrics")).withRequestBody(equalTo("a\nb\nc")));
+    }
 }
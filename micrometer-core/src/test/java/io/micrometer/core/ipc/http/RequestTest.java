@@ -15,14 +15,23 @@
  */
 package io.micrometer.core.ipc.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link HttpSender.Request}.
@@ -43,4 +52,43 @@ class RequestTest {
         assertThat(requestHeaders).containsEntry("Content-Encoding", "gzip");
     }
 
+    @Test
+    void joiningWritesSameTextAsCollector() throws IOException {
+        HttpSender.EntityWriter writer = HttpSender.EntityWriter.joining(() -> Stream.of("a", "é", "c"), ",", "[", "]");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo(Stream.of("a", "é", "c").collect(Collectors.joining(",", "[", "]")));
+    }
+
+    @Test
+    void compressStreamingEntity() throws Throwable {
+        HttpSender sender = mock(HttpSender.class);
+        HttpSender.Request.build("https://micrometer.io/", sender)
+                .withPlainText(HttpSender.EntityWriter.joining(() -> Stream.of("a", "b"), "\n"))
+                .compress()
+                .send();
+
+        ArgumentCaptor<HttpSender.Request> captor = ArgumentCaptor.forClass(HttpSender.Request.class);
+        verify(sender).send(captor.capture());
+        HttpSender.Request request = captor.getValue();
+
+        assertThat(request.isStreaming()).isTrue();
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        request.writeEntity(written);
+        assertThat(gunzip(written.toByteArray())).isEqualTo("a\nb");
+        assertThat(gunzip(request.getEntity())).isEqualTo("a\nb");
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
 }
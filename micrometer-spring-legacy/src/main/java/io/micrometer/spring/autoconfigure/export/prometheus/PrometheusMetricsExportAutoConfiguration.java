@@ -29,6 +29,7 @@ import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.PushGateway;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.autoconfigure.ManagementContextConfiguration;
 import org.springframework.boot.actuate.condition.ConditionalOnEnabledEndpoint;
 import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
@@ -87,8 +88,9 @@ public class PrometheusMetricsExportAutoConfiguration {
     @ConditionalOnClass(AbstractEndpoint.class)
     public static class PrometheusScrapeEndpointConfiguration {
         @Bean
-        public PrometheusScrapeEndpoint prometheusEndpoint(CollectorRegistry collectorRegistry) {
-            return new PrometheusScrapeEndpoint(collectorRegistry);
+        public PrometheusScrapeEndpoint prometheusEndpoint(CollectorRegistry collectorRegistry,
+                                                           ObjectProvider<PrometheusMeterRegistry> meterRegistry) {
+            return new PrometheusScrapeEndpoint(collectorRegistry, meterRegistry.getIfUnique());
         }
 
         @Bean
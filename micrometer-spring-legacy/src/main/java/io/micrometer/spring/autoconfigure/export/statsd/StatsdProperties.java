@@ -56,9 +56,10 @@ public class StatsdProperties {
     private StatsdProtocol protocol = StatsdProtocol.UDP;
 
     /**
-     * Total length of a single payload should be kept within your network's MTU.
+     * Total length of a single payload should be kept within your network's MTU. Defaults
+     * to 1400, or to 8192 for Unix domain sockets.
      */
-    private Integer maxPacketLength = 1400;
+    private Integer maxPacketLength;
 
     /**
      * How often gauges will be polled. When a gauge is polled, its value is recalculated
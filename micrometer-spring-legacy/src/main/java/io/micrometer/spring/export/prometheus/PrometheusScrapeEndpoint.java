@@ -15,6 +15,9 @@
  */
 package io.micrometer.spring.export.prometheus;
 
+import io.micrometer.core.lang.Nullable;
+import io.micrometer.prometheus.PrometheusExpositionFormat;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.common.TextFormat;
 import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
@@ -22,8 +25,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.http.ResponseEntity;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Locale;
 
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 
@@ -38,16 +43,40 @@ public class PrometheusScrapeEndpoint extends AbstractEndpoint<ResponseEntity<St
 
     private final CollectorRegistry collectorRegistry;
 
+    @Nullable
+    private final PrometheusMeterRegistry meterRegistry;
+
+    /**
+     * Whether to compress scrapes with gzip for clients that accept it.
+     */
+    private boolean gzip = false;
+
     public PrometheusScrapeEndpoint(CollectorRegistry collectorRegistry) {
+        this(collectorRegistry, null);
+    }
+
+    /**
+     * @param collectorRegistry The registry whose collectors are scraped.
+     * @param meterRegistry     A registry whose meters are written straight to scrapes, without building samples for
+     *                          them, if it is bound to the same collector registry.
+     * @since 1.3.17
+     */
+    public PrometheusScrapeEndpoint(CollectorRegistry collectorRegistry, @Nullable PrometheusMeterRegistry meterRegistry) {
         super("prometheus");
         this.collectorRegistry = collectorRegistry;
+        this.meterRegistry = meterRegistry != null && meterRegistry.getPrometheusRegistry() == collectorRegistry ?
+                meterRegistry : null;
     }
 
     @Override
     public ResponseEntity<String> invoke() {
         try {
             Writer writer = new StringWriter();
-            TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+            if (meterRegistry != null) {
+                meterRegistry.scrape(writer);
+            } else {
+                TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+            }
             return ResponseEntity.ok()
                 .header(CONTENT_TYPE, TextFormat.CONTENT_TYPE_004)
                 .body(writer.toString());
@@ -56,4 +85,57 @@ public class PrometheusScrapeEndpoint extends AbstractEndpoint<ResponseEntity<St
             throw new RuntimeException("Writing metrics failed", e);
         }
     }
+
+    /**
+     * Scrape straight to an output stream, typically the body of the response to a scrape request.
+     *
+     * @param outputStream Target that serves the content to be scraped by Prometheus.
+     * @param format       Format to write, typically negotiated with
+     *                     {@link PrometheusExpositionFormat#fromAcceptHeader(String)}.
+     * @throws IOException if writing fails
+     * @since 1.3.17
+     */
+    public void scrape(OutputStream outputStream, PrometheusExpositionFormat format) throws IOException {
+        if (meterRegistry != null) {
+            meterRegistry.scrape(outputStream, format);
+        } else {
+            format.write(outputStream, collectorRegistry.metricFamilySamples());
+        }
+    }
+
+    /**
+     * @param acceptEncoding The {@code Accept-Encoding} header of a scrape request, if any.
+     * @return Whether the response to the scrape request should be compressed with gzip.
+     * @since 1.3.17
+     */
+    public boolean shouldCompress(@Nullable String acceptEncoding) {
+        return gzip && acceptsGzip(acceptEncoding);
+    }
+
+    private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().toLowerCase(Locale.ROOT).equals("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
 }
@@ -15,9 +15,24 @@
  */
 package io.micrometer.spring.export.prometheus;
 
+import io.micrometer.prometheus.PrometheusExpositionFormat;
 import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
 
 @ConfigurationProperties("endpoints.prometheus")
 public class PrometheusScrapeMvcEndpoint extends EndpointMvcAdapter {
@@ -29,6 +44,43 @@ public class PrometheusScrapeMvcEndpoint extends EndpointMvcAdapter {
     @GetMapping
     @Override
     public Object invoke() {
-        return super.invoke();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!getDelegate().isEnabled() || !(attributes instanceof ServletRequestAttributes) ||
+                ((ServletRequestAttributes) attributes).getResponse() == null) {
+            return super.invoke();
+        }
+
+        // negotiate the exposition format and compression from the scrape request's headers, and stream the scrape
+        // straight into the response rather than buffering it
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        PrometheusScrapeEndpoint endpoint = (PrometheusScrapeEndpoint) getDelegate();
+
+        PrometheusExpositionFormat format = PrometheusExpositionFormat.fromAcceptHeader(request.getHeader(ACCEPT));
+        boolean compress = endpoint.shouldCompress(request.getHeader(ACCEPT_ENCODING));
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(format.getContentType());
+        response.setHeader(VARY, "Accept, Accept-Encoding");
+        if (compress) {
+            response.setHeader(CONTENT_ENCODING, "gzip");
+        }
+
+        try {
+            OutputStream out = response.getOutputStream();
+            if (compress) {
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                endpoint.scrape(gzip, format);
+                gzip.finish();
+            } else {
+                endpoint.scrape(out, format);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Writing metrics failed", e);
+        }
+
+        // the response is complete
+        return null;
     }
 }
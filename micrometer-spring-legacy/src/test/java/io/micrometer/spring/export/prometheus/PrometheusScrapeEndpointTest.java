@@ -0,0 +1,115 @@
+/**
+ * Copyright 2020 VMware, Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micrometer.spring.export.prometheus;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusExpositionFormat;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrometheusScrapeEndpointTest {
+    private final CollectorRegistry collectorRegistry = new CollectorRegistry();
+    private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT,
+            collectorRegistry, Clock.SYSTEM);
+    private final PrometheusScrapeEndpoint endpoint = new PrometheusScrapeEndpoint(collectorRegistry, meterRegistry);
+
+    PrometheusScrapeEndpointTest() {
+        Counter.build("my_counter", "a counter").register(collectorRegistry).inc();
+        meterRegistry.counter("my.meter").increment();
+    }
+
+    @AfterEach
+    void resetRequestAttributes() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private MockHttpServletResponse scrape(PrometheusScrapeEndpoint endpoint, String... headers) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/prometheus");
+        for (int i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+
+        assertThat(new PrometheusScrapeMvcEndpoint(endpoint).invoke()).isNull();
+        return response;
+    }
+
+    @Test
+    void textFormatByDefault() throws IOException {
+        MockHttpServletResponse response = scrape(endpoint);
+
+        assertThat(response.getContentType()).isEqualTo(PrometheusExpositionFormat.TEXT_004.getContentType());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).contains("my_counter 1.0\n").contains("my_meter_total 1.0\n");
+    }
+
+    @Test
+    void gzipIsOptIn() {
+        assertThat(scrape(endpoint, HttpHeaders.ACCEPT_ENCODING, "gzip").getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void negotiatesOpenMetricsAndGzip() throws IOException {
+        endpoint.setGzip(true);
+        MockHttpServletResponse response = scrape(endpoint,
+                HttpHeaders.ACCEPT, "application/openmetrics-text; version=0.0.1,text/plain;q=0.5",
+                HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        assertThat(response.getContentType()).isEqualTo(PrometheusExpositionFormat.OPENMETRICS_TEXT.getContentType());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+
+        String body = StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())),
+                StandardCharsets.UTF_8);
+        assertThat(body).contains("# TYPE my_counter unknown\n")
+                .contains("# TYPE my_meter counter\n")
+                .endsWith("# EOF\n");
+    }
+
+    @Test
+    void gzipNotAcceptableIsRespected() {
+        endpoint.setGzip(true);
+        assertThat(scrape(endpoint, HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity").getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void scrapeCollectorRegistryWithoutMeterRegistry() throws IOException {
+        MockHttpServletResponse response = scrape(new PrometheusScrapeEndpoint(collectorRegistry));
+        assertThat(response.getContentAsString()).contains("my_counter 1.0\n").contains("my_meter_total 1.0\n");
+    }
+
+    @Test
+    void invokeWithoutRequest() {
+        assertThat(endpoint.invoke().getBody()).contains("my_counter 1.0\n").contains("my_meter_total 1.0\n");
+    }
+}